@@ -35,6 +35,8 @@ package mes.lang;
  * @see BinaryOperatorSymbol
  */
 public class AndOperatorSymbol extends BinaryOperatorSymbol {
+    private static final long serialVersionUID = 1418125202357795157L;
+
     /**
      * Initializes the <i>and</i> operator.
      */
@@ -46,7 +48,7 @@ public class AndOperatorSymbol extends BinaryOperatorSymbol {
      * Initializes the <i>and</i> operator. By default the <i>and</i> operator
      * is left associative with precedence 3.
      * @param position The symbol position at the source code
-     * @see Lexer#Lexer(String)
+     * @see Lexer#Lexer(CharSequence)
      * @see OperatorData
      */
     public AndOperatorSymbol(int position) {
@@ -57,11 +59,8 @@ public class AndOperatorSymbol extends BinaryOperatorSymbol {
      * {@inheritDoc}
      */
     @Override
-    public LiteralSymbol evaluate(Symbol[] symbols) {
-        LiteralSymbol leftOperand = (LiteralSymbol)symbols[0];
-        LiteralSymbol rightOperand = (LiteralSymbol)symbols[1];
-
-        return new NumberLiteralSymbol(leftOperand.getBooleanValue()
-                && rightOperand.getBooleanValue(), position);
+    public double evaluate(double leftOperand, double rightOperand) {
+        return MathUtils.number(MathUtils.bool(leftOperand)
+                && MathUtils.bool(rightOperand));
     }
 }
\ No newline at end of file
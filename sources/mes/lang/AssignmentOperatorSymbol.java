@@ -28,6 +28,8 @@
 
 package mes.lang;
 
+import mes.lang.ExceptionContent.ExceptionMessage;
+
 /**
  * Assignment operator representation.
  * @author Danilo Ferreira
@@ -35,6 +37,8 @@ package mes.lang;
  * @see BinaryOperatorSymbol
  */
 public class AssignmentOperatorSymbol extends BinaryOperatorSymbol {
+    private static final long serialVersionUID = -682084365711433472L;
+
     /**
      * Initializes the assignment operator.
      */
@@ -46,13 +50,22 @@ public class AssignmentOperatorSymbol extends BinaryOperatorSymbol {
      * Initializes the assignment operator. By default the assignment operator
      * is right associative with precedence 0.
      * @param position The symbol position at the source code
-     * @see Lexer#Lexer(String)
+     * @see Lexer#Lexer(CharSequence)
      * @see OperatorData
      */
     public AssignmentOperatorSymbol(int position) {
         super(SymbolType.Assignment, position);
     }
 
+    /**
+     * Assignments have no value inside expressions.
+     * @throws ExceptionContent Illegal expression assignment
+     */
+    @Override
+    public double evaluate(double leftOperand, double rightOperand) {
+        throw new ExceptionContent(ExceptionMessage.IllegalExpressionAssignment, position);
+    }
+
     /**
      * {@inheritDoc}
      */
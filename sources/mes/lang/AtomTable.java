@@ -0,0 +1,215 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.util.Arrays;
+
+/**
+ * Table of interned identifier names. Each distinct name is mapped once to a
+ * dense integer atom, starting at one, and keeps a single string instance.
+ * Names are interned when a symbol is defined, so the table only grows with
+ * the names of definitions. References look their names up instead: the
+ * {@link Lexer} looks identifiers up straight from the source code, so names
+ * already in the table allocate no string, and symbols compare their atoms
+ * instead of their names.
+ * <p>
+ * Lookups take no lock. The hash slots are copied on every new atom and
+ * published with the atom count in an immutable snapshot, so readers always
+ * see a consistent table.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see IdentifierLiteralSymbol#getAtom()
+ * @see SymbolTable
+ */
+public final class AtomTable {
+    /**
+     * Atom of no name. Returned by lookups of names never interned.
+     */
+    public static final int NoAtom = 0;
+
+    private static final int InitialCapacity = 256;
+
+    private static final class Snapshot {
+        private final String[] names;
+        private final int[] slots;
+        private final int atomCount;
+
+        public Snapshot(String[] names, int[] slots, int atomCount) {
+            this.names = names;
+            this.slots = slots;
+            this.atomCount = atomCount;
+        }
+    }
+
+    private static volatile Snapshot snapshot = new Snapshot(
+            new String[InitialCapacity], new int[InitialCapacity * 2], 0);
+
+    private AtomTable() {
+    }
+
+    /**
+     * Interns a name.
+     * @param name The name
+     * @return The atom of the name.
+     */
+    public static int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    /**
+     * Interns a span of a source code as a name. The span is copied to a new
+     * string only if it was never interned.
+     * @param source The source code
+     * @param start The start index (inclusive)
+     * @param end The end index (exclusive)
+     * @return The atom of the name.
+     */
+    public static int intern(CharSequence source, int start, int end) {
+        int atom = lookup(source, start, end);
+
+        if (atom != NoAtom)
+            return atom;
+
+        synchronized (AtomTable.class) {
+            Snapshot currentSnapshot = snapshot;
+            String[] names = currentSnapshot.names;
+            int[] slots = currentSnapshot.slots;
+            int slot = findSlot(names, slots, source, start, end);
+
+            if (slots[slot] != NoAtom)
+                return slots[slot];
+
+            atom = currentSnapshot.atomCount + 1;
+
+            if (atom == names.length)
+                names = Arrays.copyOf(names, names.length << 1);
+
+            names[atom] = source.subSequence(start, end).toString();
+
+            if (atom << 1 > slots.length)
+                slots = rehash(names, atom, slots.length << 1);
+            else {
+                slots = slots.clone();
+                slots[slot] = atom;
+            }
+
+            snapshot = new Snapshot(names, slots, atom);
+            return atom;
+        }
+    }
+
+    /**
+     * Returns the atom of a name without interning it.
+     * @param name The name
+     * @return The atom of the name or {@link #NoAtom} if it was never
+     * interned.
+     */
+    public static int lookup(String name) {
+        return lookup(name, 0, name.length());
+    }
+
+    /**
+     * Returns the atom of a span of a source code without interning it.
+     * @param source The source code
+     * @param start The start index (inclusive)
+     * @param end The end index (exclusive)
+     * @return The atom of the name or {@link #NoAtom} if it was never
+     * interned.
+     */
+    public static int lookup(CharSequence source, int start, int end) {
+        Snapshot currentSnapshot = snapshot;
+        int[] slots = currentSnapshot.slots;
+
+        return slots[findSlot(currentSnapshot.names, slots, source, start, end)];
+    }
+
+    /**
+     * Returns the name of an atom.
+     * @param atom The atom
+     * @return The interned name.
+     */
+    public static String getName(int atom) {
+        return snapshot.names[atom];
+    }
+
+    private static int findSlot(String[] names, int[] slots, CharSequence source,
+            int start, int end) {
+        int mask = slots.length - 1;
+
+        for (int slot = hash(source, start, end) & mask; ; slot = (slot + 1) & mask) {
+            int atom = slots[slot];
+
+            if (atom == NoAtom || matches(names[atom], source, start, end))
+                return slot;
+        }
+    }
+
+    private static int[] rehash(String[] names, int atomCount, int capacity) {
+        int[] slots = new int[capacity];
+        int mask = capacity - 1;
+
+        for (int atom = 1; atom <= atomCount; atom++) {
+            String name = names[atom];
+            int slot = hash(name, 0, name.length()) & mask;
+
+            while (slots[slot] != NoAtom)
+                slot = (slot + 1) & mask;
+
+            slots[slot] = atom;
+        }
+
+        return slots;
+    }
+
+    private static int hash(CharSequence source, int start, int end) {
+        int hash;
+
+        if (source instanceof String && start == 0 && end == source.length())
+            hash = source.hashCode();
+        else {
+            hash = 0;
+
+            for (int i = start; i < end; i++)
+                hash = 31 * hash + source.charAt(i);
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String name, CharSequence source, int start, int end) {
+        if (name.length() != end - start)
+            return false;
+
+        for (int i = 0; i < name.length(); i++)
+            if (name.charAt(i) != source.charAt(start + i))
+                return false;
+
+        return true;
+    }
+}
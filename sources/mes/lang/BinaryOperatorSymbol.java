@@ -35,6 +35,8 @@ package mes.lang;
  * @see OperatorSymbol
  */
 public abstract class BinaryOperatorSymbol extends OperatorSymbol {
+    private static final long serialVersionUID = 2635511078902781044L;
+
     /**
      * Initializes a binary operator.
      * @param type The symbol type
@@ -43,4 +45,24 @@ public abstract class BinaryOperatorSymbol extends OperatorSymbol {
     public BinaryOperatorSymbol(SymbolType type, int position) {
         super(type, position);
     }
+
+    /**
+     * Computes the operator result without allocating symbols.
+     * @param leftOperand The left operand value
+     * @param rightOperand The right operand value
+     * @return The result value.
+     */
+    public abstract double evaluate(double leftOperand, double rightOperand);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LiteralSymbol evaluate(Symbol[] symbols) {
+        LiteralSymbol leftOperand = (LiteralSymbol)symbols[0];
+        LiteralSymbol rightOperand = (LiteralSymbol)symbols[1];
+
+        return new NumberLiteralSymbol(evaluate(leftOperand.getDoubleValue(),
+                rightOperand.getDoubleValue()), position);
+    }
 }
\ No newline at end of file
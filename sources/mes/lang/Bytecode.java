@@ -0,0 +1,285 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+/**
+ * Compiled form of an expression executed by {@link VirtualMachine}. The code
+ * is an array of instructions, each one an opcode followed by its operands.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see BytecodeCompiler
+ * @see VirtualMachine
+ */
+public final class Bytecode {
+    /**
+     * Pushes a constant. Operand: constant index.
+     */
+    public static final int LoadConstant = 0;
+
+    /**
+     * Pushes a function argument. Operand: argument index.
+     */
+    public static final int LoadArgument = 1;
+
+    /**
+     * Pushes the value of a variable in the symbol table. Operands: name
+     * index and source position.
+     */
+    public static final int LoadVariable = 2;
+
+    /**
+     * Negates the value on top of the stack.
+     */
+    public static final int Negate = 3;
+
+    /**
+     * Logical negation of the value on top of the stack.
+     */
+    public static final int Not = 4;
+
+    /**
+     * Adds the two values on top of the stack.
+     */
+    public static final int Add = 5;
+
+    /**
+     * Subtracts the two values on top of the stack.
+     */
+    public static final int Subtract = 6;
+
+    /**
+     * Multiplies the two values on top of the stack.
+     */
+    public static final int Multiply = 7;
+
+    /**
+     * Divides the two values on top of the stack.
+     */
+    public static final int Divide = 8;
+
+    /**
+     * Remainder of the two values on top of the stack.
+     */
+    public static final int Modulo = 9;
+
+    /**
+     * Raises the value below the top of the stack to the value on top.
+     */
+    public static final int Power = 10;
+
+    /**
+     * Compares the two values on top of the stack with "&lt;=".
+     */
+    public static final int LessEqual = 11;
+
+    /**
+     * Compares the two values on top of the stack with "&lt;".
+     */
+    public static final int Less = 12;
+
+    /**
+     * Compares the two values on top of the stack with "&gt;=".
+     */
+    public static final int GreaterEqual = 13;
+
+    /**
+     * Compares the two values on top of the stack with "&gt;".
+     */
+    public static final int Greater = 14;
+
+    /**
+     * Compares the two values on top of the stack with "==".
+     */
+    public static final int Equal = 15;
+
+    /**
+     * Compares the two values on top of the stack with "!=".
+     */
+    public static final int NotEqual = 16;
+
+    /**
+     * Converts the value on top of the stack to a boolean number.
+     */
+    public static final int Truth = 17;
+
+    /**
+     * Jumps unconditionally. Operand: target address.
+     */
+    public static final int Jump = 18;
+
+    /**
+     * Pops the value on top of the stack and jumps if it is false. Operand:
+     * target address.
+     */
+    public static final int JumpIfFalse = 19;
+
+    /**
+     * Pops the value on top of the stack and jumps if it is true. Operand:
+     * target address.
+     */
+    public static final int JumpIfTrue = 20;
+
+    /**
+     * Looks up a user function before its arguments are evaluated. Operands:
+     * name index, argument count and source position.
+     */
+    public static final int ResolveFunction = 21;
+
+    /**
+     * Calls the last resolved user function. Operands: argument count and
+     * source position.
+     */
+    public static final int CallUser = 22;
+
+    /**
+     * Calls the last resolved user function as the result of the code. A call
+     * to the function that owns the code restarts it with the new arguments.
+     * Operands: argument count and source position.
+     */
+    public static final int TailCallUser = 23;
+
+    /**
+     * Calls a native function. Operands: native function index, argument count
+     * and source position.
+     */
+    public static final int CallNative = 24;
+
+    /**
+     * Returns the value on top of the stack.
+     */
+    public static final int Return = 25;
+
+    /**
+     * Pops the value on top of the stack into a temporary, stored after the
+     * function arguments. Operand: argument index of the temporary.
+     */
+    public static final int StoreArgument = 26;
+
+    private final int[] code;
+    private final double[] constants;
+    private final String[] names;
+    private final NativeFunction[] nativeFunctions;
+    private final FunctionLiteralSymbol[] nativeDefinitions;
+    private final InlineCache[] inlineCaches;
+
+    private final int temporaryCount;
+    private final int maximumStackSize;
+    private final int maximumCallDepth;
+
+    /**
+     * Initializes the bytecode.
+     * @param code The instructions
+     * @param constants The constant pool
+     * @param names The identifier names
+     * @param nativeFunctions The native functions
+     * @param nativeDefinitions The definitions of the native functions
+     * @param temporaryCount The number of temporaries stored after the
+     * function arguments
+     * @param maximumStackSize The operand stack size required by the code
+     * @param maximumCallDepth The number of user functions resolved at once
+     */
+    public Bytecode(int[] code, double[] constants, String[] names,
+            NativeFunction[] nativeFunctions, FunctionLiteralSymbol[] nativeDefinitions,
+            int temporaryCount, int maximumStackSize, int maximumCallDepth) {
+        this.code = code;
+        this.constants = constants;
+        this.names = names;
+        this.nativeFunctions = nativeFunctions;
+        this.nativeDefinitions = nativeDefinitions;
+
+        inlineCaches = new InlineCache[code.length];
+
+        this.temporaryCount = temporaryCount;
+        this.maximumStackSize = maximumStackSize;
+        this.maximumCallDepth = maximumCallDepth;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public double[] getConstants() {
+        return constants;
+    }
+
+    public String[] getNames() {
+        return names;
+    }
+
+    public NativeFunction[] getNativeFunctions() {
+        return nativeFunctions;
+    }
+
+    /**
+     * Returns whether the code calls the native function of a symbol
+     * definition. Native functions are bound when the code is compiled, so
+     * the code is only valid while they are defined.
+     * @param identifierSymbol The symbol definition
+     * @return True if the symbol definition is a dependency.
+     */
+    public boolean dependsOn(IdentifierLiteralSymbol identifierSymbol) {
+        for (FunctionLiteralSymbol nativeDefinition : nativeDefinitions)
+            if (nativeDefinition == identifierSymbol)
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Returns the definitions of the native functions called by the code.
+     * @return A new array with the dependencies.
+     * @see #dependsOn(IdentifierLiteralSymbol)
+     */
+    public IdentifierLiteralSymbol[] getDependencies() {
+        return nativeDefinitions.clone();
+    }
+
+    /**
+     * Returns the inline caches of the code, indexed by the address of the
+     * operands of each instruction that loads a variable or resolves a
+     * function.
+     * @return The inline caches.
+     * @see InlineCache
+     */
+    public InlineCache[] getInlineCaches() {
+        return inlineCaches;
+    }
+
+    public int getTemporaryCount() {
+        return temporaryCount;
+    }
+
+    public int getMaximumStackSize() {
+        return maximumStackSize;
+    }
+
+    public int getMaximumCallDepth() {
+        return maximumCallDepth;
+    }
+}
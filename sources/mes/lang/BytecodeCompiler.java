@@ -0,0 +1,363 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import mes.lang.Closure.ClosureType;
+import mes.lang.Symbol.SymbolType;
+
+/**
+ * Compiler from syntax trees to {@link Bytecode}. The code evaluates the
+ * operands in the same order as the tree traversal, so errors and results are
+ * the same of {@link Interpreter} tree evaluation. The <i>and</i>, <i>or</i>
+ * and conditional operators are compiled to jumps, so only the operands that
+ * decide the result are evaluated.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see Bytecode
+ * @see VirtualMachine
+ */
+public class BytecodeCompiler {
+    private final FlatSyntaxTree flatSyntaxTree;
+    private final SymbolTable globalSymbolTable;
+
+    private int[] code;
+    private int codeSize;
+    private final int[] jumpAddresses;
+
+    private double[] constants;
+    private final HashMap<Long, Integer> constantIndices;
+
+    private final ArrayList<String> names;
+    private final HashMap<String, Integer> nameIndices;
+    private final ArrayList<NativeFunction> nativeFunctions;
+    private final ArrayList<FunctionLiteralSymbol> nativeDefinitions;
+
+    private int stackSize;
+    private int maximumStackSize;
+    private int callDepth;
+    private int maximumCallDepth;
+
+    private BytecodeCompiler(FlatSyntaxTree flatSyntaxTree, SymbolTable globalSymbolTable) {
+        this.flatSyntaxTree = flatSyntaxTree;
+        this.globalSymbolTable = globalSymbolTable;
+
+        code = new int[Math.max(16, flatSyntaxTree.getNodeCount() * 2)];
+        codeSize = 0;
+        jumpAddresses = new int[flatSyntaxTree.getNodeCount()];
+
+        constants = new double[8];
+        constantIndices = new HashMap<>();
+
+        names = new ArrayList<>();
+        nameIndices = new HashMap<>();
+        nativeFunctions = new ArrayList<>();
+        nativeDefinitions = new ArrayList<>();
+    }
+
+    /**
+     * Compiles an expression or function body. Native functions found in the
+     * symbol table are bound at compile time, because they can not be
+     * redefined.
+     * @param root The root node
+     * @param arguments The function arguments or an empty list for a statement
+     * @param globalSymbolTable The symbol table with native functions
+     * @return The bytecode or null if the expression has an assignment.
+     */
+    public static Bytecode compile(AbstractSyntaxNode root, FunctionArgumentList arguments,
+            SymbolTable globalSymbolTable) {
+        if (root == null)
+            return null;
+
+        return compile(new FlatSyntaxTree(root, arguments), globalSymbolTable);
+    }
+
+    /**
+     * Compiles a flat syntax tree.
+     * @param flatSyntaxTree The flat syntax tree
+     * @param globalSymbolTable The symbol table with native functions
+     * @return The bytecode or null if the expression has an assignment.
+     * @see #compile(AbstractSyntaxNode, FunctionArgumentList, SymbolTable)
+     */
+    public static Bytecode compile(FlatSyntaxTree flatSyntaxTree,
+            SymbolTable globalSymbolTable) {
+        BytecodeCompiler compiler = new BytecodeCompiler(flatSyntaxTree, globalSymbolTable);
+        return compiler.compile();
+    }
+
+    private Bytecode compile() {
+        int nodeCount = flatSyntaxTree.getNodeCount();
+
+        for (int i = 0; i < nodeCount; i++)
+            if (flatSyntaxTree.getType(i) == SymbolType.Assignment)
+                return null;
+
+        int[] methodIndices = new int[nodeCount];
+
+        int[] nodes = new int[16];
+        int[] childIndices = new int[16];
+        int depth = 0;
+
+        nodes[depth++] = flatSyntaxTree.getRoot();
+
+        while (depth != 0) {
+            int node = nodes[depth - 1];
+            int childIndex = childIndices[depth - 1];
+
+            if (childIndex == 0)
+                methodIndices[node] = enter(node);
+            else if (childIndex < flatSyntaxTree.getChildCount(node))
+                branch(node, childIndex - 1);
+
+            if (childIndex < flatSyntaxTree.getChildCount(node)) {
+                childIndices[depth - 1]++;
+
+                if (depth == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, depth << 1);
+                    childIndices = Arrays.copyOf(childIndices, depth << 1);
+                }
+
+                nodes[depth] = flatSyntaxTree.getChild(node, childIndex);
+                childIndices[depth] = 0;
+                depth++;
+            } else {
+                depth--;
+                exit(node, methodIndices[node]);
+            }
+        }
+
+        emit(Bytecode.Return);
+
+        return new Bytecode(Arrays.copyOf(code, codeSize),
+                Arrays.copyOf(constants, constantIndices.size()),
+                names.toArray(new String[names.size()]),
+                nativeFunctions.toArray(new NativeFunction[nativeFunctions.size()]),
+                nativeDefinitions.toArray(
+                        new FunctionLiteralSymbol[nativeDefinitions.size()]),
+                flatSyntaxTree.getTemporaryCount(), maximumStackSize, maximumCallDepth);
+    }
+
+    private int enter(int node) {
+        if (flatSyntaxTree.getType(node) != SymbolType.Function)
+            return -1;
+
+        String name = flatSyntaxTree.getName(node);
+        int argumentCount = flatSyntaxTree.getChildCount(node);
+
+        FunctionLiteralSymbol functionDefinition = FunctionLiteralSymbol.findDefinition(
+                globalSymbolTable, name, argumentCount);
+
+        if (functionDefinition != null
+                && functionDefinition.getClosure().getType() == ClosureType.Method) {
+            nativeFunctions.add(functionDefinition.getNativeFunction());
+            nativeDefinitions.add(functionDefinition);
+            return nativeFunctions.size() - 1;
+        }
+
+        emit(Bytecode.ResolveFunction, getNameIndex(name), argumentCount,
+                flatSyntaxTree.getPosition(node));
+
+        maximumCallDepth = Math.max(maximumCallDepth, ++callDepth);
+        return -1;
+    }
+
+    private void branch(int node, int operandIndex) {
+        switch (flatSyntaxTree.getType(node)) {
+            case And:
+                emit(Bytecode.JumpIfFalse, 0);
+                jumpAddresses[node] = codeSize - 1;
+                push(-1);
+                break;
+            case Or:
+                emit(Bytecode.JumpIfTrue, 0);
+                jumpAddresses[node] = codeSize - 1;
+                push(-1);
+                break;
+            case Conditional:
+                if (operandIndex == 0)
+                    emit(Bytecode.JumpIfFalse, 0);
+                else {
+                    emit(Bytecode.Jump, 0);
+                    code[jumpAddresses[node]] = codeSize;
+                }
+
+                jumpAddresses[node] = codeSize - 1;
+                push(-1);
+                break;
+            case Binding:
+                if (operandIndex == 0) {
+                    emit(Bytecode.StoreArgument, flatSyntaxTree.getArgumentIndex(node));
+                    push(-1);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void exit(int node, int methodIndex) {
+        switch (flatSyntaxTree.getType(node)) {
+            case Number:
+                emit(Bytecode.LoadConstant, getConstantIndex(
+                        flatSyntaxTree.getNumberValue(node)));
+                push(1);
+                break;
+            case Variable:
+                if (flatSyntaxTree.isArgument(node))
+                    emit(Bytecode.LoadArgument, flatSyntaxTree.getArgumentIndex(node));
+                else
+                    emit(Bytecode.LoadVariable, getNameIndex(flatSyntaxTree.getName(node)),
+                            flatSyntaxTree.getPosition(node));
+
+                push(1);
+                break;
+            case Function: {
+                int argumentCount = flatSyntaxTree.getChildCount(node);
+
+                if (methodIndex != -1)
+                    emit(Bytecode.CallNative, methodIndex, argumentCount,
+                            flatSyntaxTree.getPosition(node));
+                else {
+                    emit(flatSyntaxTree.isTailCall(node) ? Bytecode.TailCallUser
+                            : Bytecode.CallUser, argumentCount, flatSyntaxTree.getPosition(node));
+                    callDepth--;
+                }
+
+                push(1 - argumentCount);
+                break;
+            }
+            case Positive:
+                break;
+            case Negative:
+                emit(Bytecode.Negate);
+                break;
+            case Not:
+                emit(Bytecode.Not);
+                break;
+            case And:
+            case Or: {
+                emit(Bytecode.Truth);
+                emit(Bytecode.Jump, 0);
+
+                int endAddress = codeSize - 1;
+                code[jumpAddresses[node]] = codeSize;
+
+                double shortCircuitValue = MathUtils.number(
+                        flatSyntaxTree.getType(node) == SymbolType.Or);
+
+                emit(Bytecode.LoadConstant, getConstantIndex(shortCircuitValue));
+                code[endAddress] = codeSize;
+                break;
+            }
+            case Conditional:
+                code[jumpAddresses[node]] = codeSize;
+                break;
+            case Binding:
+                break;
+            default:
+                emit(getBinaryOpcode(flatSyntaxTree.getType(node)));
+                push(-1);
+        }
+    }
+
+    private int getBinaryOpcode(SymbolType type) {
+        switch (type) {
+            case Addition:
+                return Bytecode.Add;
+            case Subtraction:
+                return Bytecode.Subtract;
+            case Multiplication:
+                return Bytecode.Multiply;
+            case Division:
+                return Bytecode.Divide;
+            case Modulo:
+                return Bytecode.Modulo;
+            case Exponentiation:
+                return Bytecode.Power;
+            case LessEqual:
+                return Bytecode.LessEqual;
+            case Less:
+                return Bytecode.Less;
+            case GreaterEqual:
+                return Bytecode.GreaterEqual;
+            case Greater:
+                return Bytecode.Greater;
+            case Equal:
+                return Bytecode.Equal;
+            default:
+                return Bytecode.NotEqual;
+        }
+    }
+
+    private int getConstantIndex(double value) {
+        Long bits = Double.doubleToRawLongBits(value);
+        Integer constantIndex = constantIndices.get(bits);
+
+        if (constantIndex == null) {
+            constantIndex = constantIndices.size();
+
+            if (constantIndex == constants.length)
+                constants = Arrays.copyOf(constants, constantIndex << 1);
+
+            constants[constantIndex] = value;
+            constantIndices.put(bits, constantIndex);
+        }
+
+        return constantIndex;
+    }
+
+    private int getNameIndex(String name) {
+        Integer nameIndex = nameIndices.get(name);
+
+        if (nameIndex == null) {
+            nameIndex = names.size();
+
+            names.add(name);
+            nameIndices.put(name, nameIndex);
+        }
+
+        return nameIndex;
+    }
+
+    private void push(int count) {
+        stackSize += count;
+        maximumStackSize = Math.max(maximumStackSize, stackSize);
+    }
+
+    private void emit(int... instruction) {
+        if (codeSize + instruction.length > code.length)
+            code = Arrays.copyOf(code, Math.max(code.length << 1,
+                    codeSize + instruction.length));
+
+        System.arraycopy(instruction, 0, code, codeSize, instruction.length);
+        codeSize += instruction.length;
+    }
+}
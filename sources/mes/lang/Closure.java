@@ -39,9 +39,13 @@ import java.lang.reflect.Method;
  * @author Danilo Ferreira
  * @version 1.0.0
  * @see AbstractSyntaxTree
+ * @see FlatSyntaxTree
  * @see Method
+ * @see NativeFunction
  */
 public class Closure implements Serializable {
+    private static final long serialVersionUID = -651580336225770490L;
+
     /**
      * Supported closure types.
      */
@@ -50,6 +54,10 @@ public class Closure implements Serializable {
          * Abstract syntax tree closure.
          */
         AbstractSyntaxTree,
+        /**
+         * Flat syntax tree closure.
+         */
+        FlatSyntaxTree,
         /**
          * Method closure.
          */
@@ -60,7 +68,7 @@ public class Closure implements Serializable {
         Empty
     }
 
-    private Object closureObject;
+    private volatile Object closureObject;
 
     /**
      * Initializes an empty closure.
@@ -78,6 +86,15 @@ public class Closure implements Serializable {
         closureObject = abstractSyntaxTree;
     }
 
+    /**
+     * Initializes the closure instance as flat syntax tree. If the flat syntax
+     * tree is null an empty closure is created.
+     * @param flatSyntaxTree The flat syntax tree to use as closure
+     */
+    public Closure(FlatSyntaxTree flatSyntaxTree) {
+        closureObject = flatSyntaxTree;
+    }
+
     /**
      * Initializes the closure instance as method. If the method is null an
      * empty closure is created.
@@ -87,6 +104,17 @@ public class Closure implements Serializable {
         closureObject = method;
     }
 
+    /**
+     * Initializes the closure instance as native function. The closure is a
+     * method closure whose method is looked up only when needed. If the
+     * native function is null an empty closure is created.
+     * @param nativeFunction The native function to use as closure
+     * @see SymbolRegistry
+     */
+    public Closure(NativeFunction nativeFunction) {
+        closureObject = nativeFunction;
+    }
+
     /**
      * Sets the closure instance as empty.
      */
@@ -103,6 +131,15 @@ public class Closure implements Serializable {
         closureObject = abstractSyntaxTree;
     }
 
+    /**
+     * Sets the closure instance as flat syntax tree. If the flat syntax tree is
+     * null an empty closure is defined.
+     * @param flatSyntaxTree The flat syntax tree to use as closure
+     */
+    public void setFlatSyntaxTree(FlatSyntaxTree flatSyntaxTree) {
+        closureObject = flatSyntaxTree;
+    }
+
     /**
      * Sets the closure instance as method. If the method is null an empty
      * closure is defined.
@@ -123,6 +160,17 @@ public class Closure implements Serializable {
         return (AbstractSyntaxTree)closureObject;
     }
 
+    /**
+     * Returns a flat syntax tree closure. The type of closure must be known to
+     * avoid type cast exception.
+     * @return A flat syntax tree closure.
+     * @see #setFlatSyntaxTree(FlatSyntaxTree)
+     * @see #getType()
+     */
+    public FlatSyntaxTree getFlatSyntaxTree() {
+        return (FlatSyntaxTree)closureObject;
+    }
+
     /**
      * Returns a method closure. The type of closure must be known to avoid type
      * cast exception.
@@ -131,7 +179,26 @@ public class Closure implements Serializable {
      * @see #getType()
      */
     public Method getMethod() {
-        return (Method)closureObject;
+        Object currentObject = closureObject;
+
+        if (currentObject instanceof NativeFunction)
+            return ((NativeFunction)currentObject).getMethod();
+
+        return (Method)currentObject;
+    }
+
+    /**
+     * Returns the native function of a method closure created from a native
+     * function.
+     * @return The native function or null if the closure was not created
+     * from a native function.
+     * @see #Closure(NativeFunction)
+     */
+    public NativeFunction getNativeFunction() {
+        Object currentObject = closureObject;
+
+        return currentObject instanceof NativeFunction
+                ? (NativeFunction)currentObject : null;
     }
 
     /**
@@ -142,7 +209,10 @@ public class Closure implements Serializable {
     public ClosureType getType() {
         if (closureObject instanceof AbstractSyntaxTree)
             return ClosureType.AbstractSyntaxTree;
-        else if (closureObject instanceof Method)
+        else if (closureObject instanceof FlatSyntaxTree)
+            return ClosureType.FlatSyntaxTree;
+        else if (closureObject instanceof Method
+                || closureObject instanceof NativeFunction)
             return ClosureType.Method;
 
         return ClosureType.Empty;
@@ -154,7 +224,7 @@ public class Closure implements Serializable {
     }
 
     private void writeObject(ObjectOutputStream outputStream) throws IOException {
-        if (closureObject instanceof Method)
+        if (closureObject instanceof Method || closureObject instanceof NativeFunction)
             outputStream.writeObject(null);
         else
             outputStream.writeObject(closureObject);
@@ -0,0 +1,1058 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import mes.lang.Closure.ClosureType;
+import mes.lang.Symbol.SymbolType;
+
+/**
+ * Optimization pass over the abstract syntax tree of a function closure, run
+ * once when the function is defined. Constant subtrees are folded, including
+ * calls to pure native functions and default constants, small powers are
+ * reduced to cheaper operations and identities are removed. Every rewrite
+ * gives the same result as the original tree for all argument values, with
+ * one documented exception for <code>x ^ 0.5</code>. The input tree is shared
+ * with the {@link ParseCache}, so nodes are never modified: rewritten nodes
+ * are copies and unchanged subtrees are reused.
+ * <p>
+ * The rewrites are:
+ * <ul>
+ * <li>operators and pure native functions with constant operands are
+ * evaluated;</li>
+ * <li>conditionals with a constant condition are replaced by the selected
+ * operand, <code>0 &amp;&amp; x</code> by <code>0</code> and
+ * <code>1 || x</code> by <code>1</code>;</li>
+ * <li><code>x ^ 1</code> becomes <code>x</code> and, for a variable
+ * <code>x</code>, <code>x ^ 0</code> becomes <code>1</code> and
+ * <code>x ^ 2</code> becomes <code>x * x</code>. Higher
+ * powers are kept, because repeated multiplication rounds differently from
+ * {@link Math#pow(double, double)};</li>
+ * <li><code>x ^ 0.5</code> becomes <code>sqrt(x)</code>, which differs from
+ * {@link Math#pow(double, double)} only for <code>-0</code>, giving
+ * <code>-0</code>, and <code>-Infinity</code>, giving <code>NaN</code>;</li>
+ * <li><code>+x</code>, <code>--x</code>, <code>x * 1</code>,
+ * <code>1 * x</code>, <code>x / 1</code>, <code>x - 0</code> and
+ * <code>x + -0</code> become <code>x</code>. <code>x + 0</code> is kept,
+ * because it turns <code>-0</code> into <code>0</code>.</li>
+ * </ul>
+ * <p>
+ * Calls to small user functions are inlined. The arguments that can not
+ * fail and have no side effect are substituted into the body of the callee,
+ * the others are evaluated first into temporaries by binding nodes, so
+ * arguments are still evaluated once and in order. Recursive functions,
+ * functions that call the function being defined and functions whose body
+ * uses a global variable hidden by an argument of the caller are not
+ * inlined. Finally, repeated subexpressions that can not fail and have no
+ * side effect are computed once into temporaries, bound at the innermost
+ * conditional branch that contains all their uses.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see FunctionLiteralSymbol#evaluate(SymbolTable)
+ * @see TieredExecution#setOptimizationEnabled(boolean)
+ */
+public class ClosureOptimizer extends PostOrderTraversalFunction {
+    private class InlineExpansion extends PostOrderTraversalFunction {
+        private HashMap<String, Symbol> substitutions;
+
+        public InlineExpansion(HashMap<String, Symbol> substitutions) {
+            super();
+            this.substitutions = substitutions;
+        }
+
+        @Override
+        protected int getOperandCount(AbstractSyntaxNode node) {
+            return ClosureOptimizer.this.getOperandCount(node);
+        }
+
+        @Override
+        protected AbstractSyntaxNode getOperand(AbstractSyntaxNode node, int index) {
+            return ClosureOptimizer.this.getOperand(node, index);
+        }
+
+        @Override
+        protected AbstractSyntaxNode[] createOperands(int operandCount) {
+            return new Symbol[operandCount];
+        }
+
+        @Override
+        protected AbstractSyntaxNode visit(AbstractSyntaxNode node,
+                AbstractSyntaxNode[] operands) {
+            return rewrite((Symbol)node, (Symbol[])operands, substitutions);
+        }
+    }
+
+    private class TreeFormatter extends PostOrderTraversalFunction {
+        private ArrayDeque<String> outputs;
+
+        public TreeFormatter() {
+            super();
+            outputs = new ArrayDeque<>();
+        }
+
+        @Override
+        protected int getOperandCount(AbstractSyntaxNode node) {
+            return ClosureOptimizer.this.getOperandCount(node);
+        }
+
+        @Override
+        protected AbstractSyntaxNode getOperand(AbstractSyntaxNode node, int index) {
+            return ClosureOptimizer.this.getOperand(node, index);
+        }
+
+        @Override
+        protected AbstractSyntaxNode visit(AbstractSyntaxNode node,
+                AbstractSyntaxNode[] operands) {
+            Symbol root = (Symbol)node;
+            String[] operandOutputs = new String[operands.length];
+
+            for (int i = operandOutputs.length - 1; i >= 0; i--)
+                operandOutputs[i] = outputs.pop();
+
+            outputs.push(format(root, operandOutputs));
+            return null;
+        }
+
+        public String getOutput() {
+            return outputs.isEmpty() ? "" : outputs.peek();
+        }
+    }
+
+    private static final int MaximumInlineNodeCount = 16;
+    private static final int MaximumInlinedNodeCount = 1024;
+
+    private static final int ExpensiveNodeCost = 8;
+    private static final int MinimumSubexpressionCost = 4;
+
+    private FunctionLiteralSymbol functionDefinition;
+    private HashSet<String> argumentNames;
+
+    private IdentityHashMap<Symbol, Boolean> safeSymbols;
+    private ArrayList<IdentifierLiteralSymbol> inlinedFunctions;
+    private int inlinedNodeCount;
+    private int temporaryCount;
+
+    /**
+     * Initializes the optimizer of a closure.
+     * @param functionDefinition The function definition that owns the
+     * closure
+     * @param localSymbolTable The symbol table used to resolve identifiers of
+     * the closure
+     */
+    public ClosureOptimizer(FunctionLiteralSymbol functionDefinition,
+            SymbolTable localSymbolTable) {
+        super(localSymbolTable);
+
+        this.functionDefinition = functionDefinition;
+
+        argumentNames = new HashSet<>();
+        safeSymbols = new IdentityHashMap<>();
+        inlinedFunctions = new ArrayList<>();
+
+        for (FunctionArgument argument : functionDefinition.getArguments()) {
+            IdentifierLiteralSymbol argumentSymbol
+                    = (IdentifierLiteralSymbol)argument.getRoot();
+
+            argumentNames.add(argumentSymbol.getName());
+        }
+    }
+
+    /**
+     * Returns the optimized closure.
+     * @param abstractSyntaxTree The closure
+     * @return The optimized closure or the closure itself if no rewrite
+     * applies.
+     */
+    public AbstractSyntaxTree optimize(AbstractSyntaxTree abstractSyntaxTree) {
+        AbstractSyntaxNode root = abstractSyntaxTree.getRoot();
+        AbstractSyntaxNode optimizedRoot = traverse(root);
+
+        if (optimizedRoot != null)
+            optimizedRoot = eliminateCommonSubexpressions(optimizedRoot);
+
+        return optimizedRoot != root
+                ? new AbstractSyntaxTree(optimizedRoot) : abstractSyntaxTree;
+    }
+
+    /**
+     * Returns the user functions inlined into the closure by the last
+     * optimization, including the functions inlined into them. Redefining
+     * any of them requires optimizing the closure again.
+     * @return The inlined functions.
+     * @see FunctionLiteralSymbol#reoptimize(SymbolTable)
+     */
+    public IdentifierLiteralSymbol[] getInlinedFunctions() {
+        return inlinedFunctions.toArray(new IdentifierLiteralSymbol[inlinedFunctions.size()]);
+    }
+
+    /**
+     * Formats a closure as source code with every operation enclosed in
+     * parentheses. Constants are written with all their digits.
+     * @param root The root node of the closure
+     * @return The source code.
+     */
+    public String format(AbstractSyntaxNode root) {
+        TreeFormatter treeFormatter = new TreeFormatter();
+        treeFormatter.traverse(root);
+
+        return treeFormatter.getOutput();
+    }
+
+    @Override
+    protected int getOperandCount(AbstractSyntaxNode node) {
+        Symbol root = (Symbol)node;
+
+        if (root.getType() == SymbolType.Function) {
+            FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)root;
+            return functionSymbol.getArguments().size();
+        } else if (root.isUnaryOperator())
+            return 1;
+        else if (root.isBinaryOperator())
+            return 2;
+        else if (root.isTernaryOperator())
+            return 3;
+
+        return 0;
+    }
+
+    @Override
+    protected AbstractSyntaxNode getOperand(AbstractSyntaxNode node, int index) {
+        Symbol root = (Symbol)node;
+
+        if (root.getType() == SymbolType.Function) {
+            FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)root;
+            return functionSymbol.getArguments().get(index).getRoot();
+        }
+
+        return root.getChild(index);
+    }
+
+    @Override
+    protected AbstractSyntaxNode[] createOperands(int operandCount) {
+        return new Symbol[operandCount];
+    }
+
+    @Override
+    protected AbstractSyntaxNode visit(AbstractSyntaxNode node,
+            AbstractSyntaxNode[] operands) {
+        return rewrite((Symbol)node, (Symbol[])operands, null);
+    }
+
+    private Symbol rewrite(Symbol root, Symbol[] symbols,
+            HashMap<String, Symbol> substitutions) {
+        Symbol output;
+
+        switch (root.getType()) {
+            case Number:
+                return root;
+            case Variable: {
+                VariableLiteralSymbol variableSymbol = (VariableLiteralSymbol)root;
+
+                if (substitutions != null
+                        && substitutions.containsKey(variableSymbol.getName()))
+                    return substitutions.get(variableSymbol.getName());
+
+                return foldVariable(variableSymbol);
+            }
+            case Function:
+                output = foldFunction((FunctionLiteralSymbol)root, symbols);
+
+                if (substitutions == null && output.getType() == SymbolType.Function) {
+                    Symbol inlinedOutput = inline((FunctionLiteralSymbol)output, symbols);
+
+                    if (inlinedOutput != null)
+                        output = inlinedOutput;
+                }
+                break;
+            default:
+                if (isConstant(symbols))
+                    return new NumberLiteralSymbol(evaluate((OperatorSymbol)root, symbols),
+                            root.getPosition());
+
+                output = simplify(root, symbols);
+
+                if (output == null)
+                    output = copy(root, symbols);
+        }
+
+        classify(output);
+        return output;
+    }
+
+    private Symbol foldVariable(VariableLiteralSymbol variableSymbol) {
+        if (argumentNames.contains(variableSymbol.getName()))
+            return variableSymbol;
+
+        SymbolTable localSymbolTable = (SymbolTable)arguments[0];
+        VariableLiteralSymbol variableDefinition = VariableLiteralSymbol.findDefinition(
+                localSymbolTable, variableSymbol.getName());
+
+        if (variableDefinition == null || !variableDefinition.isConstant())
+            return variableSymbol;
+
+        return new NumberLiteralSymbol(variableDefinition.getDoubleValue(),
+                variableSymbol.getPosition());
+    }
+
+    private Symbol foldFunction(FunctionLiteralSymbol functionSymbol, Symbol[] symbols) {
+        if (isConstant(symbols)) {
+            SymbolTable localSymbolTable = (SymbolTable)arguments[0];
+            FunctionLiteralSymbol functionDefinition = FunctionLiteralSymbol.findDefinition(
+                    localSymbolTable, functionSymbol.getName(), symbols.length);
+
+            if (functionDefinition != null && functionDefinition.isPureNative()) {
+                double[] argumentValues = new double[symbols.length];
+
+                for (int i = 0; i < argumentValues.length; i++)
+                    argumentValues[i] = getValue(symbols[i]);
+
+                try {
+                    return new NumberLiteralSymbol(functionDefinition.getNativeFunction()
+                            .invoke(argumentValues, functionSymbol.getPosition()),
+                            functionSymbol.getPosition());
+                } catch (ExceptionContent exception) {
+                    return copy(functionSymbol, symbols);
+                }
+            }
+        }
+
+        return copy(functionSymbol, symbols);
+    }
+
+    private Symbol inline(FunctionLiteralSymbol functionSymbol, Symbol[] symbols) {
+        SymbolTable localSymbolTable = (SymbolTable)arguments[0];
+        FunctionLiteralSymbol calleeDefinition = FunctionLiteralSymbol.findDefinition(
+                localSymbolTable, functionSymbol.getName(), symbols.length);
+
+        if (calleeDefinition == null || calleeDefinition.equals(functionDefinition)
+                || calleeDefinition.getClosure().getType() != ClosureType.AbstractSyntaxTree)
+            return null;
+
+        for (IdentifierLiteralSymbol inlinedFunction : calleeDefinition.getInlinedFunctions())
+            if (inlinedFunction.equals(functionDefinition))
+                return null;
+
+        FunctionArgumentList calleeArguments = calleeDefinition.getArguments();
+        AbstractSyntaxNode calleeBody
+                = calleeDefinition.getClosure().getAbstractSyntaxTree().getRoot();
+
+        FlatSyntaxTree calleeTree = new FlatSyntaxTree(calleeBody, calleeArguments);
+        int calleeNodeCount = calleeTree.getNodeCount();
+
+        if (calleeNodeCount > MaximumInlineNodeCount
+                || inlinedNodeCount + calleeNodeCount > MaximumInlinedNodeCount
+                || calleeTree.getTemporaryCount() != 0)
+            return null;
+
+        for (int i = 0; i < calleeNodeCount; i++)
+            if (calleeTree.getType(i) == SymbolType.Function) {
+                String name = calleeTree.getName(i);
+                int argumentCount = calleeTree.getChildCount(i);
+
+                if (isFunction(calleeDefinition, name, argumentCount)
+                        || isFunction(functionDefinition, name, argumentCount))
+                    return null;
+            } else if (calleeTree.getType(i) == SymbolType.Variable
+                    && !calleeTree.isArgument(i)
+                    && argumentNames.contains(calleeTree.getName(i)))
+                return null;
+
+        HashMap<String, Symbol> substitutions = new HashMap<>();
+        ArrayList<String> temporaryNames = new ArrayList<>();
+        ArrayList<Symbol> temporaryValues = new ArrayList<>();
+
+        for (int i = 0; i < symbols.length; i++) {
+            IdentifierLiteralSymbol argumentSymbol
+                    = (IdentifierLiteralSymbol)calleeArguments.get(i).getRoot();
+
+            if (isSafe(symbols[i]))
+                substitutions.put(argumentSymbol.getName(), symbols[i]);
+            else {
+                String temporaryName = "$" + temporaryCount++;
+
+                substitutions.put(argumentSymbol.getName(), new VariableLiteralSymbol(
+                        temporaryName, symbols[i].getPosition()));
+
+                temporaryNames.add(temporaryName);
+                temporaryValues.add(symbols[i]);
+            }
+        }
+
+        Symbol output = (Symbol)new InlineExpansion(substitutions).traverse(calleeBody);
+
+        for (int i = temporaryNames.size() - 1; i >= 0; i--) {
+            Symbol bindingSymbol = new BindingOperatorSymbol(temporaryNames.get(i),
+                    functionSymbol.getPosition());
+
+            bindingSymbol.setFirst(temporaryValues.get(i));
+            bindingSymbol.setSecond(output);
+
+            classify(bindingSymbol);
+            output = bindingSymbol;
+        }
+
+        inlinedNodeCount += calleeNodeCount;
+
+        addInlinedFunction(calleeDefinition);
+
+        for (IdentifierLiteralSymbol inlinedFunction : calleeDefinition.getInlinedFunctions())
+            addInlinedFunction(inlinedFunction);
+
+        return output;
+    }
+
+    private void addInlinedFunction(IdentifierLiteralSymbol functionSymbol) {
+        for (IdentifierLiteralSymbol inlinedFunction : inlinedFunctions)
+            if (inlinedFunction == functionSymbol)
+                return;
+
+        inlinedFunctions.add(functionSymbol);
+    }
+
+    private AbstractSyntaxNode eliminateCommonSubexpressions(AbstractSyntaxNode root) {
+        FlatSyntaxTree flatSyntaxTree = new FlatSyntaxTree(root,
+                functionDefinition.getArguments());
+        int nodeCount = flatSyntaxTree.getNodeCount();
+
+        int[] values = new int[nodeCount];
+        int[] sizes = new int[nodeCount];
+        int[] costs = new int[nodeCount];
+        boolean[] safe = new boolean[nodeCount];
+
+        HashMap<String, Integer> valueNumbers = new HashMap<>();
+        int[] representatives = new int[nodeCount];
+
+        for (int i = 0; i < nodeCount; i++) {
+            SymbolType type = flatSyntaxTree.getType(i);
+            StringBuilder key = new StringBuilder();
+
+            key.append(type.ordinal());
+            key.append(':');
+
+            switch (type) {
+                case Number:
+                    key.append(Double.doubleToRawLongBits(flatSyntaxTree.getNumberValue(i)));
+                    break;
+                case Variable:
+                    if (flatSyntaxTree.isArgument(i))
+                        key.append('$').append(flatSyntaxTree.getArgumentIndex(i));
+                    else
+                        key.append(flatSyntaxTree.getName(i));
+                    break;
+                case Function:
+                    key.append(flatSyntaxTree.getName(i));
+                    break;
+                case Binding:
+                    key.append(i);
+                    break;
+                default:
+                    break;
+            }
+
+            safe[i] = type != SymbolType.Binding && (type != SymbolType.Function
+                    || isPureNativeFunction(flatSyntaxTree.getName(i),
+                            flatSyntaxTree.getChildCount(i)));
+            sizes[i] = 1;
+            costs[i] = type == SymbolType.Function || type == SymbolType.Exponentiation
+                    ? ExpensiveNodeCost : 1;
+
+            for (int j = 0; j < flatSyntaxTree.getChildCount(i); j++) {
+                int child = flatSyntaxTree.getChild(i, j);
+
+                key.append(',').append(values[child]);
+
+                safe[i] &= safe[child];
+                sizes[i] += sizes[child];
+                costs[i] += costs[child];
+            }
+
+            Integer value = valueNumbers.get(key.toString());
+
+            if (value == null) {
+                value = valueNumbers.size();
+                valueNumbers.put(key.toString(), value);
+                representatives[value] = i;
+            }
+
+            values[i] = value;
+        }
+
+        int valueCount = valueNumbers.size();
+        int[] referenceCounts = new int[valueCount];
+
+        for (int value = 0; value < valueCount; value++) {
+            int node = representatives[value];
+
+            for (int j = 0; j < flatSyntaxTree.getChildCount(node); j++)
+                referenceCounts[values[flatSyntaxTree.getChild(node, j)]]++;
+        }
+
+        boolean[] candidates = new boolean[valueCount];
+        ArrayList<Integer> candidateValues = new ArrayList<>();
+
+        for (int value = 0; value < valueCount; value++) {
+            int node = representatives[value];
+
+            candidates[value] = safe[node] && referenceCounts[value] >= 2
+                    && costs[node] >= MinimumSubexpressionCost
+                    && flatSyntaxTree.getChildCount(node) != 0;
+
+            if (candidates[value])
+                candidateValues.add(value);
+        }
+
+        if (candidateValues.isEmpty())
+            return root;
+
+        int[] regions = new int[nodeCount];
+        int[] regionParents = new int[nodeCount];
+        int[] regionDepths = new int[nodeCount];
+        int[] rootRegions = new int[nodeCount];
+        int regionCount = 1;
+
+        int[] enclosingCandidates = new int[nodeCount];
+
+        Arrays.fill(rootRegions, -1);
+
+        regions[nodeCount - 1] = 0;
+        regionParents[0] = -1;
+        rootRegions[nodeCount - 1] = 0;
+        enclosingCandidates[nodeCount - 1] = -1;
+
+        for (int i = nodeCount - 1; i >= 0; i--) {
+            int enclosingCandidate = candidates[values[i]] ? i : enclosingCandidates[i];
+
+            for (int j = 0; j < flatSyntaxTree.getChildCount(i); j++) {
+                int child = flatSyntaxTree.getChild(i, j);
+
+                if (isRegionOperand(flatSyntaxTree.getType(i), j)) {
+                    regionParents[regionCount] = regions[i];
+                    regionDepths[regionCount] = regionDepths[regions[i]] + 1;
+                    rootRegions[child] = regionCount;
+                    regions[child] = regionCount++;
+                } else
+                    regions[child] = regions[i];
+
+                enclosingCandidates[child] = enclosingCandidate;
+            }
+        }
+
+        candidateValues.sort((first, second)
+                -> sizes[representatives[second]] - sizes[representatives[first]]);
+
+        int[] bindingRegions = new int[valueCount];
+
+        for (int value : candidateValues) {
+            int region = -1;
+
+            for (int i = representatives[value]; i < nodeCount; i++) {
+                if (values[i] != value)
+                    continue;
+
+                int enclosingCandidate = enclosingCandidates[i];
+                int useRegion;
+
+                if (enclosingCandidate == -1)
+                    useRegion = regions[i];
+                else if (representatives[values[enclosingCandidate]] == enclosingCandidate)
+                    useRegion = bindingRegions[values[enclosingCandidate]];
+                else
+                    continue;
+
+                region = region == -1 ? useRegion : findCommonRegion(region, useRegion,
+                        regionParents, regionDepths);
+            }
+
+            bindingRegions[value] = region;
+        }
+
+        HashMap<Integer, ArrayList<Integer>> regionBindings = new HashMap<>();
+        String[] temporaryNames = new String[valueCount];
+        int temporaryIndex = flatSyntaxTree.getTemporaryCount();
+
+        for (int k = candidateValues.size() - 1; k >= 0; k--) {
+            int value = candidateValues.get(k);
+
+            temporaryNames[value] = "$" + temporaryIndex++;
+            regionBindings.computeIfAbsent(bindingRegions[value], region -> new ArrayList<>())
+                    .add(value);
+        }
+
+        Symbol[] temporaryValues = new Symbol[valueCount];
+        Symbol[] outputs = new Symbol[nodeCount];
+        int outputCount = 0;
+
+        for (int i = 0; i < nodeCount; i++) {
+            Symbol[] operands = new Symbol[flatSyntaxTree.getChildCount(i)];
+
+            outputCount -= operands.length;
+            System.arraycopy(outputs, outputCount, operands, 0, operands.length);
+            Arrays.fill(outputs, outputCount, outputCount + operands.length, null);
+
+            Symbol output = createSymbol(flatSyntaxTree, i, operands);
+
+            if (candidates[values[i]]) {
+                if (representatives[values[i]] == i)
+                    temporaryValues[values[i]] = output;
+
+                output = new VariableLiteralSymbol(temporaryNames[values[i]],
+                        flatSyntaxTree.getPosition(i));
+            }
+
+            ArrayList<Integer> bindings = rootRegions[i] != -1
+                    ? regionBindings.get(rootRegions[i]) : null;
+
+            if (bindings != null)
+                for (int k = bindings.size() - 1; k >= 0; k--) {
+                    int value = bindings.get(k);
+                    Symbol bindingSymbol = new BindingOperatorSymbol(temporaryNames[value],
+                            flatSyntaxTree.getPosition(i));
+
+                    bindingSymbol.setFirst(temporaryValues[value]);
+                    bindingSymbol.setSecond(output);
+
+                    output = bindingSymbol;
+                }
+
+            outputs[outputCount++] = output;
+        }
+
+        return outputs[0];
+    }
+
+    private Symbol createSymbol(FlatSyntaxTree flatSyntaxTree, int node, Symbol[] operands) {
+        int position = flatSyntaxTree.getPosition(node);
+
+        switch (flatSyntaxTree.getType(node)) {
+            case Number:
+                return new NumberLiteralSymbol(flatSyntaxTree.getNumberValue(node), position);
+            case Variable:
+                if (flatSyntaxTree.isArgument(node))
+                    return new VariableLiteralSymbol(getArgumentName(flatSyntaxTree,
+                            flatSyntaxTree.getArgumentIndex(node)), position);
+
+                return new VariableLiteralSymbol(flatSyntaxTree.getName(node), position);
+            case Function: {
+                FunctionArgumentList functionArguments = new FunctionArgumentList();
+
+                for (Symbol operand : operands)
+                    functionArguments.add(new FunctionArgument(operand));
+
+                return new FunctionLiteralSymbol(flatSyntaxTree.getName(node),
+                        functionArguments, position);
+            }
+            case Binding: {
+                Symbol bindingSymbol = new BindingOperatorSymbol(getArgumentName(
+                        flatSyntaxTree, flatSyntaxTree.getArgumentIndex(node)), position);
+
+                bindingSymbol.setFirst(operands[0]);
+                bindingSymbol.setSecond(operands[1]);
+
+                return bindingSymbol;
+            }
+            default: {
+                Symbol operatorSymbol = createOperator(flatSyntaxTree.getType(node), position);
+
+                for (int i = 0; i < operands.length; i++)
+                    operatorSymbol.setChild(i, operands[i]);
+
+                return operatorSymbol;
+            }
+        }
+    }
+
+    private String getArgumentName(FlatSyntaxTree flatSyntaxTree, int argumentIndex) {
+        int argumentCount = flatSyntaxTree.getArgumentCount();
+
+        if (argumentIndex >= argumentCount)
+            return "$" + (argumentIndex - argumentCount);
+
+        FunctionArgumentList functionArguments = functionDefinition.getArguments();
+        IdentifierLiteralSymbol argumentSymbol
+                = (IdentifierLiteralSymbol)functionArguments.get(argumentIndex).getRoot();
+
+        return argumentSymbol.getName();
+    }
+
+    private void classify(Symbol symbol) {
+        if (isLeaf(symbol) || safeSymbols.containsKey(symbol))
+            return;
+
+        boolean safe;
+
+        if (symbol.getType() == SymbolType.Binding)
+            safe = false;
+        else if (symbol.getType() == SymbolType.Function) {
+            FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)symbol;
+            safe = isPureNativeFunction(functionSymbol.getName(),
+                    functionSymbol.getArguments().size());
+        } else
+            safe = true;
+
+        for (int i = 0; i < getOperandCount(symbol) && safe; i++)
+            safe = isSafe((Symbol)getOperand(symbol, i));
+
+        safeSymbols.put(symbol, safe);
+    }
+
+    private boolean isSafe(Symbol symbol) {
+        return isLeaf(symbol) || Boolean.TRUE.equals(safeSymbols.get(symbol));
+    }
+
+    private boolean isPureNativeFunction(String name, int argumentCount) {
+        SymbolTable localSymbolTable = (SymbolTable)arguments[0];
+        FunctionLiteralSymbol functionDefinition = FunctionLiteralSymbol.findDefinition(
+                localSymbolTable, name, argumentCount);
+
+        return functionDefinition != null && functionDefinition.isPureNative();
+    }
+
+    private Symbol simplify(Symbol root, Symbol[] symbols) {
+        switch (root.getType()) {
+            case Positive:
+                return symbols[0];
+            case Negative:
+                if (symbols[0].getType() == SymbolType.Negative)
+                    return symbols[0].getFirst();
+
+                return null;
+            case Addition:
+                if (isValue(symbols[1], -0.0))
+                    return symbols[0];
+
+                if (isValue(symbols[0], -0.0))
+                    return symbols[1];
+
+                return null;
+            case Subtraction:
+                return isValue(symbols[1], 0.0) ? symbols[0] : null;
+            case Multiplication:
+                if (isValue(symbols[1], 1.0))
+                    return symbols[0];
+
+                if (isValue(symbols[0], 1.0))
+                    return symbols[1];
+
+                return null;
+            case Division:
+                return isValue(symbols[1], 1.0) ? symbols[0] : null;
+            case Exponentiation:
+                return simplifyPower(root, symbols[0], symbols[1]);
+            case And:
+                return isConstant(symbols[0]) && !MathUtils.bool(getValue(symbols[0]))
+                        ? new NumberLiteralSymbol(0, root.getPosition()) : null;
+            case Or:
+                return isConstant(symbols[0]) && MathUtils.bool(getValue(symbols[0]))
+                        ? new NumberLiteralSymbol(1, root.getPosition()) : null;
+            case Conditional:
+                if (isConstant(symbols[0]))
+                    return MathUtils.bool(getValue(symbols[0]))
+                            ? symbols[1] : symbols[2];
+
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private Symbol simplifyPower(Symbol root, Symbol base, Symbol exponent) {
+        if (isValue(exponent, 1.0))
+            return base;
+
+        if (!isConstant(exponent))
+            return null;
+
+        double exponentValue = getValue(exponent);
+
+        if (exponentValue == 0.0 && base.getType() == SymbolType.Variable)
+            return new NumberLiteralSymbol(1, root.getPosition());
+
+        if (exponentValue == 2.0 && base.getType() == SymbolType.Variable) {
+            Symbol multiplication = new MultiplicationOperatorSymbol(root.getPosition());
+
+            multiplication.setFirst(base);
+            multiplication.setSecond(base);
+
+            return multiplication;
+        }
+
+        if (exponentValue == 0.5) {
+            SymbolTable localSymbolTable = (SymbolTable)arguments[0];
+            FunctionLiteralSymbol functionDefinition = FunctionLiteralSymbol.findDefinition(
+                    localSymbolTable, "sqrt", 1);
+
+            if (functionDefinition == null
+                    || functionDefinition.getClosure().getType() != ClosureType.Method)
+                return null;
+
+            FunctionArgumentList functionArguments = new FunctionArgumentList();
+            functionArguments.add(new FunctionArgument(base));
+
+            return new FunctionLiteralSymbol("sqrt", functionArguments, root.getPosition());
+        }
+
+        return null;
+    }
+
+    private static Symbol copy(Symbol root, Symbol[] symbols) {
+        boolean changed = false;
+
+        for (int i = 0; i < symbols.length && !changed; i++)
+            changed = symbols[i] != getChild(root, i);
+
+        if (!changed)
+            return root;
+
+        if (root.getType() == SymbolType.Function) {
+            FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)root;
+            FunctionArgumentList functionArguments = new FunctionArgumentList();
+
+            for (Symbol symbol : symbols)
+                functionArguments.add(new FunctionArgument(symbol));
+
+            return new FunctionLiteralSymbol(functionSymbol.getName(), functionArguments,
+                    root.getPosition());
+        }
+
+        Symbol output;
+
+        if (root.getType() == SymbolType.Binding) {
+            BindingOperatorSymbol bindingSymbol = (BindingOperatorSymbol)root;
+            output = new BindingOperatorSymbol(bindingSymbol.getName(), root.getPosition());
+        } else
+            output = createOperator(root.getType(), root.getPosition());
+
+        for (int i = 0; i < symbols.length; i++)
+            output.setChild(i, symbols[i]);
+
+        return output;
+    }
+
+    private static AbstractSyntaxNode getChild(Symbol root, int index) {
+        if (root.getType() == SymbolType.Function) {
+            FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)root;
+            return functionSymbol.getArguments().get(index).getRoot();
+        }
+
+        return root.getChild(index);
+    }
+
+    private static Symbol createOperator(SymbolType type, int position) {
+        switch (type) {
+            case Positive:
+                return new PositiveOperatorSymbol(position);
+            case Negative:
+                return new NegativeOperatorSymbol(position);
+            case Not:
+                return new NotOperatorSymbol(position);
+            case Addition:
+                return new AdditionOperatorSymbol(position);
+            case Subtraction:
+                return new SubtractionOperatorSymbol(position);
+            case Multiplication:
+                return new MultiplicationOperatorSymbol(position);
+            case Division:
+                return new DivisionOperatorSymbol(position);
+            case Modulo:
+                return new ModuloOperatorSymbol(position);
+            case Exponentiation:
+                return new ExponentiationOperatorSymbol(position);
+            case LessEqual:
+                return new LessEqualOperatorSymbol(position);
+            case Less:
+                return new LessOperatorSymbol(position);
+            case GreaterEqual:
+                return new GreaterEqualOperatorSymbol(position);
+            case Greater:
+                return new GreaterOperatorSymbol(position);
+            case Equal:
+                return new EqualOperatorSymbol(position);
+            case NotEqual:
+                return new NotEqualOperatorSymbol(position);
+            case And:
+                return new AndOperatorSymbol(position);
+            case Or:
+                return new OrOperatorSymbol(position);
+            case Conditional:
+                return new ConditionalOperatorSymbol(position);
+            default:
+                throw new IllegalArgumentException("Unsupported operator type.");
+        }
+    }
+
+    private static double evaluate(OperatorSymbol operatorSymbol, Symbol[] symbols) {
+        if (operatorSymbol.isUnaryOperator()) {
+            UnaryOperatorSymbol unaryOperator = (UnaryOperatorSymbol)operatorSymbol;
+            return unaryOperator.evaluate(getValue(symbols[0]));
+        } else if (operatorSymbol.isBinaryOperator()) {
+            BinaryOperatorSymbol binaryOperator = (BinaryOperatorSymbol)operatorSymbol;
+            return binaryOperator.evaluate(getValue(symbols[0]),
+                    getValue(symbols[1]));
+        }
+
+        TernaryOperatorSymbol ternaryOperator = (TernaryOperatorSymbol)operatorSymbol;
+        return ternaryOperator.evaluate(getValue(symbols[0]),
+                getValue(symbols[1]), getValue(symbols[2]));
+    }
+
+    private static double getValue(Symbol symbol) {
+        LiteralSymbol literalSymbol = (LiteralSymbol)symbol;
+        return literalSymbol.getDoubleValue();
+    }
+
+    private static boolean isRegionOperand(SymbolType type, int operandIndex) {
+        switch (type) {
+            case And:
+            case Or:
+            case Binding:
+                return operandIndex == 1;
+            case Conditional:
+                return operandIndex != 0;
+            default:
+                return false;
+        }
+    }
+
+    private static int findCommonRegion(int firstRegion, int secondRegion,
+            int[] regionParents, int[] regionDepths) {
+        while (regionDepths[firstRegion] > regionDepths[secondRegion])
+            firstRegion = regionParents[firstRegion];
+
+        while (regionDepths[secondRegion] > regionDepths[firstRegion])
+            secondRegion = regionParents[secondRegion];
+
+        while (firstRegion != secondRegion) {
+            firstRegion = regionParents[firstRegion];
+            secondRegion = regionParents[secondRegion];
+        }
+
+        return firstRegion;
+    }
+
+    private static boolean isFunction(FunctionLiteralSymbol functionSymbol, String name,
+            int argumentCount) {
+        return functionSymbol.getName().equals(name)
+                && functionSymbol.getArguments().size() == argumentCount;
+    }
+
+    private static boolean isLeaf(Symbol symbol) {
+        return symbol.getType() == SymbolType.Number
+                || symbol.getType() == SymbolType.Variable;
+    }
+
+    private static boolean isConstant(Symbol symbol) {
+        return symbol.getType() == SymbolType.Number;
+    }
+
+    private static boolean isConstant(Symbol[] symbols) {
+        for (Symbol symbol : symbols)
+            if (!isConstant(symbol))
+                return false;
+
+        return true;
+    }
+
+    private static boolean isValue(Symbol symbol, double value) {
+        return isConstant(symbol) && Double.doubleToRawLongBits(getValue(symbol))
+                == Double.doubleToRawLongBits(value);
+    }
+
+    private static String format(Symbol root, String[] operands) {
+        switch (root.getType()) {
+            case Number:
+                return formatNumber(getValue(root));
+            case Variable:
+                return ((IdentifierLiteralSymbol)root).getName();
+            case Function:
+                return String.format("%s(%s)", ((IdentifierLiteralSymbol)root).getName(),
+                        String.join(", ", operands));
+            case Positive:
+                return String.format("(+%s)", operands[0]);
+            case Negative:
+                return String.format("(-%s)", operands[0]);
+            case Not:
+                return String.format("(!%s)", operands[0]);
+            case Conditional:
+                return String.format("(%s ? %s : %s)", operands[0], operands[1],
+                        operands[2]);
+            case Binding:
+                return String.format("(%s = %s, %s)", ((BindingOperatorSymbol)root).getName(),
+                        operands[0], operands[1]);
+            default:
+                return String.format("(%s %s %s)", operands[0],
+                        getOperatorToken(root.getType()), operands[1]);
+        }
+    }
+
+    private static String formatNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15
+                && Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(-0.0))
+            return Long.toString((long)value);
+
+        return Double.toString(value);
+    }
+
+    private static String getOperatorToken(SymbolType type) {
+        switch (type) {
+            case Addition:
+                return "+";
+            case Subtraction:
+                return "-";
+            case Multiplication:
+                return "*";
+            case Division:
+                return "/";
+            case Modulo:
+                return "%";
+            case Exponentiation:
+                return "^";
+            case LessEqual:
+                return "<=";
+            case Less:
+                return "<";
+            case GreaterEqual:
+                return ">=";
+            case Greater:
+                return ">";
+            case Equal:
+                return "==";
+            case NotEqual:
+                return "!=";
+            case And:
+                return "&&";
+            default:
+                return "||";
+        }
+    }
+}
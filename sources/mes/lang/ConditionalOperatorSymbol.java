@@ -35,6 +35,8 @@ package mes.lang;
  * @see TernaryOperatorSymbol
  */
 public class ConditionalOperatorSymbol extends TernaryOperatorSymbol {
+    private static final long serialVersionUID = 5026251542921573145L;
+
     /**
      * Initializes the conditional operator.
      */
@@ -46,7 +48,7 @@ public class ConditionalOperatorSymbol extends TernaryOperatorSymbol {
      * Initializes the conditional operator. By default the conditional operator
      * is right associative with precedence 1.
      * @param position The symbol position at the source code
-     * @see Lexer#Lexer(String)
+     * @see Lexer#Lexer(CharSequence)
      * @see OperatorData
      */
     public ConditionalOperatorSymbol(int position) {
@@ -57,12 +59,8 @@ public class ConditionalOperatorSymbol extends TernaryOperatorSymbol {
      * {@inheritDoc}
      */
     @Override
-    public LiteralSymbol evaluate(Symbol[] symbols) {
-        LiteralSymbol conditionOperand = (LiteralSymbol)symbols[0];
-        LiteralSymbol leftOperand = (LiteralSymbol)symbols[1];
-        LiteralSymbol rightOperand = (LiteralSymbol)symbols[2];
-
-        return new NumberLiteralSymbol(conditionOperand.getBooleanValue()
-                ? leftOperand.getDoubleValue() : rightOperand.getDoubleValue(), position);
+    public double evaluate(double conditionOperand, double leftOperand,
+            double rightOperand) {
+        return MathUtils.bool(conditionOperand) ? leftOperand : rightOperand;
     }
 }
\ No newline at end of file
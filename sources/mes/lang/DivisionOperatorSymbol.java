@@ -35,6 +35,8 @@ package mes.lang;
  * @see BinaryOperatorSymbol
  */
 public class DivisionOperatorSymbol extends BinaryOperatorSymbol {
+    private static final long serialVersionUID = -1233222470675597376L;
+
     /**
      * Initializes the division operator.
      */
@@ -46,7 +48,7 @@ public class DivisionOperatorSymbol extends BinaryOperatorSymbol {
      * Initializes the division operator. By default the division operator is
      * left associative with precedence 7.
      * @param position The symbol position at the source code
-     * @see Lexer#Lexer(String)
+     * @see Lexer#Lexer(CharSequence)
      * @see OperatorData
      */
     public DivisionOperatorSymbol(int position) {
@@ -57,11 +59,7 @@ public class DivisionOperatorSymbol extends BinaryOperatorSymbol {
      * {@inheritDoc}
      */
     @Override
-    public LiteralSymbol evaluate(Symbol[] symbols) {
-        LiteralSymbol leftOperand = (LiteralSymbol)symbols[0];
-        LiteralSymbol rightOperand = (LiteralSymbol)symbols[1];
-
-        return new NumberLiteralSymbol(leftOperand.getDoubleValue()
-                / rightOperand.getDoubleValue(), position);
+    public double evaluate(double leftOperand, double rightOperand) {
+        return leftOperand / rightOperand;
     }
 }
\ No newline at end of file
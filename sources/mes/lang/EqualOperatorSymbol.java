@@ -35,6 +35,8 @@ package mes.lang;
  * @see BinaryOperatorSymbol
  */
 public class EqualOperatorSymbol extends BinaryOperatorSymbol {
+    private static final long serialVersionUID = -8008280361726034353L;
+
     /**
      * Initializes the equal operator.
      */
@@ -46,7 +48,7 @@ public class EqualOperatorSymbol extends BinaryOperatorSymbol {
      * Initializes the equal operator. By default the equal operator is left
      * associative with precedence 4.
      * @param position The symbol position at the source code
-     * @see Lexer#Lexer(String)
+     * @see Lexer#Lexer(CharSequence)
      * @see OperatorData
      */
     public EqualOperatorSymbol(int position) {
@@ -57,11 +59,7 @@ public class EqualOperatorSymbol extends BinaryOperatorSymbol {
      * {@inheritDoc}
      */
     @Override
-    public LiteralSymbol evaluate(Symbol[] symbols) {
-        LiteralSymbol leftOperand = (LiteralSymbol)symbols[0];
-        LiteralSymbol rightOperand = (LiteralSymbol)symbols[1];
-
-        return new NumberLiteralSymbol(leftOperand.getDoubleValue()
-                == rightOperand.getDoubleValue(), position);
+    public double evaluate(double leftOperand, double rightOperand) {
+        return MathUtils.number(leftOperand == rightOperand);
     }
 }
\ No newline at end of file
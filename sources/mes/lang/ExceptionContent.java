@@ -55,6 +55,10 @@ public class ExceptionContent extends RuntimeException {
                 = "invalid redefinition of function argument";
         public static final String FunctionEvaluationFailed
                 = "cannot evaluate function";
+        public static final String CallDepthExceeded
+                = "maximum call depth exceeded";
+        public static final String TailCallLimitExceeded
+                = "maximum tail call count exceeded";
 
         public static String custom(String message) {
             return message;
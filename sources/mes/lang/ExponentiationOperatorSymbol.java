@@ -35,6 +35,8 @@ package mes.lang;
  * @see BinaryOperatorSymbol
  */
 public class ExponentiationOperatorSymbol extends BinaryOperatorSymbol {
+    private static final long serialVersionUID = -3777961505268417907L;
+
     /**
      * Initializes the exponentiation operator.
      */
@@ -46,7 +48,7 @@ public class ExponentiationOperatorSymbol extends BinaryOperatorSymbol {
      * Initializes the exponentiation operator. By default the exponentiation
      * operator is right associative with precedence 9.
      * @param position The symbol position at the source code
-     * @see Lexer#Lexer(String)
+     * @see Lexer#Lexer(CharSequence)
      * @see OperatorData
      */
     public ExponentiationOperatorSymbol(int position) {
@@ -57,11 +59,7 @@ public class ExponentiationOperatorSymbol extends BinaryOperatorSymbol {
      * {@inheritDoc}
      */
     @Override
-    public LiteralSymbol evaluate(Symbol[] symbols) {
-        LiteralSymbol leftOperand = (LiteralSymbol)symbols[0];
-        LiteralSymbol rightOperand = (LiteralSymbol)symbols[1];
-
-        return new NumberLiteralSymbol(MathUtils.pow(leftOperand.getDoubleValue(),
-                rightOperand.getDoubleValue()), position);
+    public double evaluate(double leftOperand, double rightOperand) {
+        return MathUtils.pow(leftOperand, rightOperand);
     }
 }
\ No newline at end of file
@@ -37,12 +37,15 @@ import java.lang.annotation.Target;
 
 /**
  * Indicates whether field or method should be exported to language
- * specification.
+ * specification. Exported symbols of a class are compiled into a symbol
+ * registry by {@link ExportSymbolProcessor}, so they are imported without
+ * reflection.
  * @author Danilo Ferreira
  * @version 1.0.0
  * @see Retention
  * @see Target
  * @see Documented
+ * @see SymbolRegistry
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(value = {FIELD, METHOD})
@@ -53,4 +56,14 @@ public @interface ExportSymbol {
      * @return The documentation string.
      */
     public String value() default "";
+
+    /**
+     * Returns whether the exported method always returns the same value for
+     * the same arguments and has no side effects. User functions that call
+     * an impure method are never cached. Methods of external libraries are
+     * always treated as impure, since the library can be unloaded.
+     * @return True if the method is pure.
+     * @see FunctionCache
+     */
+    public boolean pure() default true;
 }
\ No newline at end of file
@@ -0,0 +1,452 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor that generates the {@link SymbolRegistry} of every
+ * class with fields or methods annotated with {@link ExportSymbol}. The
+ * registry is a class named after the native class with the
+ * {@link SymbolRegistry#RegistrySuffix} suffix, in the same package, so it
+ * reaches package private members too. Argument names are taken from the
+ * source code. Methods that can not be called directly, like private or
+ * instance methods, are still exported and imported by reflection, so they
+ * fail when evaluated only if reflection can not call them either.
+ * <p>
+ * The exported symbols of every class are also listed in the symbol index
+ * resource, so a compiled library can be loaded by {@link SymbolLibrary}
+ * without loading its classes.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see SymbolImporter
+ */
+@SupportedAnnotationTypes("mes.lang.ExportSymbol")
+public class ExportSymbolProcessor extends AbstractProcessor {
+    private static final String MathUtilsName = "mes.lang.MathUtils";
+    private static final String DoubleName = "java.lang.Double";
+    private static final String ArgumentValuesName = "argumentValues";
+    private static final String VariableEntryType = "Variable";
+    private static final String FunctionEntryType = "Function";
+
+    private final ArrayList<String> indexEntries = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations,
+            RoundEnvironment roundEnvironment) {
+        LinkedHashMap<TypeElement, ArrayList<Element>> containers
+                = new LinkedHashMap<>();
+
+        for (Element element : roundEnvironment.getElementsAnnotatedWith(
+                ExportSymbol.class)) {
+            TypeElement container = (TypeElement)element.getEnclosingElement();
+
+            if (!containers.containsKey(container))
+                containers.put(container, new ArrayList<>());
+
+            containers.get(container).add(element);
+        }
+
+        for (TypeElement container : containers.keySet())
+            addIndexEntries(container, containers.get(container));
+
+        if (roundEnvironment.processingOver() && !indexEntries.isEmpty())
+            writeIndex();
+
+        for (TypeElement container : containers.keySet())
+            if (isAccessible(container))
+                writeRegistry(container, containers.get(container));
+            else
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "Class not accessible from its package, symbols are imported "
+                        + "by reflection.", container);
+
+        return false;
+    }
+
+    private void writeRegistry(TypeElement container, ArrayList<Element> elements) {
+        ArrayList<VariableElement> fields = new ArrayList<>();
+        ArrayList<ExecutableElement> methods = new ArrayList<>();
+
+        for (Element element : elements)
+            if (element.getKind() == ElementKind.FIELD)
+                fields.add((VariableElement)element);
+            else if (element.getKind() == ElementKind.METHOD)
+                methods.add((ExecutableElement)element);
+
+        String containerName = container.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(container)
+                .toString();
+        String registryName = binaryName.substring(binaryName.lastIndexOf('.') + 1)
+                + SymbolRegistry.RegistrySuffix;
+        String packageName = processingEnv.getElementUtils().getPackageOf(container)
+                .getQualifiedName().toString();
+
+        String[] constantNames = new String[fields.size()];
+        String[] constantValues = new String[fields.size()];
+        String[] constantDocumentations = new String[fields.size()];
+
+        for (int i = 0; i < fields.size(); i++) {
+            VariableElement field = fields.get(i);
+
+            constantNames[i] = quote(field.getSimpleName());
+            constantValues[i] = getConstantValue(containerName, field);
+            constantDocumentations[i] = quote(getDocumentation(field));
+        }
+
+        String[] functionNames = new String[methods.size()];
+        String[] parameterNames = new String[methods.size()];
+        String[] parameterTypes = new String[methods.size()];
+        String[] functionDocumentations = new String[methods.size()];
+        String[] pureFunctions = new String[methods.size()];
+        String[] calls = new String[methods.size()];
+        String[] directFunctions = new String[methods.size()];
+
+        for (int i = 0; i < methods.size(); i++) {
+            ExecutableElement method = methods.get(i);
+            int parameterCount = method.getParameters().size();
+
+            String[] names = new String[parameterCount];
+            String[] types = new String[parameterCount];
+
+            for (int j = 0; j < parameterCount; j++) {
+                VariableElement parameter = method.getParameters().get(j);
+
+                names[j] = quote(parameter.getSimpleName());
+                types[j] = processingEnv.getTypeUtils().erasure(parameter.asType())
+                        + ".class";
+            }
+
+            functionNames[i] = quote(method.getSimpleName());
+            parameterNames[i] = "{" + String.join(", ", names) + "}";
+            parameterTypes[i] = "{" + String.join(", ", types) + "}";
+            functionDocumentations[i] = quote(getDocumentation(method));
+            pureFunctions[i] = String.valueOf(
+                    method.getAnnotation(ExportSymbol.class).pure());
+            calls[i] = getCall(containerName, method);
+            directFunctions[i] = String.valueOf(calls[i] != null);
+        }
+
+        try (PrintWriter writer = new PrintWriter(processingEnv.getFiler().createSourceFile(
+                binaryName + SymbolRegistry.RegistrySuffix, container).openWriter())) {
+            writer.println("// Generated by " + ExportSymbolProcessor.class.getName()
+                    + " from " + containerName + ". Do not edit.");
+            writer.println();
+
+            if (!packageName.isEmpty()) {
+                writer.println("package " + packageName + ";");
+                writer.println();
+            }
+
+            writer.println("public final class " + registryName
+                    + " extends mes.lang.SymbolRegistry {");
+            writer.println("    public " + registryName + "() {");
+            writer.println("        super(" + containerName + ".class,");
+
+            printArray(writer, "String[]", constantNames, ",");
+            printArray(writer, "double[]", constantValues, ",");
+            printArray(writer, "String[]", constantDocumentations, ",");
+            printArray(writer, "String[]", functionNames, ",");
+            printArray(writer, "String[][]", parameterNames, ",");
+            printArray(writer, "Class<?>[][]", parameterTypes, ",");
+            printArray(writer, "String[]", functionDocumentations, ",");
+            printArray(writer, "boolean[]", pureFunctions, ",");
+            printArray(writer, "boolean[]", directFunctions, ");");
+
+            writer.println("    }");
+            writer.println();
+            writer.println("    @Override");
+            writer.println("    public double invoke(int function, double[] "
+                    + ArgumentValuesName + ") {");
+            writer.println("        switch (function) {");
+
+            for (int i = 0; i < methods.size(); i++) {
+                ExecutableElement method = methods.get(i);
+                String call = calls[i];
+
+                if (call == null)
+                    continue;
+
+                writer.println("            case " + i + ":");
+
+                if (method.getReturnType().getKind() == TypeKind.VOID) {
+                    writer.println("                " + call + ";");
+                    writer.println("                return 0;");
+                } else
+                    writer.println("                return "
+                            + toDouble(method.getReturnType(), call) + ";");
+            }
+
+            writer.println("            default:");
+            writer.println("                throw new UnsupportedOperationException();");
+            writer.println("        }");
+            writer.println("    }");
+            writer.println("}");
+        } catch (IOException exception) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Symbol registry not generated: " + exception.getMessage(), container);
+        }
+    }
+
+    private void addIndexEntries(TypeElement container, ArrayList<Element> elements) {
+        String binaryName = processingEnv.getElementUtils().getBinaryName(container)
+                .toString();
+
+        for (Element element : elements)
+            if (element.getKind() == ElementKind.FIELD)
+                indexEntries.add(binaryName + " " + VariableEntryType + " "
+                        + element.getSimpleName());
+            else if (element.getKind() == ElementKind.METHOD)
+                indexEntries.add(binaryName + " " + FunctionEntryType + " "
+                        + element.getSimpleName() + " "
+                        + ((ExecutableElement)element).getParameters().size());
+    }
+
+    private void writeIndex() {
+        try (PrintWriter writer = new PrintWriter(processingEnv.getFiler().createResource(
+                StandardLocation.CLASS_OUTPUT, "", SymbolLibrary.IndexName)
+                .openWriter())) {
+            writer.println("# Generated by " + ExportSymbolProcessor.class.getName()
+                    + ". Do not edit.");
+
+            for (String indexEntry : indexEntries)
+                writer.println(indexEntry);
+        } catch (IOException exception) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Symbol index not generated: " + exception.getMessage());
+        }
+
+        indexEntries.clear();
+    }
+
+    private String getConstantValue(String containerName, VariableElement field) {
+        String value = containerName + "." + field.getSimpleName();
+
+        if (field.getModifiers().contains(Modifier.STATIC)
+                && !field.getModifiers().contains(Modifier.PRIVATE)) {
+            String convertedValue = toDouble(field.asType(), value);
+
+            if (convertedValue != null)
+                return convertedValue;
+        }
+
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                "Exported field is not a static number or boolean, its value is zero.",
+                field);
+
+        return "0";
+    }
+
+    private String getCall(String containerName, ExecutableElement method) {
+        StringBuilder call = new StringBuilder(containerName);
+
+        call.append('.');
+        call.append(method.getSimpleName());
+        call.append('(');
+
+        for (int i = 0; i < method.getParameters().size(); i++) {
+            String argument = fromDouble(method.getParameters().get(i).asType(),
+                    ArgumentValuesName + "[" + i + "]");
+
+            if (argument == null) {
+                call = null;
+                break;
+            }
+
+            call.append(i != 0 ? ", " : "");
+            call.append(argument);
+        }
+
+        TypeMirror returnType = method.getReturnType();
+
+        if (call == null || !method.getModifiers().contains(Modifier.STATIC)
+                || method.getModifiers().contains(Modifier.PRIVATE)
+                || (returnType.getKind() != TypeKind.VOID
+                    && toDouble(returnType, "") == null)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Exported method can not be called directly, it is imported by "
+                    + "reflection.", method);
+
+            return null;
+        }
+
+        call.append(')');
+
+        return call.toString();
+    }
+
+    private String toDouble(TypeMirror type, String value) {
+        switch (type.getKind()) {
+            case DOUBLE:
+            case FLOAT:
+            case LONG:
+            case INT:
+            case SHORT:
+            case BYTE:
+            case CHAR:
+                return value;
+            case BOOLEAN:
+                return MathUtilsName + ".number(" + value + ")";
+            case DECLARED:
+                String typeName = processingEnv.getTypeUtils().erasure(type).toString();
+
+                if (typeName.equals(Boolean.class.getName()))
+                    return MathUtilsName + ".number(" + value + ")";
+                else if (processingEnv.getTypeUtils().isAssignable(type,
+                        processingEnv.getElementUtils().getTypeElement(
+                                Number.class.getName()).asType()))
+                    return value + ".doubleValue()";
+
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private String fromDouble(TypeMirror type, String value) {
+        switch (type.getKind()) {
+            case DOUBLE:
+                return value;
+            case FLOAT:
+            case LONG:
+            case INT:
+            case SHORT:
+            case BYTE:
+            case CHAR:
+                return "(" + type + ")" + value;
+            case BOOLEAN:
+                return MathUtilsName + ".bool(" + value + ")";
+            case DECLARED:
+                Types typeUtils = processingEnv.getTypeUtils();
+                TypeMirror doubleType = typeUtils.boxedClass(
+                        typeUtils.getPrimitiveType(TypeKind.DOUBLE)).asType();
+
+                if (typeUtils.isAssignable(doubleType, type))
+                    return DoubleName + ".valueOf(" + value + ")";
+
+                PrimitiveType primitiveType;
+
+                try {
+                    primitiveType = typeUtils.unboxedType(type);
+                } catch (IllegalArgumentException exception) {
+                    return null;
+                }
+
+                return typeUtils.erasure(type) + ".valueOf("
+                        + fromDouble(primitiveType, value) + ")";
+            default:
+                return null;
+        }
+    }
+
+    private static void printArray(PrintWriter writer, String type, String[] values,
+            String terminator) {
+        writer.println("                new " + type + " {" + String.join(", ", values)
+                + "}" + terminator);
+    }
+
+    private static String getDocumentation(Element element) {
+        return element.getAnnotation(ExportSymbol.class).value();
+    }
+
+    private static boolean isAccessible(TypeElement container) {
+        for (Element element = container; element instanceof TypeElement;
+                element = element.getEnclosingElement()) {
+            TypeElement typeElement = (TypeElement)element;
+
+            if (typeElement.getModifiers().contains(Modifier.PRIVATE))
+                return false;
+
+            if (typeElement.getNestingKind() != NestingKind.TOP_LEVEL
+                    && typeElement.getNestingKind() != NestingKind.MEMBER)
+                return false;
+        }
+
+        return true;
+    }
+
+    private static String quote(CharSequence value) {
+        StringBuilder quotedValue = new StringBuilder("\"");
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                    quotedValue.append("\\\"");
+                    break;
+                case '\\':
+                    quotedValue.append("\\\\");
+                    break;
+                case '\n':
+                    quotedValue.append("\\n");
+                    break;
+                case '\r':
+                    quotedValue.append("\\r");
+                    break;
+                case '\t':
+                    quotedValue.append("\\t");
+                    break;
+                default:
+                    if (c < ' ' || c > '~')
+                        quotedValue.append(String.format("\\u%04x", (int)c));
+                    else
+                        quotedValue.append(c);
+            }
+        }
+
+        return quotedValue.append('"').toString();
+    }
+}
@@ -0,0 +1,599 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import mes.lang.Closure.ClosureType;
+import mes.lang.ExceptionContent.ExceptionMessage;
+import mes.lang.Symbol.SymbolType;
+
+/**
+ * Compact representation of an {@link AbstractSyntaxTree} used as closure of
+ * large function definitions. The nodes are stored in post-order as parallel
+ * arrays of opcodes, positions, operands and child indices, with a constant
+ * pool for numbers and a name pool for identifiers. The <i>and</i>, <i>or</i>
+ * and conditional operators skip the nodes of operands that do not decide the
+ * result, and a tail call of the function to itself restarts the evaluation
+ * with the new arguments. Temporaries of binding nodes are stored after the
+ * function arguments and read as arguments.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see Closure
+ * @see FunctionLiteralSymbol
+ */
+public final class FlatSyntaxTree implements Serializable {
+    private static final long serialVersionUID = -8888881339449304218L;
+
+    private static final SymbolType[] SymbolTypes = SymbolType.values();
+
+    private final int[] opcodes;
+    private final int[] positions;
+    private final int[] operands;
+
+    private final int[] childOffsets;
+    private final int[] childIndices;
+    private final int[] parents;
+
+    private final double[] constants;
+    private final String[] names;
+
+    private transient InlineCache[] inlineCaches;
+
+    private final int argumentCount;
+    private final int temporaryCount;
+    private final int maximumStackSize;
+
+    /**
+     * Initializes the flat syntax tree from the body of a function definition.
+     * Variables named as a function argument are resolved to the argument
+     * index, and variables named as the temporary of an enclosing binding node
+     * to the index of the temporary, counted after the arguments.
+     * @param root The root node of the function body
+     * @param arguments The function arguments
+     * @see FunctionLiteralSymbol
+     */
+    public FlatSyntaxTree(AbstractSyntaxNode root, FunctionArgumentList arguments) {
+        int capacity = 16;
+
+        int[] nodeOpcodes = new int[capacity];
+        int[] nodePositions = new int[capacity];
+        int[] nodeOperands = new int[capacity];
+        int[] nodeChildCounts = new int[capacity];
+        int nodeCount = 0;
+
+        double[] constantPool = new double[8];
+        int constantCount = 0;
+
+        HashMap<String, Integer> nameIndices = new HashMap<>();
+
+        HashMap<String, Integer> argumentIndices = new HashMap<>();
+
+        for (int i = 0; i < arguments.size(); i++) {
+            VariableLiteralSymbol argumentSymbol
+                    = (VariableLiteralSymbol)arguments.get(i).getRoot();
+
+            argumentIndices.put(argumentSymbol.getName(), i);
+        }
+
+        int bindingCount = 0;
+
+        Symbol[] pendingNodes = new Symbol[16];
+        int[] pendingOperands = new int[16];
+        int depth = 0;
+
+        pendingNodes[depth++] = (Symbol)root;
+
+        while (depth != 0) {
+            Symbol node = pendingNodes[depth - 1];
+            int operandIndex = pendingOperands[depth - 1];
+
+            if (operandIndex == 0 && node.getType() == SymbolType.Binding) {
+                BindingOperatorSymbol bindingSymbol = (BindingOperatorSymbol)node;
+
+                if (!argumentIndices.containsKey(bindingSymbol.getName()))
+                    argumentIndices.put(bindingSymbol.getName(),
+                            arguments.size() + bindingCount++);
+            }
+
+            if (operandIndex < getOperandCount(node)) {
+                pendingOperands[depth - 1]++;
+
+                if (depth == pendingNodes.length) {
+                    pendingNodes = Arrays.copyOf(pendingNodes, depth << 1);
+                    pendingOperands = Arrays.copyOf(pendingOperands, depth << 1);
+                }
+
+                pendingNodes[depth] = getOperand(node, operandIndex);
+                pendingOperands[depth] = 0;
+                depth++;
+
+                continue;
+            }
+
+            depth--;
+            pendingNodes[depth] = null;
+
+            if (nodeCount == capacity) {
+                capacity <<= 1;
+
+                nodeOpcodes = Arrays.copyOf(nodeOpcodes, capacity);
+                nodePositions = Arrays.copyOf(nodePositions, capacity);
+                nodeOperands = Arrays.copyOf(nodeOperands, capacity);
+                nodeChildCounts = Arrays.copyOf(nodeChildCounts, capacity);
+            }
+
+            int operand = 0;
+
+            if (node.getType() == SymbolType.Number) {
+                if (constantCount == constantPool.length)
+                    constantPool = Arrays.copyOf(constantPool, constantCount << 1);
+
+                LiteralSymbol numberSymbol = (LiteralSymbol)node;
+                constantPool[constantCount] = numberSymbol.getDoubleValue();
+
+                operand = constantCount++;
+            } else if (node.isIdentifierLiteral()) {
+                IdentifierLiteralSymbol identifierSymbol = (IdentifierLiteralSymbol)node;
+                String name = identifierSymbol.getName();
+
+                Integer argumentIndex = node.getType() == SymbolType.Variable
+                        ? argumentIndices.get(name) : null;
+
+                if (argumentIndex != null)
+                    operand = -argumentIndex - 1;
+                else {
+                    Integer nameIndex = nameIndices.get(name);
+
+                    if (nameIndex == null) {
+                        nameIndex = nameIndices.size();
+                        nameIndices.put(name, nameIndex);
+                    }
+
+                    operand = nameIndex;
+                }
+            } else if (node.getType() == SymbolType.Binding) {
+                BindingOperatorSymbol bindingSymbol = (BindingOperatorSymbol)node;
+                operand = -argumentIndices.get(bindingSymbol.getName()) - 1;
+            }
+
+            nodeOpcodes[nodeCount] = node.getType().ordinal();
+            nodePositions[nodeCount] = node.getPosition();
+            nodeOperands[nodeCount] = operand;
+            nodeChildCounts[nodeCount] = getOperandCount(node);
+
+            nodeCount++;
+        }
+
+        opcodes = Arrays.copyOf(nodeOpcodes, nodeCount);
+        positions = Arrays.copyOf(nodePositions, nodeCount);
+        operands = Arrays.copyOf(nodeOperands, nodeCount);
+
+        childOffsets = new int[nodeCount + 1];
+        childIndices = new int[nodeCount - 1];
+        parents = new int[nodeCount];
+
+        int[] subtrees = new int[nodeCount];
+        int subtreeCount = 0;
+        int stackSize = 0;
+
+        for (int i = 0; i < nodeCount; i++) {
+            int childCount = nodeChildCounts[i];
+
+            subtreeCount -= childCount;
+            childOffsets[i + 1] = childOffsets[i] + childCount;
+
+            System.arraycopy(subtrees, subtreeCount, childIndices, childOffsets[i],
+                    childCount);
+
+            for (int j = 0; j < childCount; j++)
+                parents[subtrees[subtreeCount + j]] = i;
+
+            subtrees[subtreeCount++] = i;
+            stackSize = Math.max(stackSize, subtreeCount);
+        }
+
+        constants = Arrays.copyOf(constantPool, constantCount);
+        names = new String[nameIndices.size()];
+
+        for (HashMap.Entry<String, Integer> nameEntry : nameIndices.entrySet())
+            names[nameEntry.getValue()] = nameEntry.getKey();
+
+        parents[nodeCount - 1] = -1;
+
+        argumentCount = arguments.size();
+        temporaryCount = bindingCount;
+        maximumStackSize = stackSize;
+    }
+
+    /**
+     * Returns the number of nodes.
+     * @return The node count.
+     */
+    public int getNodeCount() {
+        return opcodes.length;
+    }
+
+    /**
+     * Returns the number of function arguments.
+     * @return The argument count.
+     */
+    public int getArgumentCount() {
+        return argumentCount;
+    }
+
+    /**
+     * Returns the number of temporaries of binding nodes.
+     * @return The temporary count.
+     */
+    public int getTemporaryCount() {
+        return temporaryCount;
+    }
+
+    /**
+     * Returns the index of the root node. The nodes are stored in post-order,
+     * so the root is the last node.
+     * @return The root index.
+     */
+    public int getRoot() {
+        return opcodes.length - 1;
+    }
+
+    /**
+     * Returns the symbol type of a node.
+     * @param index The node index
+     * @return The symbol type.
+     */
+    public SymbolType getType(int index) {
+        return SymbolTypes[opcodes[index]];
+    }
+
+    /**
+     * Returns the position of a node at the source code.
+     * @param index The node index
+     * @return The node position.
+     */
+    public int getPosition(int index) {
+        return positions[index];
+    }
+
+    /**
+     * Returns the child count of a node.
+     * @param index The node index
+     * @return The child count.
+     */
+    public int getChildCount(int index) {
+        return childOffsets[index + 1] - childOffsets[index];
+    }
+
+    /**
+     * Returns the index of a child node.
+     * @param index The node index
+     * @param childIndex The child position among the node children
+     * @return The child index.
+     */
+    public int getChild(int index, int childIndex) {
+        return childIndices[childOffsets[index] + childIndex];
+    }
+
+    /**
+     * Returns the index of the parent node.
+     * @param index The node index
+     * @return The parent index or -1 for the root node.
+     */
+    public int getParent(int index) {
+        return parents[index];
+    }
+
+    /**
+     * Returns true if a node is a function call whose value is the value of
+     * the whole tree and false otherwise. The ancestors of a tail call are
+     * only conditional branches, binding bodies and positive operators.
+     * @param index The node index
+     * @return The tail call state.
+     */
+    public boolean isTailCall(int index) {
+        if (getType(index) != SymbolType.Function)
+            return false;
+
+        for (int node = index; parents[node] != -1; node = parents[node]) {
+            int parent = parents[node];
+
+            switch (getType(parent)) {
+                case Positive:
+                    break;
+                case Conditional:
+                case Binding:
+                    if (getChild(parent, 0) == node)
+                        return false;
+
+                    break;
+                default:
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the value of a number node.
+     * @param index The node index
+     * @return The number value.
+     */
+    public double getNumberValue(int index) {
+        return constants[operands[index]];
+    }
+
+    /**
+     * Returns true if a variable node refers to a function argument and false
+     * otherwise.
+     * @param index The node index
+     * @return The argument state.
+     */
+    public boolean isArgument(int index) {
+        return getType(index) == SymbolType.Variable && operands[index] < 0;
+    }
+
+    /**
+     * Returns the function argument index of a variable node or the index of
+     * the temporary of a binding node.
+     * @param index The node index
+     * @return The argument index.
+     * @see #isArgument(int)
+     */
+    public int getArgumentIndex(int index) {
+        return -operands[index] - 1;
+    }
+
+    /**
+     * Returns the name of an identifier node.
+     * @param index The node index
+     * @return The identifier name.
+     */
+    public String getName(int index) {
+        return names[operands[index]];
+    }
+
+    /**
+     * Evaluates the tree for a function call.
+     * @param globalSymbolTable The symbol table used to resolve identifiers
+     * @param argumentValues The values of function arguments
+     * @return The output value.
+     * @throws ExceptionContent Undefined symbol or evaluation failure
+     */
+    public double evaluate(SymbolTable globalSymbolTable, double[] argumentValues) {
+        argumentValues = allocateTemporaries(argumentValues);
+
+        double[] stack = new double[maximumStackSize];
+        int top = 0;
+
+        int tailCallCount = 0;
+        int i = 0;
+
+        while (i < opcodes.length) {
+            switch (SymbolTypes[opcodes[i]]) {
+                case Number:
+                    stack[top++] = constants[operands[i]];
+                    break;
+                case Variable: {
+                    if (operands[i] < 0) {
+                        stack[top++] = argumentValues[-operands[i] - 1];
+                        break;
+                    }
+
+                    VariableLiteralSymbol variableDefinition = (VariableLiteralSymbol)resolve(
+                            globalSymbolTable, i, SymbolType.Variable, 0);
+
+                    if (variableDefinition == null)
+                        throw new ExceptionContent(ExceptionMessage.UndefinedSymbol,
+                                positions[i]);
+
+                    stack[top++] = variableDefinition.getDoubleValue();
+                    break;
+                }
+                case Function: {
+                    int argumentCount = getChildCount(i);
+                    double[] functionArgumentValues = new double[argumentCount];
+
+                    top -= argumentCount;
+                    System.arraycopy(stack, top, functionArgumentValues, 0, argumentCount);
+
+                    FunctionLiteralSymbol functionDefinition = (FunctionLiteralSymbol)resolve(
+                            globalSymbolTable, i, SymbolType.Function, argumentCount);
+
+                    if (functionDefinition == null)
+                        throw new ExceptionContent(ExceptionMessage.UndefinedSymbol,
+                                positions[i]);
+
+                    if (isBody(functionDefinition) && isTailCall(i)) {
+                        if (++tailCallCount > functionDefinition.getTieredExecution()
+                                .getTailCallLimit())
+                            throw new ExceptionContent(
+                                    ExceptionMessage.TailCallLimitExceeded, positions[i]);
+
+                        argumentValues = allocateTemporaries(functionArgumentValues);
+                        top = 0;
+                        i = 0;
+
+                        continue;
+                    }
+
+                    stack[top++] = functionDefinition.invoke(globalSymbolTable,
+                            functionArgumentValues, positions[i]);
+                    break;
+                }
+                case Positive:
+                    break;
+                case Negative:
+                    stack[top - 1] = -stack[top - 1];
+                    break;
+                case Not:
+                    stack[top - 1] = MathUtils.number(!MathUtils.bool(stack[top - 1]));
+                    break;
+                case And:
+                case Or:
+                    stack[top - 1] = MathUtils.number(MathUtils.bool(stack[top - 1]));
+                    break;
+                case Conditional:
+                case Binding:
+                    break;
+                case Assignment:
+                    throw new ExceptionContent(ExceptionMessage.IllegalExpressionAssignment,
+                            positions[i]);
+                default:
+                    top--;
+                    stack[top - 1] = evaluateBinaryOperator(opcodes[i],
+                            stack[top - 1], stack[top]);
+            }
+
+            int node = i++;
+
+            while (parents[node] != -1) {
+                int parent = parents[node];
+                SymbolType parentType = SymbolTypes[opcodes[parent]];
+                boolean firstOperand = childIndices[childOffsets[parent]] == node;
+
+                if (parentType == SymbolType.Binding) {
+                    if (firstOperand)
+                        argumentValues[-operands[parent] - 1] = stack[--top];
+
+                    break;
+                } else if (parentType == SymbolType.Conditional) {
+                    if (firstOperand) {
+                        if (!MathUtils.bool(stack[--top]))
+                            i = getChild(parent, 1) + 1;
+
+                        break;
+                    } else if (node != getChild(parent, 1))
+                        break;
+                } else if (firstOperand && (parentType == SymbolType.And
+                        || parentType == SymbolType.Or)) {
+                    boolean value = MathUtils.bool(stack[top - 1]);
+
+                    if (value != (parentType == SymbolType.Or)) {
+                        top--;
+                        break;
+                    }
+
+                    stack[top - 1] = MathUtils.number(value);
+                } else
+                    break;
+
+                node = parent;
+                i = parent + 1;
+            }
+        }
+
+        return stack[0];
+    }
+
+    private IdentifierLiteralSymbol resolve(SymbolTable globalSymbolTable, int index,
+            SymbolType type, int argumentCount) {
+        InlineCache[] caches = inlineCaches;
+
+        if (caches == null) {
+            caches = new InlineCache[opcodes.length];
+            inlineCaches = caches;
+        }
+
+        InlineCache inlineCache = InlineCache.resolve(caches[index], globalSymbolTable,
+                names[operands[index]], type, argumentCount);
+
+        caches[index] = inlineCache;
+        return inlineCache.getDefinition();
+    }
+
+    private double[] allocateTemporaries(double[] argumentValues) {
+        if (temporaryCount == 0)
+            return argumentValues;
+
+        return Arrays.copyOf(argumentValues, argumentCount + temporaryCount);
+    }
+
+    private boolean isBody(FunctionLiteralSymbol functionDefinition) {
+        Closure closure = functionDefinition.getClosure();
+
+        return closure.getType() == ClosureType.FlatSyntaxTree
+                && closure.getFlatSyntaxTree() == this;
+    }
+
+    private double evaluateBinaryOperator(int opcode, double leftValue, double rightValue) {
+        switch (SymbolTypes[opcode]) {
+            case Addition:
+                return leftValue + rightValue;
+            case Subtraction:
+                return leftValue - rightValue;
+            case Multiplication:
+                return leftValue * rightValue;
+            case Division:
+                return leftValue / rightValue;
+            case Modulo:
+                return leftValue % rightValue;
+            case Exponentiation:
+                return MathUtils.pow(leftValue, rightValue);
+            case LessEqual:
+                return MathUtils.number(leftValue <= rightValue);
+            case Less:
+                return MathUtils.number(leftValue < rightValue);
+            case GreaterEqual:
+                return MathUtils.number(leftValue >= rightValue);
+            case Greater:
+                return MathUtils.number(leftValue > rightValue);
+            case Equal:
+                return MathUtils.number(leftValue == rightValue);
+            default:
+                return MathUtils.number(leftValue != rightValue);
+        }
+    }
+
+    private static int getOperandCount(Symbol node) {
+        if (node.getType() == SymbolType.Function) {
+            FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)node;
+            return functionSymbol.getArguments().size();
+        }
+
+        int operandCount = 0;
+
+        while (operandCount < node.getChildCount() && node.getChild(operandCount) != null)
+            operandCount++;
+
+        return operandCount;
+    }
+
+    private static Symbol getOperand(Symbol node, int index) {
+        if (node.getType() == SymbolType.Function) {
+            FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)node;
+            return (Symbol)functionSymbol.getArguments().get(index).getRoot();
+        }
+
+        return (Symbol)node.getChild(index);
+    }
+}
@@ -0,0 +1,346 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the results of a pure user function. The entries are
+ * keyed on the exact bit patterns of the argument values, so <code>0.0</code>
+ * and <code>-0.0</code> or different <code>NaN</code> values are distinct
+ * keys. The cache is a set associative table of immutable entries: each key
+ * hashes to a set of four slots, and entries of a full set are evicted by the
+ * CLOCK algorithm, an approximation of least recently used eviction that only
+ * sets a flag on hits, so lookups allocate no memory. A function rarely called
+ * twice with the same arguments, like a function being plotted, bypasses its
+ * cache for a while whenever the hit rate of the last lookups is too low, so
+ * it does not pay for lookups that always miss.
+ * <p>
+ * The cache takes no lock. Slots and reference flags are updated with atomic
+ * operations, so threads calling the same function never wait for each other.
+ * Threads racing on a miss may cache the same result twice, and a result that
+ * can not be stored after a sweep of its set is not cached. The sample used
+ * to decide the bypass is counted without synchronization, so it is only
+ * approximate under contention.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see FunctionLiteralSymbol
+ * @see Interpreter#getFunctionCache(String, int)
+ */
+public class FunctionCache {
+    /**
+     * Cached result of a call. An entry is never modified, so a thread
+     * holding it reads a consistent result even if it is evicted meanwhile.
+     * @author Danilo Ferreira
+     * @version 1.0.0
+     * @see FunctionCache#find(double[])
+     */
+    public static final class Entry {
+        private final long[] keys;
+        private final double value;
+        private final int hash;
+
+        private Entry(double[] argumentValues, double value, int hash) {
+            keys = new long[argumentValues.length];
+
+            for (int i = 0; i < keys.length; i++)
+                keys[i] = Double.doubleToRawLongBits(argumentValues[i]);
+
+            this.value = value;
+            this.hash = hash;
+        }
+
+        /**
+         * Returns the cached result.
+         * @return The output value.
+         */
+        public double getValue() {
+            return value;
+        }
+
+        private boolean matches(double[] argumentValues, int hash) {
+            if (this.hash != hash)
+                return false;
+
+            for (int i = 0; i < keys.length; i++)
+                if (keys[i] != Double.doubleToRawLongBits(argumentValues[i]))
+                    return false;
+
+            return true;
+        }
+    }
+
+    private static final int SetSize = 4;
+
+    private static final int SampleSize = 1024;
+    private static final int MinimumSampleHitCount = SampleSize / 16;
+    private static final int BypassSize = 16 * SampleSize;
+
+    private final int argumentCount;
+    private final int capacity;
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final AtomicIntegerArray referenced;
+    private final AtomicIntegerArray clockHands;
+    private final int setCount;
+
+    private int sampleLookupCount;
+    private int sampleHitCount;
+    private final AtomicInteger bypassCount;
+
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+
+    /**
+     * Initializes an empty cache.
+     * @param argumentCount The argument count of the function
+     * @param capacity The maximum number of cached results
+     * @throws IllegalArgumentException Capacity less than one
+     */
+    public FunctionCache(int argumentCount, int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Cache capacity less than one.");
+
+        this.argumentCount = argumentCount;
+        this.capacity = capacity;
+
+        entries = new AtomicReferenceArray<>(capacity);
+        referenced = new AtomicIntegerArray(capacity);
+        setCount = (capacity + SetSize - 1) / SetSize;
+        clockHands = new AtomicIntegerArray(setCount);
+
+        bypassCount = new AtomicInteger();
+
+        hitCount = new LongAdder();
+        missCount = new LongAdder();
+        evictionCount = new LongAdder();
+    }
+
+    /**
+     * Returns whether a call should skip the cache because recent lookups
+     * rarely found a cached result. Each call to this method consumes one
+     * call of the bypass period.
+     * @return True if the call should not look up nor cache its result.
+     */
+    public boolean bypass() {
+        int count = bypassCount.get();
+
+        if (count == 0)
+            return false;
+
+        // A decrement lost to another thread only lengthens the bypass.
+        bypassCount.compareAndSet(count, count - 1);
+        return true;
+    }
+
+    /**
+     * Looks up the result of a call.
+     * @param argumentValues The values of function arguments
+     * @return The entry or null if the result is not cached.
+     * @see Entry#getValue()
+     */
+    public Entry find(double[] argumentValues) {
+        int hash = hash(argumentValues);
+        int first = getFirstSlot(hash);
+        int last = Math.min(first + SetSize, capacity);
+
+        Entry foundEntry = null;
+
+        for (int slot = first; slot < last; slot++) {
+            Entry entry = entries.get(slot);
+
+            if (entry != null && entry.matches(argumentValues, hash)) {
+                if (referenced.get(slot) == 0)
+                    referenced.lazySet(slot, 1);
+
+                foundEntry = entry;
+                break;
+            }
+        }
+
+        if (foundEntry == null)
+            missCount.increment();
+        else {
+            hitCount.increment();
+            sampleHitCount++;
+        }
+
+        if (++sampleLookupCount >= SampleSize) {
+            if (sampleHitCount < MinimumSampleHitCount)
+                bypassCount.set(BypassSize);
+
+            sampleLookupCount = 0;
+            sampleHitCount = 0;
+        }
+
+        return foundEntry;
+    }
+
+    /**
+     * Caches the result of a call. When the set of the call is full, the
+     * clock hand of the set sweeps its slots and evicts the first entry not
+     * referenced since the hand last passed over it.
+     * @param argumentValues The values of function arguments
+     * @param value The result of the call
+     */
+    public void put(double[] argumentValues, double value) {
+        int hash = hash(argumentValues);
+        int first = getFirstSlot(hash);
+        int slotCount = Math.min(SetSize, capacity - first);
+
+        Entry newEntry = new Entry(argumentValues, value, hash);
+
+        for (int slot = first; slot < first + slotCount; slot++) {
+            Entry entry = entries.get(slot);
+
+            if (entry == null) {
+                if (entries.compareAndSet(slot, null, newEntry))
+                    return;
+            } else if (entry.matches(argumentValues, hash)) {
+                entries.compareAndSet(slot, entry, newEntry);
+                return;
+            }
+        }
+
+        int set = first / SetSize;
+
+        for (int i = 0; i < 2 * slotCount; i++) {
+            int slot = first + Math.floorMod(clockHands.getAndIncrement(set), slotCount);
+
+            if (referenced.get(slot) != 0) {
+                referenced.set(slot, 0);
+                continue;
+            }
+
+            Entry entry = entries.get(slot);
+
+            if (entry != null && entries.compareAndSet(slot, entry, newEntry)) {
+                evictionCount.increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes all the cached results. The counters are preserved.
+     */
+    public void clear() {
+        for (int slot = 0; slot < capacity; slot++) {
+            entries.set(slot, null);
+            referenced.set(slot, 0);
+        }
+
+        sampleLookupCount = 0;
+        sampleHitCount = 0;
+        bypassCount.set(0);
+    }
+
+    /**
+     * Returns the argument count of the cached function.
+     * @return The argument count.
+     */
+    public int getArgumentCount() {
+        return argumentCount;
+    }
+
+    /**
+     * Returns the maximum number of cached results.
+     * @return The capacity.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of cached results.
+     * @return The entry count.
+     */
+    public int size() {
+        int size = 0;
+
+        for (int slot = 0; slot < capacity; slot++)
+            if (entries.get(slot) != null)
+                size++;
+
+        return size;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached result.
+     * @return The hit count.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of lookups that evaluated the function.
+     * @return The miss count.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns the number of results removed to respect the capacity.
+     * @return The eviction count.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups that found a cached result.
+     * @return The hit rate between zero and one, or zero if the cache was
+     * never used.
+     */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long lookupCount = hits + getMissCount();
+
+        return lookupCount != 0 ? (double)hits / lookupCount : 0;
+    }
+
+    private int getFirstSlot(int hash) {
+        return (int)(((hash & 0xFFFFFFFFL) * setCount) >>> 32) * SetSize;
+    }
+
+    private int hash(double[] argumentValues) {
+        long hash = argumentCount;
+
+        for (int i = 0; i < argumentCount; i++)
+            hash = (hash + Double.doubleToRawLongBits(argumentValues[i])) * 0x9E3779B97F4A7C15L;
+
+        return (int)(hash ^ (hash >>> 32));
+    }
+}
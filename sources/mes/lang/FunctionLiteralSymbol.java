@@ -29,34 +29,116 @@
 package mes.lang;
 
 import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import mes.lang.Closure.ClosureType;
 import mes.lang.ExceptionContent.ExceptionMessage;
+import mes.lang.JustInTimeCompiler.CompiledFunction;
 
 /**
  * Function type representation.
+ * <p>
+ * A function definition can be called from many threads at once. The closure
+ * and the code compiled from it are never changed by a call, the tier state
+ * is published through volatile fields and the JVM classes of all the
+ * definitions are compiled one at a time. The invocation counters that drive
+ * the promotion are not exact under contention.
  * @author Danilo Ferreira
  * @version 1.0.0
  * @see IdentifierLiteralSymbol
  */
 public class FunctionLiteralSymbol extends IdentifierLiteralSymbol {
-    private class ClosurePrecompiler extends TraversalFunction {
+    /**
+     * Execution tiers of function definitions.
+     * @see TieredExecution
+     */
+    public enum ExecutionTier {
+        /**
+         * Closure evaluated by walking its syntax tree.
+         */
+        Interpreted,
+        /**
+         * Closure executed as {@link mes.lang.Bytecode}.
+         */
+        Bytecode,
+        /**
+         * Closure compiled to a JVM class.
+         */
+        Compiled,
+        /**
+         * Native function.
+         */
+        Native
+    }
+
+    private class ClosurePrecompiler extends PostOrderTraversalFunction {
+        private ArrayList<IdentifierLiteralSymbol> unresolvedFunctions;
+
         public ClosurePrecompiler(SymbolTable globalSymbolTable) {
             super(globalSymbolTable);
+            unresolvedFunctions = new ArrayList<>();
+        }
+
+        public IdentifierLiteralSymbol[] getUnresolvedFunctions() {
+            return unresolvedFunctions.isEmpty() ? NoInlinedFunctions
+                    : unresolvedFunctions.toArray(
+                            new IdentifierLiteralSymbol[unresolvedFunctions.size()]);
         }
 
         @Override
-        public AbstractSyntaxNode traverse(AbstractSyntaxNode node) {
-            if (node == null)
-                return null;
+        protected boolean enter(AbstractSyntaxNode node) {
+            Symbol root = (Symbol)node;
+
+            if (root.getType() == SymbolType.Function) {
+                SymbolTable globalSymbolTable = (SymbolTable)arguments[0];
+                FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)root;
+
+                if (!globalSymbolTable.defines(functionSymbol))
+                    unresolvedFunctions.add(new FunctionLiteralSymbol(
+                            functionSymbol.getName(), functionSymbol.getArguments(),
+                            functionSymbol.getPosition()));
+            }
+
+            return true;
+        }
 
+        @Override
+        protected int getOperandCount(AbstractSyntaxNode node) {
+            Symbol root = (Symbol)node;
+
+            if (root.getType() == SymbolType.Function) {
+                FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)root;
+                return functionSymbol.getArguments().size();
+            }
+
+            return root.getChildCount();
+        }
+
+        @Override
+        protected AbstractSyntaxNode getOperand(AbstractSyntaxNode node, int index) {
             Symbol root = (Symbol)node;
 
-            for (AbstractSyntaxNode child : root.getChildren())
-                traverse(child);
+            if (root.getType() == SymbolType.Function) {
+                FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)root;
+                return functionSymbol.getArguments().get(index).getRoot();
+            }
+
+            return root.getChild(index);
+        }
 
-            if (root.isIdentifierLiteral()) {
+        @Override
+        protected AbstractSyntaxNode visit(AbstractSyntaxNode node,
+                AbstractSyntaxNode[] operands) {
+            Symbol root = (Symbol)node;
+
+            if (root.getType() == SymbolType.Function) {
+                IdentifierLiteralSymbol identifierSymbol
+                        = (IdentifierLiteralSymbol)root;
+
+                identifierSymbol.getClosure().setEmpty();
+            } else if (root.isIdentifierLiteral()) {
                 IdentifierLiteralSymbol identifierSymbol
                         = (IdentifierLiteralSymbol)root;
 
@@ -72,7 +154,42 @@ public class FunctionLiteralSymbol extends IdentifierLiteralSymbol {
         }
     }
 
+    private static final long serialVersionUID = -6862412967428381016L;
+
+    private static final int MinimumFlatNodeCount = 16;
+
+    private static final TieredExecution DefaultTieredExecution = new TieredExecution();
+
+    private static final Object CompilationLock = new Object();
+
+    private static final AtomicIntegerFieldUpdater<FunctionLiteralSymbol> ActiveCounts
+            = AtomicIntegerFieldUpdater.newUpdater(FunctionLiteralSymbol.class,
+                    "activeCount");
+
+    private static final IdentifierLiteralSymbol[] NoInlinedFunctions
+            = new IdentifierLiteralSymbol[0];
+
     private FunctionArgumentList arguments;
+    private AbstractSyntaxTree definitionTree;
+    private IdentifierLiteralSymbol[] inlinedFunctions;
+    private IdentifierLiteralSymbol[] unresolvedFunctions;
+
+    private transient TieredExecution tieredExecution;
+    private transient volatile ExecutionTier executionTier;
+    private transient long invocationCount;
+    private transient long recursionCount;
+    private transient volatile int activeCount;
+
+    private transient volatile Bytecode bytecode;
+    private transient volatile CompiledFunction compiledFunction;
+    private transient boolean compiling;
+    private transient volatile boolean compilationFailed;
+
+    private transient NativeFunction nativeFunction;
+
+    private transient volatile FunctionCache functionCache;
+    private transient volatile IdentifierLiteralSymbol[] cacheDependencies;
+    private transient volatile boolean pure;
 
     public FunctionLiteralSymbol() {
         this("", 0);
@@ -99,72 +216,25 @@ public class FunctionLiteralSymbol extends IdentifierLiteralSymbol {
     @Override
     public void evaluate(SymbolTable globalSymbolTable) {
         if (closure.getType() == ClosureType.Empty) {
-            if (!globalSymbolTable.contains(this))
+            if (!globalSymbolTable.defines(this))
                 throw new ExceptionContent(ExceptionMessage.UndefinedSymbol, position);
 
-            FunctionArgumentList functionArgumentIdentifiers = null;
-            Closure functionClosure = null;
-
-            for (IdentifierLiteralSymbol identifierSymbol : globalSymbolTable)
-                if (identifierSymbol.equals(this)) {
-                    FunctionLiteralSymbol functionSymbol
-                            = (FunctionLiteralSymbol)identifierSymbol;
-
-                    functionArgumentIdentifiers = functionSymbol.getArguments();
-                    functionClosure = functionSymbol.getClosure();
-
-                    break;
-                }
-
-            SymbolTable functionArgumentSymbols = new SymbolTable();
+            double[] argumentValues = new double[arguments.size()];
 
-            for (int i = 0; i < arguments.size(); i++) {
-                FunctionArgument argument = arguments.get(i);
-                FunctionArgument argumentIdentifier = functionArgumentIdentifiers.get(i);
-
-                NumberLiteralSymbol numberSymbol = (NumberLiteralSymbol)argument.traverse(
-                        new LiteralEvaluation(globalSymbolTable));
-                VariableLiteralSymbol variableSymbol
-                        = (VariableLiteralSymbol)argumentIdentifier.getRoot();
-
-                functionArgumentSymbols.add(new VariableLiteralSymbol(variableSymbol.getName(),
-                        numberSymbol.getDoubleValue(), numberSymbol.getPosition()));
-            }
+            for (int i = 0; i < argumentValues.length; i++)
+                argumentValues[i] = PrimitiveEvaluation.getInstance().evaluate(
+                        arguments.get(i).getRoot(), globalSymbolTable);
 
-            if (functionClosure.getType() == ClosureType.AbstractSyntaxTree) {
-                AbstractSyntaxTree abstractSyntaxTree = functionClosure.getAbstractSyntaxTree();
-                SymbolTable localSymbolTable = computeLocalSymbolTable(
-                        globalSymbolTable, functionArgumentSymbols);
-
-                LiteralSymbol literalSymbol = (LiteralSymbol)abstractSyntaxTree.traverse(
-                        new LiteralEvaluation(localSymbolTable));
-
-                value = literalSymbol.getDoubleValue();
-            } else
-                try {
-                    Stream<Number> parameters
-                            = functionArgumentSymbols.stream().map(this::mapArguments);
-
-                    Method method = functionClosure.getMethod();
-                    Object output = method.invoke(null, parameters.toArray());
-
-                    if (output instanceof Number) {
-                        Number number = (Number)output;
-                        value = number.doubleValue();
-                    } else {
-                        Boolean bool = (Boolean)output;
-                        value = MathUtils.number(bool);
-                    }
-                } catch (Exception exception) {
-                    throw new ExceptionContent(
-                            ExceptionMessage.FunctionEvaluationFailed, position);
-                }
+            evaluate(globalSymbolTable, argumentValues);
         } else {
             ensurePrototype();
 
             SymbolTable functionArgumentSymbols = new SymbolTable();
             AbstractSyntaxTree abstractSyntaxTree = closure.getAbstractSyntaxTree();
 
+            definitionTree = abstractSyntaxTree;
+            inlinedFunctions = NoInlinedFunctions;
+
             for (FunctionArgument argument : arguments) {
                 VariableLiteralSymbol identifierSymbol
                         = (VariableLiteralSymbol)argument.getRoot();
@@ -175,19 +245,455 @@ public class FunctionLiteralSymbol extends IdentifierLiteralSymbol {
             SymbolTable localSymbolTable = computeLocalSymbolTable(globalSymbolTable,
                     functionArgumentSymbols);
 
-            abstractSyntaxTree.traverse(new ClosurePrecompiler(localSymbolTable));
+            ClosurePrecompiler closurePrecompiler
+                    = new ClosurePrecompiler(localSymbolTable);
+
+            abstractSyntaxTree.traverse(closurePrecompiler);
+
+            unresolvedFunctions = closurePrecompiler.getUnresolvedFunctions();
+            addDependencies(unresolvedFunctions);
+
+            TieredExecution policy = getTieredExecution();
+
+            if (policy.isOptimizationEnabled()) {
+                ClosureOptimizer closureOptimizer = new ClosureOptimizer(this,
+                        localSymbolTable);
+
+                abstractSyntaxTree = closureOptimizer.optimize(abstractSyntaxTree);
+                inlinedFunctions = closureOptimizer.getInlinedFunctions();
+                closure.setAbstractSyntaxTree(abstractSyntaxTree);
+
+                addDependencies(inlinedFunctions);
+
+                if (policy.isOptimizationDumpEnabled())
+                    System.err.printf("%s = %s%n", closureOptimizer.format(this),
+                            closureOptimizer.format(abstractSyntaxTree.getRoot()));
+            }
+
+            FlatSyntaxTree flatSyntaxTree = new FlatSyntaxTree(
+                    abstractSyntaxTree.getRoot(), arguments);
+
+            if (flatSyntaxTree.getNodeCount() >= MinimumFlatNodeCount
+                    || flatSyntaxTree.getTemporaryCount() != 0)
+                closure.setFlatSyntaxTree(flatSyntaxTree);
         }
     }
 
-    @Override
-    public void precompile(SymbolTable globalSymbolTable) {
-        if (!globalSymbolTable.contains(this))
+    /**
+     * Evaluates a call to this function with arguments already evaluated. The
+     * function definition is looked up in the symbol table and the result is
+     * stored in this symbol, so calls shared between threads are evaluated by
+     * {@link PrimitiveEvaluation} instead.
+     * @param globalSymbolTable The symbol table with the function definition
+     * @param argumentValues The values of function arguments
+     * @throws ExceptionContent Undefined function or evaluation failure
+     * @see #evaluate(SymbolTable)
+     */
+    public void evaluate(SymbolTable globalSymbolTable, double[] argumentValues) {
+        FunctionLiteralSymbol functionDefinition
+                = (FunctionLiteralSymbol)resolve(globalSymbolTable);
+
+        if (functionDefinition == null)
             throw new ExceptionContent(ExceptionMessage.UndefinedSymbol, position);
 
-        for (FunctionArgument argument : arguments)
-            argument.traverse(new ClosurePrecompiler(globalSymbolTable));
+        value = functionDefinition.invoke(globalSymbolTable, argumentValues, position);
+    }
+
+    /**
+     * Invokes the closure of this function definition on its current execution
+     * tier. The invocation is counted and the function is promoted to a
+     * higher tier when it crosses the thresholds of its tiered execution
+     * policy, which also limits the depth of nested calls. Results of pure
+     * functions are looked up in the function cache first, which takes no
+     * lock.
+     * @param globalSymbolTable The symbol table used to resolve identifiers
+     * @param argumentValues The values of function arguments in definition
+     * order
+     * @param position The position of the function call at the source code
+     * @return The output value.
+     * @throws ExceptionContent Undefined symbol, maximum call depth exceeded or
+     * evaluation failure
+     * @see TieredExecution
+     */
+    public double invoke(SymbolTable globalSymbolTable, double[] argumentValues,
+            int position) {
+        if (closure.getType() == ClosureType.Method)
+            return getNativeFunction().invoke(argumentValues, position);
+
+        FunctionCache cache = getFunctionCache(globalSymbolTable);
+
+        if (cache == null || cache.bypass())
+            return execute(globalSymbolTable, argumentValues, position);
+
+        FunctionCache.Entry entry = cache.find(argumentValues);
+
+        if (entry != null)
+            return entry.getValue();
+
+        double value = execute(globalSymbolTable, argumentValues, position);
+        cache.put(argumentValues, value);
+
+        return value;
+    }
+
+    /**
+     * Returns the cache of results of this function definition. The closure
+     * is analyzed on the first call: functions that reach an impure native
+     * function, like <code>rand</code> or <code>seed</code>, are never
+     * cached. The variables and user functions reached by the closure are
+     * recorded as dependencies, so redefining any of them clears the cache.
+     * @param globalSymbolTable The symbol table used to resolve identifiers
+     * @return The function cache or null if the function is not pure or the
+     * cache capacity is zero.
+     * @see ExportSymbol#pure()
+     * @see TieredExecution#getCacheCapacity()
+     */
+    public FunctionCache getFunctionCache(SymbolTable globalSymbolTable) {
+        int cacheCapacity = getTieredExecution().getCacheCapacity();
+
+        if (cacheCapacity == 0 || closure.getType() == ClosureType.Method)
+            return null;
+
+        if (cacheDependencies == null) {
+            // Threads racing on the first call analyze the same closure.
+            ArrayList<IdentifierLiteralSymbol> dependencies = new ArrayList<>();
+
+            pure = findCacheDependencies(globalSymbolTable, dependencies);
+            cacheDependencies = dependencies.toArray(
+                    new IdentifierLiteralSymbol[dependencies.size()]);
+
+            addDependencies(cacheDependencies);
+        }
+
+        if (!pure)
+            return null;
+
+        FunctionCache cache = functionCache;
+
+        if (cache == null || cache.getCapacity() != cacheCapacity)
+            synchronized (this) {
+                cache = functionCache;
+
+                if (cache == null || cache.getCapacity() != cacheCapacity)
+                    functionCache = cache = new FunctionCache(arguments.size(),
+                            cacheCapacity);
+            }
+
+        return cache;
+    }
+
+    /**
+     * Returns the cache of results of this function definition without
+     * analyzing the closure.
+     * @return The function cache or null if the function was not called
+     * since it was defined or last invalidated, is not pure or the cache
+     * capacity is zero.
+     */
+    public FunctionCache getFunctionCache() {
+        if (!pure || getTieredExecution().getCacheCapacity() == 0)
+            return null;
+
+        return functionCache;
+    }
+
+    private double execute(SymbolTable globalSymbolTable, double[] argumentValues,
+            int position) {
+        promote(globalSymbolTable);
+
+        CompiledFunction currentFunction = compiledFunction;
+        Bytecode currentBytecode = bytecode;
+
+        int callDepthLimit = getTieredExecution().getCallDepthLimit();
+        PrimitiveEvaluation evaluation = PrimitiveEvaluation.getInstance();
+        int callDepth = evaluation.enterCall(callDepthLimit, position);
+
+        ActiveCounts.incrementAndGet(this);
+
+        try {
+            if (currentFunction != null)
+                return invokeCompiledFunction(currentFunction, argumentValues,
+                        callDepthLimit - callDepth, position);
+            else if (currentBytecode != null)
+                return VirtualMachine.execute(currentBytecode, globalSymbolTable,
+                        argumentValues);
+
+            return interpret(globalSymbolTable, argumentValues);
+        } catch (StackOverflowError error) {
+            throw new ExceptionContent(ExceptionMessage.CallDepthExceeded, position);
+        } finally {
+            ActiveCounts.decrementAndGet(this);
+            evaluation.exitCall();
+        }
+    }
+
+    /**
+     * Compiles the closure of this function definition to a JVM class and
+     * moves it to the compiled tier. User functions called by the closure are
+     * compiled too. Only one thread compiles at a time.
+     * @param globalSymbolTable The symbol table used to resolve identifiers
+     * @return The compiled function or null if the closure can not be
+     * compiled.
+     * @see JustInTimeCompiler
+     */
+    public CompiledFunction compile(SymbolTable globalSymbolTable) {
+        CompiledFunction currentFunction = compiledFunction;
+
+        if (currentFunction != null || compilationFailed)
+            return currentFunction;
+
+        synchronized (CompilationLock) {
+            if (compiledFunction != null || compiling || compilationFailed)
+                return compiledFunction;
+
+            FlatSyntaxTree flatSyntaxTree = getFlatSyntaxTree();
+
+            if (flatSyntaxTree == null)
+                return null;
+
+            compiling = true;
+
+            try {
+                currentFunction = JustInTimeCompiler.compile(this, flatSyntaxTree,
+                        globalSymbolTable);
+            } finally {
+                compiling = false;
+            }
+
+            if (currentFunction == null)
+                compilationFailed = true;
+            else {
+                compiledFunction = currentFunction;
+                executionTier = ExecutionTier.Compiled;
+
+                addDependencies(currentFunction.getDependencies());
+            }
+
+            return currentFunction;
+        }
+    }
+
+    /**
+     * Drops this function definition back to the interpreted tier, resets
+     * its counters and clears its cache. Called when a symbol the compiled
+     * closure or the cache depends on is redefined. The closure is analyzed
+     * again on the next call.
+     * @see #dependsOn(IdentifierLiteralSymbol)
+     */
+    public void deoptimize() {
+        FunctionCache cache = functionCache;
+
+        executionTier = ExecutionTier.Interpreted;
+        invocationCount = 0;
+        recursionCount = 0;
+
+        bytecode = null;
+        compiledFunction = null;
+        compilationFailed = false;
+
+        if (cache != null)
+            cache.clear();
+
+        cacheDependencies = null;
+        pure = false;
+    }
+
+    /**
+     * Optimizes the closure of this function definition again from its
+     * source, if other user functions were inlined into it or it calls user
+     * functions that were not defined yet. Called after one of them is
+     * defined or redefined.
+     * @param globalSymbolTable The symbol table used to resolve identifiers of
+     * the closure
+     * @see ClosureOptimizer
+     */
+    public void reoptimize(SymbolTable globalSymbolTable) {
+        if (getInlinedFunctions().length == 0 && getUnresolvedFunctions().length == 0
+                || definitionTree == null)
+            return;
+
+        closure.setAbstractSyntaxTree(definitionTree);
+
+        deoptimize();
+        evaluate(globalSymbolTable);
+    }
+
+    /**
+     * Returns the user functions inlined into the closure of this function
+     * definition.
+     * @return The inlined functions.
+     */
+    public IdentifierLiteralSymbol[] getInlinedFunctions() {
+        return inlinedFunctions != null ? inlinedFunctions : NoInlinedFunctions;
+    }
+
+    /**
+     * Returns placeholders for the functions called by the closure of this
+     * function definition that were not defined when it was defined, such as
+     * the other half of mutually recursive functions. Those calls are
+     * resolved when executed, and the placeholders are the dependencies
+     * through which this definition is optimized again once they are
+     * defined.
+     * @return The placeholders of the undefined functions.
+     * @see #reoptimize(SymbolTable)
+     */
+    public IdentifierLiteralSymbol[] getUnresolvedFunctions() {
+        return unresolvedFunctions != null ? unresolvedFunctions : NoInlinedFunctions;
+    }
+
+    /**
+     * Records this function definition as a dependent of the user functions
+     * inlined into its closure and of the placeholders of the undefined ones.
+     * Called for definitions that were not built
+     * in this session, such as the ones read from a document.
+     * @see IdentifierLiteralSymbol#addDependent(FunctionLiteralSymbol)
+     */
+    public void registerDependencies() {
+        addDependencies(getInlinedFunctions());
+        addDependencies(getUnresolvedFunctions());
+    }
+
+    /**
+     * Returns whether the closure, the bytecode, the compiled closure or the
+     * cache of this function definition was built from the given symbol
+     * definition.
+     * @param identifierSymbol The symbol definition
+     * @return True if the symbol definition is a dependency.
+     */
+    public boolean dependsOn(IdentifierLiteralSymbol identifierSymbol) {
+        Bytecode currentBytecode = bytecode;
+
+        if (currentBytecode != null && currentBytecode.dependsOn(identifierSymbol))
+            return true;
+
+        if (compiledFunction != null && compiledFunction.dependsOn(identifierSymbol))
+            return true;
+
+        for (IdentifierLiteralSymbol inlinedFunction : getInlinedFunctions())
+            if (inlinedFunction == identifierSymbol)
+                return true;
+
+        for (IdentifierLiteralSymbol unresolvedFunction : getUnresolvedFunctions())
+            if (unresolvedFunction == identifierSymbol)
+                return true;
+
+        if (cacheDependencies != null)
+            for (IdentifierLiteralSymbol dependency : cacheDependencies)
+                if (dependency == identifierSymbol)
+                    return true;
+
+        return false;
+    }
+
+    public void setTieredExecution(TieredExecution tieredExecution) {
+        this.tieredExecution = tieredExecution;
+    }
+
+    public TieredExecution getTieredExecution() {
+        return tieredExecution != null ? tieredExecution : DefaultTieredExecution;
+    }
+
+    /**
+     * Returns the closure of this function definition compiled to bytecode.
+     * @return The bytecode or null if the closure was not compiled to
+     * bytecode.
+     */
+    public Bytecode getBytecode() {
+        return bytecode;
+    }
+
+    public ExecutionTier getExecutionTier() {
+        if (closure.getType() == ClosureType.Method)
+            return ExecutionTier.Native;
+
+        return executionTier != null ? executionTier : ExecutionTier.Interpreted;
+    }
+
+    public long getInvocationCount() {
+        return invocationCount;
+    }
+
+    public long getRecursionCount() {
+        return recursionCount;
+    }
+
+    public boolean isCompilationFailed() {
+        return compilationFailed;
+    }
+
+    public void setNativeFunction(NativeFunction nativeFunction) {
+        this.nativeFunction = nativeFunction;
+    }
+
+    /**
+     * Returns the direct invoker of the native closure of this function
+     * definition. The method is bound on the first call if the definition was
+     * not imported with an invoker nor from a symbol registry.
+     * @return The native invoker.
+     * @throws ExceptionContent Native function not accessible or with
+     * unsupported types
+     * @see SymbolImporter
+     */
+    public NativeFunction getNativeFunction() {
+        if (nativeFunction == null)
+            nativeFunction = closure.getNativeFunction();
+
+        if (nativeFunction == null)
+            try {
+                nativeFunction = NativeFunction.bind(closure.getMethod());
+            } catch (IllegalAccessException | IllegalArgumentException exception) {
+                throw new ExceptionContent(ExceptionMessage.FunctionEvaluationFailed,
+                        position);
+            }
+
+        return nativeFunction;
+    }
+
+    /**
+     * Returns the function definition with the given name and argument count.
+     * @param globalSymbolTable The symbol table with function definitions
+     * @param name The function name
+     * @param argumentCount The function argument count
+     * @return The function definition or null if it is not defined.
+     */
+    public static FunctionLiteralSymbol findDefinition(SymbolTable globalSymbolTable,
+            String name, int argumentCount) {
+        return (FunctionLiteralSymbol)globalSymbolTable.find(name, SymbolType.Function,
+                argumentCount);
+    }
+
+    /**
+     * Returns whether the closure of this function definition is a native
+     * function that always gives the same result for the same arguments and
+     * has no side effect.
+     * @return True if the closure is a pure native function.
+     * @see NativeFunction#isPure()
+     */
+    public boolean isPureNative() {
+        if (closure.getType() != ClosureType.Method)
+            return false;
+
+        NativeFunction currentFunction = nativeFunction != null
+                ? nativeFunction : closure.getNativeFunction();
+
+        return currentFunction != null ? currentFunction.isPure()
+                : isPure(closure.getMethod());
+    }
 
-        closure.setEmpty();
+    /**
+     * Returns whether a native function always gives the same result for the
+     * same arguments and has no side effect.
+     * @param method The native function
+     * @return True if the function is pure.
+     * @see ExportSymbol#pure()
+     */
+    public static boolean isPure(Method method) {
+        ExportSymbol annotation = method.getAnnotation(ExportSymbol.class);
+        return annotation == null || annotation.pure();
+    }
+
+    @Override
+    public void precompile(SymbolTable globalSymbolTable) {
+        new ClosurePrecompiler(globalSymbolTable).traverse(this);
     }
 
     @Override
@@ -237,17 +743,144 @@ public class FunctionLiteralSymbol extends IdentifierLiteralSymbol {
         }
     }
 
+    private void promote(SymbolTable globalSymbolTable) {
+        invocationCount++;
+
+        if (activeCount != 0)
+            recursionCount++;
+
+        ExecutionTier currentTier = getExecutionTier();
+
+        if (currentTier == ExecutionTier.Compiled)
+            return;
+
+        TieredExecution policy = getTieredExecution();
+
+        if ((invocationCount >= policy.getCompilationThreshold()
+                || recursionCount >= policy.getRecursionThreshold())
+                && compile(globalSymbolTable) != null)
+            return;
+
+        if (currentTier == ExecutionTier.Interpreted
+                && invocationCount >= policy.getBytecodeThreshold()) {
+            Bytecode currentBytecode;
+
+            if (closure.getType() == ClosureType.AbstractSyntaxTree)
+                currentBytecode = BytecodeCompiler.compile(
+                        closure.getAbstractSyntaxTree().getRoot(), arguments,
+                        globalSymbolTable);
+            else
+                currentBytecode = BytecodeCompiler.compile(closure.getFlatSyntaxTree(),
+                        globalSymbolTable);
+
+            if (currentBytecode != null) {
+                bytecode = currentBytecode;
+                executionTier = ExecutionTier.Bytecode;
+
+                addDependencies(currentBytecode.getDependencies());
+            }
+        }
+    }
+
+    private double interpret(SymbolTable globalSymbolTable, double[] argumentValues) {
+        if (closure.getType() == ClosureType.FlatSyntaxTree)
+            return closure.getFlatSyntaxTree().evaluate(globalSymbolTable, argumentValues);
+
+        return PrimitiveEvaluation.getInstance().evaluate(
+                closure.getAbstractSyntaxTree().getRoot(), arguments, argumentValues,
+                globalSymbolTable);
+    }
+
+    private double invokeCompiledFunction(CompiledFunction currentFunction,
+            double[] argumentValues, int callDepth, int position) {
+        try {
+            return (double)currentFunction.getMethodHandle().invokeExact(argumentValues,
+                    callDepth);
+        } catch (ExceptionContent | StackOverflowError exception) {
+            throw exception;
+        } catch (Throwable throwable) {
+            throw new ExceptionContent(
+                    ExceptionMessage.FunctionEvaluationFailed, position);
+        }
+    }
+
+    private FlatSyntaxTree getFlatSyntaxTree() {
+        switch (closure.getType()) {
+            case AbstractSyntaxTree:
+                return new FlatSyntaxTree(closure.getAbstractSyntaxTree().getRoot(),
+                        arguments);
+            case FlatSyntaxTree:
+                return closure.getFlatSyntaxTree();
+            default:
+                return null;
+        }
+    }
+
+    private boolean findCacheDependencies(SymbolTable globalSymbolTable,
+            ArrayList<IdentifierLiteralSymbol> dependencies) {
+        ArrayDeque<FunctionLiteralSymbol> pendingDefinitions = new ArrayDeque<>();
+
+        pendingDefinitions.add(this);
+
+        while (!pendingDefinitions.isEmpty()) {
+            FlatSyntaxTree flatSyntaxTree = pendingDefinitions.poll().getFlatSyntaxTree();
+
+            if (flatSyntaxTree == null)
+                return false;
+
+            for (int i = 0; i < flatSyntaxTree.getNodeCount(); i++)
+                if (flatSyntaxTree.getType(i) == SymbolType.Variable
+                        && !flatSyntaxTree.isArgument(i)) {
+                    VariableLiteralSymbol variableDefinition = VariableLiteralSymbol.findDefinition(
+                            globalSymbolTable, flatSyntaxTree.getName(i));
+
+                    if (variableDefinition == null)
+                        return false;
+
+                    if (!containsIdentity(dependencies, variableDefinition))
+                        dependencies.add(variableDefinition);
+                } else if (flatSyntaxTree.getType(i) == SymbolType.Function) {
+                    FunctionLiteralSymbol calleeDefinition = findDefinition(globalSymbolTable,
+                            flatSyntaxTree.getName(i), flatSyntaxTree.getChildCount(i));
+
+                    if (calleeDefinition == null)
+                        return false;
+
+                    if (calleeDefinition.getClosure().getType() == ClosureType.Method) {
+                        if (!calleeDefinition.isPureNative())
+                            return false;
+                    } else if (calleeDefinition != this
+                            && !containsIdentity(dependencies, calleeDefinition)) {
+                        dependencies.add(calleeDefinition);
+                        pendingDefinitions.add(calleeDefinition);
+                    }
+                }
+        }
+
+        return true;
+    }
+
+    private void addDependencies(IdentifierLiteralSymbol[] dependencies) {
+        for (IdentifierLiteralSymbol dependency : dependencies)
+            dependency.addDependent(this);
+    }
+
+    private static boolean containsIdentity(ArrayList<IdentifierLiteralSymbol> symbols,
+            IdentifierLiteralSymbol identifierSymbol) {
+        for (IdentifierLiteralSymbol symbol : symbols)
+            if (symbol == identifierSymbol)
+                return true;
+
+        return false;
+    }
+
     private SymbolTable computeLocalSymbolTable(SymbolTable globalSymbolTable,
             SymbolTable functionArgumentSymbols) {
-        SymbolTable localSymbolTable = new SymbolTable();
+        SymbolTable localSymbolTable = new SymbolTable(globalSymbolTable);
 
         localSymbolTable.addAll(functionArgumentSymbols);
-        localSymbolTable.addAll(globalSymbolTable);
+        localSymbolTable.add(this);
 
         return localSymbolTable;
     }
-
-    private Number mapArguments(IdentifierLiteralSymbol argumentSymbol) {
-        return argumentSymbol.getDoubleValue();
-    }
 }
\ No newline at end of file
@@ -35,6 +35,8 @@ package mes.lang;
  * @see BinaryOperatorSymbol
  */
 public class GreaterOperatorSymbol extends BinaryOperatorSymbol {
+    private static final long serialVersionUID = -689266487199848898L;
+
     /**
      * Initializes the greater operator.
      */
@@ -46,7 +48,7 @@ public class GreaterOperatorSymbol extends BinaryOperatorSymbol {
      * Initializes the greater operator. By default the greater operator is left
      * associative with precedence 5.
      * @param position The symbol position at the source code
-     * @see Lexer#Lexer(String)
+     * @see Lexer#Lexer(CharSequence)
      * @see OperatorData
      */
     public GreaterOperatorSymbol(int position) {
@@ -57,11 +59,7 @@ public class GreaterOperatorSymbol extends BinaryOperatorSymbol {
      * {@inheritDoc}
      */
     @Override
-    public LiteralSymbol evaluate(Symbol[] symbols) {
-        LiteralSymbol leftOperand = (LiteralSymbol)symbols[0];
-        LiteralSymbol rightOperand = (LiteralSymbol)symbols[1];
-
-        return new NumberLiteralSymbol(leftOperand.getDoubleValue()
-                > rightOperand.getDoubleValue(), position);
+    public double evaluate(double leftOperand, double rightOperand) {
+        return MathUtils.number(leftOperand > rightOperand);
     }
 }
\ No newline at end of file
@@ -29,7 +29,11 @@
 package mes.lang;
 
 import java.io.Serializable;
-import mes.lang.ExceptionContent.ExceptionMessage;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 /**
  * Identifier type abstraction.
@@ -40,43 +44,17 @@ import mes.lang.ExceptionContent.ExceptionMessage;
  */
 public abstract class IdentifierLiteralSymbol extends LiteralSymbol
         implements Serializable, Comparable<IdentifierLiteralSymbol> {
-    protected class LiteralEvaluation extends TraversalFunction {
-        public LiteralEvaluation(SymbolTable globalSymbolTable) {
-            super(globalSymbolTable);
-        }
-
-        @Override
-        public AbstractSyntaxNode traverse(AbstractSyntaxNode node) {
-            if (node == null)
-                return null;
-
-            Symbol root = (Symbol)node;
-            LiteralSymbol[] literalSymbols = new LiteralSymbol[root.getChildCount()];
-
-            for (int i = 0; i < literalSymbols.length; i++)
-                literalSymbols[i] = (LiteralSymbol)traverse(root.getChild(i));
-
-            if (root.isIdentifierLiteral()) {
-                IdentifierLiteralSymbol identifierSymbol = (IdentifierLiteralSymbol)root;
-
-                SymbolTable globalSymbolTable = (SymbolTable)arguments[0];
-                identifierSymbol.evaluate(globalSymbolTable);
-
-                return identifierSymbol.getNumberLiteralSymbol();
-            } else if (root.getType() == SymbolType.Number)
-                return root;
-            else if (root.getType() == SymbolType.Assignment)
-                throw new ExceptionContent(ExceptionMessage.IllegalExpressionAssignment,
-                        root.getPosition());
+    private static final long serialVersionUID = 4959732757757972141L;
 
-            OperatorSymbol operatorSymbol = (OperatorSymbol)root;
-            return operatorSymbol.evaluate(literalSymbols);
-        }
-    }
+    private static final Object DependentsLock = new Object();
 
     protected String name;
     protected Closure closure;
 
+    private transient int atom;
+    private transient InlineCache inlineCache;
+    private transient ArrayList<WeakReference<FunctionLiteralSymbol>> dependents;
+
     protected String documentation;
 
     public IdentifierLiteralSymbol(String name, double doubleValue,
@@ -90,6 +68,7 @@ public abstract class IdentifierLiteralSymbol extends LiteralSymbol
 
     public void setName(String name) {
         this.name = name;
+        atom = AtomTable.NoAtom;
     }
 
     public void setClosure(Closure closure) {
@@ -104,6 +83,98 @@ public abstract class IdentifierLiteralSymbol extends LiteralSymbol
         return name;
     }
 
+    /**
+     * Returns the interned name of this symbol. The name is looked up on the
+     * first call, and again after it changes or the symbol is deserialized,
+     * but it is only interned when the symbol is defined, so references to
+     * undefined names do not grow the atom table.
+     * @return The name atom or {@link AtomTable#NoAtom} if no symbol with
+     * this name was defined.
+     * @see AtomTable
+     * @see #internAtom()
+     */
+    public int getAtom() {
+        if (atom == AtomTable.NoAtom)
+            atom = AtomTable.lookup(name);
+
+        return atom;
+    }
+
+    /**
+     * Interns the name of this symbol. Called when the symbol is added to a
+     * symbol table.
+     * @return The name atom.
+     * @see #getAtom()
+     */
+    public int internAtom() {
+        if (atom == AtomTable.NoAtom)
+            atom = AtomTable.intern(name);
+
+        return atom;
+    }
+
+    /**
+     * Returns the definition this symbol refers to, resolved through the
+     * inline cache of this reference.
+     * @param globalSymbolTable The symbol table used to resolve the symbol
+     * @return The definition or null if it is not defined.
+     * @see InlineCache
+     */
+    public IdentifierLiteralSymbol resolve(SymbolTable globalSymbolTable) {
+        inlineCache = InlineCache.resolve(inlineCache, globalSymbolTable, this);
+        return inlineCache.getDefinition();
+    }
+
+    /**
+     * Records a user function built from this definition, so redefining this
+     * definition only visits the functions that may depend on it. Functions
+     * that are no longer reachable and repeated records are dropped as the
+     * record grows.
+     * @param functionSymbol The dependent function definition
+     * @see FunctionLiteralSymbol#dependsOn(IdentifierLiteralSymbol)
+     */
+    public void addDependent(FunctionLiteralSymbol functionSymbol) {
+        synchronized (DependentsLock) {
+            if (dependents == null)
+                dependents = new ArrayList<>();
+
+            int dependentCount = dependents.size();
+
+            if (dependentCount >= 16 && (dependentCount & (dependentCount - 1)) == 0) {
+                Set<FunctionLiteralSymbol> functionSymbols
+                        = Collections.newSetFromMap(new IdentityHashMap<>());
+
+                dependents.removeIf(dependent -> !functionSymbols.add(dependent.get()));
+                dependents.removeIf(dependent -> dependent.get() == null);
+            }
+
+            dependents.add(new WeakReference<>(functionSymbol));
+        }
+    }
+
+    /**
+     * Returns the user functions recorded as dependents of this definition.
+     * A recorded function may have been deoptimized or redefined since, so it
+     * no longer depends on this definition.
+     * @return A new list with the dependent function definitions.
+     * @see #addDependent(FunctionLiteralSymbol)
+     */
+    public ArrayList<FunctionLiteralSymbol> getDependents() {
+        ArrayList<FunctionLiteralSymbol> functionSymbols = new ArrayList<>();
+
+        synchronized (DependentsLock) {
+            if (dependents != null)
+                for (WeakReference<FunctionLiteralSymbol> dependent : dependents) {
+                    FunctionLiteralSymbol functionSymbol = dependent.get();
+
+                    if (functionSymbol != null)
+                        functionSymbols.add(functionSymbol);
+                }
+        }
+
+        return functionSymbols;
+    }
+
     public Closure getClosure() {
         return closure;
     }
@@ -126,7 +197,7 @@ public abstract class IdentifierLiteralSymbol extends LiteralSymbol
     public boolean equals(Object other) {
         IdentifierLiteralSymbol identifierSymbol = (IdentifierLiteralSymbol)other;
 
-        if (type != identifierSymbol.getType() || !name.equals(identifierSymbol.getName()))
+        if (type != identifierSymbol.getType() || !hasSameName(identifierSymbol))
             return false;
 
         if (type == SymbolType.Function) {
@@ -145,7 +216,7 @@ public abstract class IdentifierLiteralSymbol extends LiteralSymbol
     public int compareTo(IdentifierLiteralSymbol other) {
         if (type != other.getType())
             return other.getType() != SymbolType.Variable ? -1 : 1;
-        else if (!name.equals(other.getName()))
+        else if (!hasSameName(other))
             return name.compareTo(other.getName());
         else if (type == SymbolType.Function) {
             FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)this;
@@ -160,4 +231,14 @@ public abstract class IdentifierLiteralSymbol extends LiteralSymbol
 
         return 0;
     }
+
+    private boolean hasSameName(IdentifierLiteralSymbol other) {
+        int thisAtom = getAtom();
+        int otherAtom = other.getAtom();
+
+        if (thisAtom != AtomTable.NoAtom && otherAtom != AtomTable.NoAtom)
+            return thisAtom == otherAtom;
+
+        return name.equals(other.getName());
+    }
 }
\ No newline at end of file
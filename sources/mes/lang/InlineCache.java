@@ -0,0 +1,115 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import mes.lang.Symbol.SymbolType;
+import mes.lang.SymbolTable.SymbolKey;
+
+/**
+ * Resolved definition of a global symbol reference, stamped with the symbol
+ * table and the version of the symbol key it was resolved against. A
+ * reference is looked up again only after a definition with a key of the same
+ * version stripe is added to or removed from the scope chain, so hot loops
+ * resolve each call site once and redefining ANS after each statement keeps
+ * the other caches. Caches are immutable and may be
+ * replaced by concurrent evaluations without synchronization.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see SymbolTable
+ */
+public final class InlineCache {
+    private final SymbolTable symbolTable;
+    private final SymbolKey key;
+    private final long version;
+    private final IdentifierLiteralSymbol definition;
+
+    private InlineCache(SymbolTable symbolTable, SymbolKey key, long version,
+            IdentifierLiteralSymbol definition) {
+        this.symbolTable = symbolTable;
+        this.key = key;
+        this.version = version;
+        this.definition = definition;
+    }
+
+    public IdentifierLiteralSymbol getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Returns whether the cache is still valid for a symbol table. A
+     * reference to a name that was never interned is resolved again on every
+     * use, since the name gets its atom only when it is first defined.
+     * @param symbolTable The symbol table used to resolve the reference
+     * @return True if the table is the same and no definition of the
+     * version stripe of the reference changed since it was resolved.
+     */
+    public boolean isValid(SymbolTable symbolTable) {
+        return this.symbolTable == symbolTable && key.hasAtom()
+                && version == symbolTable.getVersion(key);
+    }
+
+    /**
+     * Resolves a symbol reference through its cache.
+     * @param inlineCache The current cache of the reference or null
+     * @param symbolTable The symbol table used to resolve the reference
+     * @param identifierSymbol The symbol reference
+     * @return The given cache if it is still valid or a new cache.
+     */
+    public static InlineCache resolve(InlineCache inlineCache, SymbolTable symbolTable,
+            IdentifierLiteralSymbol identifierSymbol) {
+        if (inlineCache != null && inlineCache.isValid(symbolTable))
+            return inlineCache;
+
+        return resolve(symbolTable, new SymbolKey(identifierSymbol));
+    }
+
+    /**
+     * Resolves a symbol reference given by name through its cache.
+     * @param inlineCache The current cache of the reference or null
+     * @param symbolTable The symbol table used to resolve the reference
+     * @param name The symbol name
+     * @param type The symbol type, variable or function
+     * @param argumentCount The function argument count, ignored for variables
+     * @return The given cache if it is still valid or a new cache.
+     */
+    public static InlineCache resolve(InlineCache inlineCache, SymbolTable symbolTable,
+            String name, SymbolType type, int argumentCount) {
+        if (inlineCache != null && inlineCache.isValid(symbolTable))
+            return inlineCache;
+
+        return resolve(symbolTable, new SymbolKey(AtomTable.lookup(name), type,
+                argumentCount));
+    }
+
+    private static InlineCache resolve(SymbolTable symbolTable, SymbolKey key) {
+        long version = symbolTable.getVersion(key);
+
+        return new InlineCache(symbolTable, key, version, symbolTable.find(key));
+    }
+}
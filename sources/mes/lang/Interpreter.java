@@ -28,11 +28,24 @@
 
 package mes.lang;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 import mes.lang.ExceptionContent.ExceptionMessage;
+import mes.lang.FunctionLiteralSymbol.ExecutionTier;
 import mes.lang.Symbol.SymbolType;
 
 /**
  * Interpreter implementation for the language specification.
+ * <p>
+ * A session can be shared between threads. Statements are evaluated
+ * concurrently over the same symbol table, while definitions and updates of
+ * the symbol table are serialized. Evaluation never writes into the parsed
+ * statements nor into the closures of definitions: those are shared by every
+ * thread, and the evaluation state of each thread lives in its own
+ * {@link PrimitiveEvaluation} and virtual machine frames.
  * @author Danilo Ferreira, João de Oliveira and Lucas Alves
  * @version 1.0.0
  * @see Lexer
@@ -40,20 +53,29 @@ import mes.lang.Symbol.SymbolType;
  * @see TraversalFunction
  */
 public class Interpreter {
-    private class ExpressionEvaluation extends TraversalFunction {
+    private class ExpressionEvaluation extends PostOrderTraversalFunction {
         public ExpressionEvaluation() {
             super();
         }
 
         @Override
-        public AbstractSyntaxNode traverse(AbstractSyntaxNode node) {
-            if (node == null)
-                return null;
+        protected boolean enter(AbstractSyntaxNode node) {
+            Symbol root = (Symbol)node;
+            return root.getType() != SymbolType.Assignment;
+        }
+
+        @Override
+        protected AbstractSyntaxNode[] createOperands(int operandCount) {
+            return new Symbol[operandCount];
+        }
 
+        @Override
+        protected AbstractSyntaxNode visit(AbstractSyntaxNode node,
+                AbstractSyntaxNode[] operands) {
             Symbol root = (Symbol)node;
-            Symbol[] symbols = new Symbol[root.getChildCount()];
 
             if (root.getType() == SymbolType.Assignment) {
+                Symbol[] symbols = new Symbol[root.getChildCount()];
                 symbols[0] = (Symbol)root.getFirst();
 
                 if (symbols[0].isIdentifierLiteral()) {
@@ -68,7 +90,16 @@ public class Interpreter {
 
                     identifierSymbol
                             = (IdentifierLiteralSymbol)assignmentOperator.evaluate(symbols);
-                    identifierSymbol.evaluate(symbolTable);
+
+                    if (identifierSymbol.getType() == SymbolType.Function) {
+                        FunctionLiteralSymbol functionSymbol
+                                = (FunctionLiteralSymbol)identifierSymbol;
+
+                        functionSymbol.setTieredExecution(tieredExecution);
+                    }
+
+                    if (!executeDefinition(identifierSymbol))
+                        identifierSymbol.evaluate(userSymbolTable);
 
                     return identifierSymbol;
                 } else
@@ -76,34 +107,55 @@ public class Interpreter {
                             root.getPosition());
             }
 
-            for (int i = 0; i < symbols.length; i++)
-                symbols[i] = (Symbol)traverse(root.getChild(i));
-
             if (root.isNumberLiteral())
                 return root;
-            else if (root.isIdentifierLiteral()) {
-                IdentifierLiteralSymbol identifierSymbol = (IdentifierLiteralSymbol)root;
-                identifierSymbol.evaluate(symbolTable);
+            else if (root.isIdentifierLiteral())
+                return new NumberLiteralSymbol(PrimitiveEvaluation.getInstance()
+                        .evaluate(root, userSymbolTable), root.getPosition());
+
+            OperatorSymbol operatorSymbol = (OperatorSymbol)root;
+            return operatorSymbol.evaluate((Symbol[])operands);
+        }
+    }
 
-                return identifierSymbol.getNumberLiteralSymbol();
+    private static final class DefaultSymbols {
+        private static final SymbolTable Symbols = importSymbolTable();
+        private static final boolean Imported = !Symbols.isEmpty();
+
+        private static SymbolTable importSymbolTable() {
+            SymbolImporter symbolImporter = SymbolImporter.importFrom(MathUtils.class);
+            SymbolTable symbolTable = new SymbolTable();
+
+            if (symbolImporter != null) {
+                symbolTable.addAll(symbolImporter.getConstants());
+                symbolTable.addAll(symbolImporter.getFunctions());
             }
 
-            OperatorSymbol operatorSymbol = (OperatorSymbol)root;
-            return operatorSymbol.evaluate(symbols);
+            symbolTable.makeReadOnly();
+            return symbolTable;
         }
     }
 
-    private SymbolTable userSymbolTable;
-    private SymbolTable symbolTable;
+    private LibrarySymbolTable librarySymbolTable;
+    private volatile SymbolTable userSymbolTable;
 
-    private SymbolImporter defaultSymbols;
+    private ParseCache parseCache;
+    private volatile boolean bytecodeEnabled;
+    private TieredExecution tieredExecution;
 
+    /**
+     * Initializes an interpreter session. The default symbols are imported
+     * from {@link MathUtils} once per JVM into a read-only symbol table shared
+     * by every session. The user symbol table is stacked over the library
+     * symbol table of the session, which is stacked over the default symbols.
+     */
     public Interpreter() {
-        userSymbolTable = new SymbolTable();
-        symbolTable = new SymbolTable();
+        librarySymbolTable = new LibrarySymbolTable(DefaultSymbols.Symbols);
+        userSymbolTable = new SymbolTable(librarySymbolTable);
 
-        defaultSymbols = SymbolImporter.importFrom(MathUtils.class);
-        transferDefaultSymbols();
+        parseCache = new ParseCache();
+        bytecodeEnabled = true;
+        tieredExecution = new TieredExecution();
     }
 
     public Statement run(String source) {
@@ -115,12 +167,25 @@ public class Interpreter {
         ExceptionContent exceptionContent;
 
         try {
-            Lexer lexer = new Lexer(source);
-            Parser parser = new Parser(lexer);
+            ParseCache.Entry parsedStatement = parseCache.parse(source);
+
+            AbstractSyntaxTree abstractSyntaxTree = parsedStatement.getAbstractSyntaxTree();
+            Bytecode bytecode = bytecodeEnabled
+                    ? parsedStatement.getBytecode(userSymbolTable) : null;
 
-            AbstractSyntaxTree abstractSyntaxTree = parser.getAbstractSyntaxTree();
-            LiteralSymbol literalSymbol
-                    = (LiteralSymbol)abstractSyntaxTree.traverse(new ExpressionEvaluation());
+            LiteralSymbol literalSymbol;
+
+            if (bytecode != null)
+                literalSymbol = new NumberLiteralSymbol(
+                        VirtualMachine.execute(bytecode, userSymbolTable), 0);
+            else if (!parsedStatement.hasAssignment())
+                literalSymbol = new NumberLiteralSymbol(PrimitiveEvaluation.getInstance()
+                        .evaluate(abstractSyntaxTree.getRoot(), userSymbolTable), 0);
+            else
+                synchronized (this) {
+                    literalSymbol = (LiteralSymbol)abstractSyntaxTree.traverse(
+                            new ExpressionEvaluation());
+                }
 
             if (literalSymbol == null)
                 result = new VariableLiteralSymbol("ANS", 0, 0);
@@ -132,7 +197,7 @@ public class Interpreter {
             exceptionContent = null;
 
             if (!typeChecking) {
-                result.setDocumentation(parser.getComment());
+                result.setDocumentation(parsedStatement.getComment());
                 updateUserSymbol(result);
             }
         } catch (Exception exception) {
@@ -147,61 +212,246 @@ public class Interpreter {
         return new Statement(result, exceptionContent);
     }
 
-    public void setUserSymbolTable(SymbolTable userSymbolTable) {
+    /**
+     * Evaluates an expression to a primitive value. Unlike
+     * {@link #run(String)} no statement is created and no symbol is updated, so
+     * evaluating an expression already in the parse cache allocates no memory
+     * unless it calls functions.
+     * @param source The source code of the expression
+     * @return The output value.
+     * @throws ExceptionContent Invalid syntax, undefined symbol, assignment or
+     * evaluation failure
+     * @see PrimitiveEvaluation
+     */
+    public double evaluate(String source) {
+        Symbol root = (Symbol)parseCache.parse(source).getAbstractSyntaxTree().getRoot();
+
+        if (root != null && root.getType() == SymbolType.Assignment)
+            throw new ExceptionContent(ExceptionMessage.IllegalExpressionAssignment,
+                    root.getPosition());
+
+        return PrimitiveEvaluation.getInstance().evaluate(root, userSymbolTable);
+    }
+
+    public synchronized void setUserSymbolTable(SymbolTable userSymbolTable) {
         this.userSymbolTable = userSymbolTable;
+        userSymbolTable.setParent(librarySymbolTable);
+
+        for (IdentifierLiteralSymbol userSymbol : userSymbolTable)
+            if (userSymbol.getType() == SymbolType.Function) {
+                FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)userSymbol;
 
-        transferDefaultSymbols();
-        symbolTable.addAll(userSymbolTable);
+                functionSymbol.setTieredExecution(tieredExecution);
+                functionSymbol.deoptimize();
+                functionSymbol.registerDependencies();
+            }
     }
 
     public SymbolTable getUserSymbolTable() {
         return userSymbolTable;
     }
 
+    /**
+     * Returns the scope chain used to evaluate statements: the user symbol
+     * table stacked over the library and default symbols.
+     * @return The symbol table.
+     * @see SymbolTable#getVisibleSymbols()
+     */
     public SymbolTable getSymbolTable() {
-        return symbolTable;
+        return userSymbolTable;
     }
 
-    public void clearUserSymbolTable() {
+    public synchronized void clearUserSymbolTable() {
         userSymbolTable.clear();
-        transferDefaultSymbols();
     }
 
-    public boolean hasDefaultSymbols() {
-        return defaultSymbols != null;
+    /**
+     * Loads an external library into this session. Its symbols are defined
+     * from now on, but the classes of the library are only loaded when one
+     * of their symbols is first referenced. Symbols of the library can not be
+     * redefined, and user symbols already defined hide them. User functions
+     * that failed to compile are deoptimized, since they can call symbols of
+     * the library, such as after it is unloaded and loaded again.
+     * @param library The library
+     * @return True if the library was not loaded yet.
+     * @see SymbolLibrary
+     */
+    public synchronized boolean loadLibrary(SymbolLibrary library) {
+        if (!librarySymbolTable.load(library))
+            return false;
+
+        for (IdentifierLiteralSymbol userSymbol : userSymbolTable)
+            if (userSymbol.getType() == SymbolType.Function) {
+                FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)userSymbol;
+
+                if (functionSymbol.isCompilationFailed())
+                    functionSymbol.deoptimize();
+            }
+
+        return true;
     }
 
-    private void transferDefaultSymbols() {
-        symbolTable.clear();
+    /**
+     * Unloads an external library from this session. User functions that
+     * depend on a symbol of the library are deoptimized, like they are when
+     * the symbol is redefined, and compiled statements are discarded, so no
+     * compiled code keeps calling into the library. Symbols of libraries are
+     * never folded into closures, so no value of the library is left behind.
+     * @param library The library
+     * @return True if the library was loaded.
+     * @see SymbolLibrary#close()
+     */
+    public synchronized boolean unloadLibrary(SymbolLibrary library) {
+        List<IdentifierLiteralSymbol> librarySymbols = librarySymbolTable.unload(library);
+
+        if (librarySymbols == null)
+            return false;
 
-        if (defaultSymbols != null) {
-            symbolTable.addAll(defaultSymbols.getConstants());
-            symbolTable.addAll(defaultSymbols.getFunctions());
-        }
+        ArrayList<FunctionLiteralSymbol> dependents = new ArrayList<>();
+
+        for (IdentifierLiteralSymbol librarySymbol : librarySymbols)
+            deoptimizeDependents(librarySymbol, dependents);
+
+        parseCache.clear();
+        return true;
+    }
+
+    /**
+     * Returns the libraries loaded into this session, in load order.
+     * @return A new list with the libraries.
+     */
+    public List<SymbolLibrary> getLibraries() {
+        return librarySymbolTable.getLibraries();
+    }
+
+    public ParseCache getParseCache() {
+        return parseCache;
+    }
+
+    public void setBytecodeEnabled(boolean bytecodeEnabled) {
+        this.bytecodeEnabled = bytecodeEnabled;
+    }
+
+    public boolean isBytecodeEnabled() {
+        return bytecodeEnabled;
+    }
+
+    public TieredExecution getTieredExecution() {
+        return tieredExecution;
+    }
+
+    /**
+     * Returns the execution tier of a function.
+     * @param name The function name
+     * @param argumentCount The function argument count
+     * @return The execution tier or null if the function is not defined.
+     * @see TieredExecution
+     */
+    public ExecutionTier getExecutionTier(String name, int argumentCount) {
+        FunctionLiteralSymbol functionDefinition = FunctionLiteralSymbol.findDefinition(
+                userSymbolTable, name, argumentCount);
+
+        return functionDefinition != null ? functionDefinition.getExecutionTier() : null;
+    }
+
+    /**
+     * Returns the result cache of a user function, with its hit rate. The
+     * cache is created on the first call of a pure function and cleared when
+     * a symbol the function depends on is redefined.
+     * @param name The function name
+     * @param argumentCount The function argument count
+     * @return The function cache or null if the function is not defined, is
+     * not pure or was not called since it was last defined.
+     * @see TieredExecution#setCacheCapacity(int)
+     */
+    public FunctionCache getFunctionCache(String name, int argumentCount) {
+        FunctionLiteralSymbol functionDefinition = FunctionLiteralSymbol.findDefinition(
+                userSymbolTable, name, argumentCount);
+
+        return functionDefinition != null ? functionDefinition.getFunctionCache() : null;
+    }
+
+    public boolean hasDefaultSymbols() {
+        return DefaultSymbols.Imported;
     }
 
     private boolean isDefaultSymbol(IdentifierLiteralSymbol identifierSymbol) {
-        if (!hasDefaultSymbols())
+        return !userSymbolTable.contains(identifierSymbol)
+                && librarySymbolTable.find(identifierSymbol) != null;
+    }
+
+    private boolean executeDefinition(IdentifierLiteralSymbol identifierSymbol) {
+        if (!bytecodeEnabled || identifierSymbol.getType() != SymbolType.Variable)
             return false;
 
-        for (LiteralSymbol literalSymbol : defaultSymbols.getConstants())
-            if (literalSymbol.isIdentifierLiteral()
-                    && identifierSymbol.equals(literalSymbol))
-                return true;
+        Closure closure = identifierSymbol.getClosure();
+        Bytecode bytecode = BytecodeCompiler.compile(closure.getAbstractSyntaxTree().getRoot(),
+                new FunctionArgumentList(), userSymbolTable);
 
-        for (LiteralSymbol literalSymbol : defaultSymbols.getFunctions())
-            if (literalSymbol.isIdentifierLiteral()
-                    && identifierSymbol.equals(literalSymbol))
-                return true;
+        if (bytecode == null)
+            return false;
 
-        return false;
+        identifierSymbol.setDoubleValue(VirtualMachine.execute(bytecode, userSymbolTable));
+        closure.setEmpty();
+
+        return true;
     }
 
-    private void updateUserSymbol(IdentifierLiteralSymbol userSymbol) {
+    private synchronized void updateUserSymbol(IdentifierLiteralSymbol userSymbol) {
+        IdentifierLiteralSymbol previousSymbol = userSymbolTable.ceiling(userSymbol);
+
+        ArrayList<FunctionLiteralSymbol> dependents = new ArrayList<>();
+
+        if (previousSymbol != null && previousSymbol.equals(userSymbol))
+            deoptimizeDependents(previousSymbol, dependents);
+        else if (userSymbol.getType() == SymbolType.Function)
+            deoptimizeCallers(userSymbol, dependents);
+
         userSymbolTable.remove(userSymbol);
-        symbolTable.remove(userSymbol);
+
+        if (userSymbol.getType() == SymbolType.Function) {
+            FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)userSymbol;
+            functionSymbol.setTieredExecution(tieredExecution);
+        }
 
         userSymbolTable.add(userSymbol);
-        symbolTable.add(userSymbol);
+
+        for (FunctionLiteralSymbol functionSymbol : dependents)
+            functionSymbol.reoptimize(userSymbolTable);
+    }
+
+    private void deoptimizeCallers(IdentifierLiteralSymbol definedSymbol,
+            ArrayList<FunctionLiteralSymbol> dependents) {
+        for (IdentifierLiteralSymbol userSymbol : userSymbolTable)
+            if (userSymbol.getType() == SymbolType.Function) {
+                FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)userSymbol;
+
+                for (IdentifierLiteralSymbol unresolvedFunction
+                        : functionSymbol.getUnresolvedFunctions())
+                    if (unresolvedFunction.equals(definedSymbol))
+                        deoptimizeDependents(unresolvedFunction, dependents);
+            }
+    }
+
+    private void deoptimizeDependents(IdentifierLiteralSymbol redefinedSymbol,
+            ArrayList<FunctionLiteralSymbol> dependents) {
+        Set<FunctionLiteralSymbol> visitedSymbols
+                = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        ArrayDeque<IdentifierLiteralSymbol> redefinedSymbols = new ArrayDeque<>();
+        redefinedSymbols.add(redefinedSymbol);
+
+        while (!redefinedSymbols.isEmpty()) {
+            IdentifierLiteralSymbol dependency = redefinedSymbols.poll();
+
+            for (FunctionLiteralSymbol functionSymbol : dependency.getDependents())
+                if (userSymbolTable.find(functionSymbol) == functionSymbol
+                        && functionSymbol.dependsOn(dependency)
+                        && visitedSymbols.add(functionSymbol)) {
+                    dependents.add(functionSymbol);
+                    functionSymbol.deoptimize();
+                    redefinedSymbols.add(functionSymbol);
+                }
+        }
     }
 }
\ No newline at end of file
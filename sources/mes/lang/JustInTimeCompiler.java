@@ -0,0 +1,963 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import mes.lang.Closure.ClosureType;
+import mes.lang.ExceptionContent.ExceptionMessage;
+import mes.lang.Symbol.SymbolType;
+
+/**
+ * Compiler from function closures to JVM classes. Each function is compiled to
+ * a class with a static <code>double call(double, ..., int)</code> method and
+ * a static <code>double apply(double[], int)</code> method that unpacks the
+ * arguments, defined by its own class loader so the class can be unloaded with
+ * the function. The last parameter is the number of nested user function
+ * calls still allowed by the call depth limit. Global variables are bound as
+ * constants and calls to other user functions are linked to their compiled
+ * classes, so a compiled function is only valid while the symbols it depends
+ * on are not redefined. The <i>and</i>, <i>or</i> and conditional operators
+ * are compiled to branches, so only the operands that decide the result are
+ * evaluated, and a tail call of the function to itself is compiled to a jump
+ * to the start of the method, counted in the last local variable against the
+ * tail call limit. Temporaries of binding nodes are local
+ * variables after the call depth parameter. Function
+ * bodies that only use arguments, numbers, variables, operators, native
+ * functions and compilable user functions can be compiled.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see FunctionLiteralSymbol
+ * @see FlatSyntaxTree
+ */
+public abstract class JustInTimeCompiler {
+    /**
+     * Operators without a JVM instruction, called by compiled functions.
+     * @author Danilo Ferreira
+     * @version 1.0.0
+     */
+    public static final class Operations {
+        private Operations() {
+        }
+
+        public static double not(double x) {
+            return MathUtils.number(!MathUtils.bool(x));
+        }
+
+        public static double lessEqual(double a, double b) {
+            return MathUtils.number(a <= b);
+        }
+
+        public static double less(double a, double b) {
+            return MathUtils.number(a < b);
+        }
+
+        public static double greaterEqual(double a, double b) {
+            return MathUtils.number(a >= b);
+        }
+
+        public static double greater(double a, double b) {
+            return MathUtils.number(a > b);
+        }
+
+        public static double equal(double a, double b) {
+            return MathUtils.number(a == b);
+        }
+
+        public static double notEqual(double a, double b) {
+            return MathUtils.number(a != b);
+        }
+
+        public static double truth(double x) {
+            return MathUtils.number(MathUtils.bool(x));
+        }
+
+        public static ExceptionContent exceedCallDepth(int position) {
+            return new ExceptionContent(ExceptionMessage.CallDepthExceeded, position);
+        }
+
+        public static ExceptionContent exceedTailCallLimit(int position) {
+            return new ExceptionContent(ExceptionMessage.TailCallLimitExceeded, position);
+        }
+    }
+
+    /**
+     * Function closure compiled to a JVM class.
+     * @author Danilo Ferreira
+     * @version 1.0.0
+     * @see FunctionLiteralSymbol#compile(SymbolTable)
+     */
+    public static final class CompiledFunction {
+        private final Class<?> functionClass;
+        private final MethodHandle methodHandle;
+        private final IdentifierLiteralSymbol[] dependencies;
+
+        private CompiledFunction(Class<?> functionClass, MethodHandle methodHandle,
+                IdentifierLiteralSymbol[] dependencies) {
+            this.functionClass = functionClass;
+            this.methodHandle = methodHandle;
+            this.dependencies = dependencies;
+        }
+
+        /**
+         * Returns the compiled class.
+         * @return The class with the <code>call</code> and <code>apply</code>
+         * methods.
+         */
+        public Class<?> getFunctionClass() {
+            return functionClass;
+        }
+
+        /**
+         * Returns the <code>apply</code> method of the compiled class.
+         * @return A method handle of type <code>(double[], int)double</code>.
+         */
+        public MethodHandle getMethodHandle() {
+            return methodHandle;
+        }
+
+        /**
+         * Returns whether the compiled class was built from the given symbol
+         * definition. Variables bound as constants and linked user functions
+         * are dependencies.
+         * @param identifierSymbol The symbol definition
+         * @return True if the symbol definition is a dependency.
+         */
+        public boolean dependsOn(IdentifierLiteralSymbol identifierSymbol) {
+            for (IdentifierLiteralSymbol dependency : dependencies)
+                if (dependency == identifierSymbol)
+                    return true;
+
+            return false;
+        }
+
+        /**
+         * Returns the symbol definitions the compiled class was built from.
+         * @return A new array with the dependencies.
+         * @see #dependsOn(IdentifierLiteralSymbol)
+         */
+        public IdentifierLiteralSymbol[] getDependencies() {
+            return dependencies.clone();
+        }
+    }
+
+    private static class FunctionClassLoader extends ClassLoader {
+        private final HashMap<String, Class<?>> linkedClasses;
+
+        public FunctionClassLoader(ClassLoader parent,
+                HashMap<String, Class<?>> linkedClasses) {
+            super(parent);
+            this.linkedClasses = linkedClasses;
+        }
+
+        public Class<?> defineClass(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            Class<?> linkedClass = linkedClasses.get(name);
+
+            if (linkedClass == null)
+                throw new ClassNotFoundException(name);
+
+            return linkedClass;
+        }
+    }
+
+    private static class CodeBuffer extends ByteArrayOutputStream {
+        public void setShort(int index, int value) {
+            buf[index] = (byte)(value >> 8);
+            buf[index + 1] = (byte)value;
+        }
+    }
+
+    private static class ClassWriter {
+        private final ByteArrayOutputStream constantPool;
+        private final DataOutputStream constantPoolOutput;
+        private final HashMap<String, Integer> constantIndices;
+        private int constantCount;
+
+        private final ByteArrayOutputStream methods;
+        private final DataOutputStream methodOutput;
+        private int methodCount;
+
+        private final CodeBuffer code;
+        private int stackSize;
+        private int maximumStackSize;
+
+        public ClassWriter() {
+            constantPool = new ByteArrayOutputStream();
+            constantPoolOutput = new DataOutputStream(constantPool);
+            constantIndices = new HashMap<>();
+            constantCount = 1;
+
+            methods = new ByteArrayOutputStream();
+            methodOutput = new DataOutputStream(methods);
+
+            code = new CodeBuffer();
+        }
+
+        public int utf8(String value) throws IOException {
+            Integer index = constantIndices.get("U" + value);
+
+            if (index == null) {
+                constantPoolOutput.writeByte(Utf8Tag);
+                constantPoolOutput.writeUTF(value);
+
+                index = addConstant("U" + value, 1);
+            }
+
+            return index;
+        }
+
+        public int classReference(String name) throws IOException {
+            Integer index = constantIndices.get("C" + name);
+
+            if (index == null) {
+                int nameIndex = utf8(name);
+
+                constantPoolOutput.writeByte(ClassTag);
+                constantPoolOutput.writeShort(nameIndex);
+
+                index = addConstant("C" + name, 1);
+            }
+
+            return index;
+        }
+
+        public int methodReference(String owner, String name, String descriptor)
+                throws IOException {
+            String key = "M" + owner + '.' + name + descriptor;
+            Integer index = constantIndices.get(key);
+
+            if (index == null) {
+                int ownerIndex = classReference(owner);
+                int nameIndex = utf8(name);
+                int descriptorIndex = utf8(descriptor);
+
+                constantPoolOutput.writeByte(NameAndTypeTag);
+                constantPoolOutput.writeShort(nameIndex);
+                constantPoolOutput.writeShort(descriptorIndex);
+
+                int nameAndTypeIndex = addConstant("N" + name + descriptor, 1);
+
+                constantPoolOutput.writeByte(MethodReferenceTag);
+                constantPoolOutput.writeShort(ownerIndex);
+                constantPoolOutput.writeShort(nameAndTypeIndex);
+
+                index = addConstant(key, 1);
+            }
+
+            return index;
+        }
+
+        public int integerConstant(int value) throws IOException {
+            Integer index = constantIndices.get("I" + value);
+
+            if (index == null) {
+                constantPoolOutput.writeByte(IntegerTag);
+                constantPoolOutput.writeInt(value);
+
+                index = addConstant("I" + value, 1);
+            }
+
+            return index;
+        }
+
+        public int doubleConstant(double value) throws IOException {
+            long bits = Double.doubleToRawLongBits(value);
+            Integer index = constantIndices.get("D" + bits);
+
+            if (index == null) {
+                constantPoolOutput.writeByte(DoubleTag);
+                constantPoolOutput.writeLong(bits);
+
+                index = addConstant("D" + bits, 2);
+            }
+
+            return index;
+        }
+
+        public void emit(int instruction, int stackChange) {
+            code.write(instruction);
+
+            stackSize += stackChange;
+            maximumStackSize = Math.max(maximumStackSize, stackSize);
+        }
+
+        public void emitShort(int value) {
+            code.write(value >> 8);
+            code.write(value);
+        }
+
+        public int emitJump(int instruction, int stackChange) {
+            int address = code.size();
+
+            emit(instruction, stackChange);
+            emitShort(0);
+
+            return address;
+        }
+
+        public void bindJump(int address) {
+            bindJump(address, code.size());
+        }
+
+        public void bindJump(int address, int target) {
+            code.setShort(address + 1, target - address);
+        }
+
+        public void discardStack(int size) {
+            stackSize -= size;
+        }
+
+        public void endMethod(String name, String descriptor, int accessFlags,
+                int maximumLocalCount) throws IOException {
+            methodOutput.writeShort(accessFlags);
+            methodOutput.writeShort(utf8(name));
+            methodOutput.writeShort(utf8(descriptor));
+            methodOutput.writeShort(1);
+
+            methodOutput.writeShort(utf8("Code"));
+            methodOutput.writeInt(12 + code.size());
+            methodOutput.writeShort(maximumStackSize);
+            methodOutput.writeShort(maximumLocalCount);
+            methodOutput.writeInt(code.size());
+            code.writeTo(methodOutput);
+            methodOutput.writeShort(0);
+            methodOutput.writeShort(0);
+
+            methodCount++;
+
+            code.reset();
+            stackSize = 0;
+            maximumStackSize = 0;
+        }
+
+        public byte[] toByteArray(String className) throws IOException {
+            int thisIndex = classReference(className);
+            int superIndex = classReference("java/lang/Object");
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+
+            output.writeInt(Magic);
+            output.writeShort(0);
+            output.writeShort(ClassFileVersion);
+
+            output.writeShort(constantCount);
+            constantPool.writeTo(output);
+
+            output.writeShort(ClassAccessFlags);
+            output.writeShort(thisIndex);
+            output.writeShort(superIndex);
+            output.writeShort(0);
+            output.writeShort(0);
+
+            output.writeShort(methodCount);
+            methods.writeTo(output);
+
+            output.writeShort(0);
+
+            return bytes.toByteArray();
+        }
+
+        private int addConstant(String key, int size) {
+            int index = constantCount;
+
+            constantIndices.put(key, index);
+            constantCount += size;
+
+            return index;
+        }
+    }
+
+    private static final int Magic = 0xCAFEBABE;
+
+    // Version 49 (Java 5) class files are checked by the type inferencing
+    // verifier, so the writer does not have to emit stack map frames.
+    private static final int ClassFileVersion = 49;
+
+    private static final int Utf8Tag = 1;
+    private static final int IntegerTag = 3;
+    private static final int DoubleTag = 6;
+    private static final int ClassTag = 7;
+    private static final int MethodReferenceTag = 10;
+    private static final int NameAndTypeTag = 12;
+
+    private static final int ClassAccessFlags = 0x0031;
+    private static final int MethodAccessFlags = 0x0009;
+
+    private static final int IConst0 = 0x03;
+    private static final int IConst1 = 0x04;
+    private static final int DConst0 = 0x0E;
+    private static final int DConst1 = 0x0F;
+    private static final int BIPush = 0x10;
+    private static final int SIPush = 0x11;
+    private static final int LdcW = 0x13;
+    private static final int Ldc2W = 0x14;
+    private static final int ILoad = 0x15;
+    private static final int DLoad = 0x18;
+    private static final int ILoad1 = 0x1B;
+    private static final int DLoad0 = 0x26;
+    private static final int ALoad0 = 0x2A;
+    private static final int DALoad = 0x31;
+    private static final int IStore = 0x36;
+    private static final int DStore = 0x39;
+    private static final int DStore0 = 0x47;
+    private static final int DAdd = 0x63;
+    private static final int ISub = 0x64;
+    private static final int DSub = 0x67;
+    private static final int DMul = 0x6B;
+    private static final int DDiv = 0x6F;
+    private static final int DRem = 0x73;
+    private static final int DNeg = 0x77;
+    private static final int IInc = 0x84;
+    private static final int I2D = 0x87;
+    private static final int DCmpl = 0x97;
+    private static final int IfEqual = 0x99;
+    private static final int IfNotEqual = 0x9A;
+    private static final int IfGreater = 0x9D;
+    private static final int Goto = 0xA7;
+    private static final int DReturn = 0xAF;
+    private static final int InvokeStatic = 0xB8;
+    private static final int AThrow = 0xBF;
+
+    private static final String OperationsClassName
+            = Operations.class.getName().replace('.', '/');
+    private static final String MathUtilsClassName
+            = MathUtils.class.getName().replace('.', '/');
+    private static final String ExceptionContentClassName
+            = ExceptionContent.class.getName().replace('.', '/');
+
+    private static final MethodType ApplyType
+            = MethodType.methodType(double.class, double[].class, int.class);
+
+    private static final int MaximumCodeSize = Short.MAX_VALUE;
+    private static final int MaximumArgumentCount = 127;
+
+    private static final AtomicLong classCount = new AtomicLong();
+
+    private static final Logger logger = Logger.getLogger(
+            JustInTimeCompiler.class.getName());
+
+    /**
+     * Compiles a function body to a JVM class. User functions called by the
+     * body are compiled first.
+     * @param functionDefinition The function definition
+     * @param flatSyntaxTree The function body
+     * @param globalSymbolTable The symbol table used to resolve identifiers
+     * @return The compiled function or null if the function body can not be
+     * compiled. A class rejected by the verifier or failing to link is a
+     * compiler error, logged as a warning before returning null.
+     */
+    public static CompiledFunction compile(FunctionLiteralSymbol functionDefinition,
+            FlatSyntaxTree flatSyntaxTree, SymbolTable globalSymbolTable) {
+        int argumentCount = functionDefinition.getArguments().size();
+        int localCount = argumentCount + flatSyntaxTree.getTemporaryCount();
+
+        if (localCount > MaximumArgumentCount)
+            return null;
+
+        try {
+            ClassWriter classWriter = new ClassWriter();
+
+            String className = JustInTimeCompiler.class.getPackage().getName()
+                    .replace('.', '/') + "/CompiledFunction" + classCount.incrementAndGet();
+            String callDescriptor = getFunctionDescriptor(argumentCount);
+
+            HashMap<String, Class<?>> linkedClasses = new HashMap<>();
+            ArrayList<IdentifierLiteralSymbol> dependencies = new ArrayList<>();
+
+            int tailCallSlot = getTailCallSlot(flatSyntaxTree);
+
+            emitInteger(classWriter, functionDefinition.getTieredExecution()
+                    .getTailCallLimit());
+            classWriter.emit(IStore, -1);
+            classWriter.code.write(tailCallSlot);
+
+            if (!emitBody(classWriter, className, functionDefinition, flatSyntaxTree,
+                    globalSymbolTable, linkedClasses, dependencies))
+                return null;
+
+            classWriter.emit(DReturn, -2);
+
+            if (classWriter.code.size() > MaximumCodeSize)
+                return null;
+
+            classWriter.endMethod("call", callDescriptor, MethodAccessFlags,
+                    tailCallSlot + 1);
+
+            for (int i = 0; i < argumentCount; i++) {
+                classWriter.emit(ALoad0, 1);
+                emitInteger(classWriter, i);
+                classWriter.emit(DALoad, 0);
+            }
+
+            classWriter.emit(ILoad1, 1);
+            classWriter.emit(InvokeStatic, 1 - 2 * argumentCount);
+            classWriter.emitShort(classWriter.methodReference(className, "call",
+                    callDescriptor));
+            classWriter.emit(DReturn, -2);
+
+            classWriter.endMethod("apply", ApplyType.toMethodDescriptorString(),
+                    MethodAccessFlags, 2);
+
+            byte[] bytes = classWriter.toByteArray(className);
+
+            FunctionClassLoader classLoader = new FunctionClassLoader(
+                    JustInTimeCompiler.class.getClassLoader(), linkedClasses);
+            Class<?> functionClass = classLoader.defineClass(
+                    className.replace('/', '.'), bytes);
+
+            MethodHandle methodHandle = MethodHandles.publicLookup().findStatic(
+                    functionClass, "apply", ApplyType);
+
+            return new CompiledFunction(functionClass, methodHandle,
+                    dependencies.toArray(new IdentifierLiteralSymbol[dependencies.size()]));
+        } catch (IOException exception) {
+            return null;
+        } catch (ReflectiveOperationException | LinkageError exception) {
+            logger.log(Level.WARNING, "Rejected compiled class of "
+                    + functionDefinition.getPrototype(), exception);
+
+            return null;
+        }
+    }
+
+    private static boolean emitBody(ClassWriter classWriter, String className,
+            FunctionLiteralSymbol functionDefinition, FlatSyntaxTree flatSyntaxTree,
+            SymbolTable globalSymbolTable, HashMap<String, Class<?>> linkedClasses,
+            ArrayList<IdentifierLiteralSymbol> dependencies) throws IOException {
+        int nodeCount = flatSyntaxTree.getNodeCount();
+        int[] jumpAddresses = new int[nodeCount];
+        int bodyAddress = classWriter.code.size();
+
+        for (int i = 0; i < nodeCount; i++) {
+            switch (flatSyntaxTree.getType(i)) {
+                case Number:
+                    emitConstant(classWriter, flatSyntaxTree.getNumberValue(i));
+                    break;
+                case Variable: {
+                    if (flatSyntaxTree.isArgument(i)) {
+                        emitLoad(classWriter, getLocalSlot(flatSyntaxTree, i));
+                        break;
+                    }
+
+                    VariableLiteralSymbol variableDefinition = VariableLiteralSymbol.findDefinition(
+                            globalSymbolTable, flatSyntaxTree.getName(i));
+
+                    if (variableDefinition == null)
+                        return false;
+
+                    emitConstant(classWriter, variableDefinition.getDoubleValue());
+                    dependencies.add(variableDefinition);
+                    break;
+                }
+                case Function: {
+                    int argumentCount = flatSyntaxTree.getChildCount(i);
+
+                    FunctionLiteralSymbol calleeDefinition = FunctionLiteralSymbol.findDefinition(
+                            globalSymbolTable, flatSyntaxTree.getName(i), argumentCount);
+
+                    if (calleeDefinition == null)
+                        return false;
+
+                    if (calleeDefinition.getClosure().getType() == ClosureType.Method) {
+                        if (!emitNativeCall(classWriter, calleeDefinition, argumentCount,
+                                linkedClasses))
+                            return false;
+
+                        dependencies.add(calleeDefinition);
+                        break;
+                    }
+
+                    if (calleeDefinition == functionDefinition && flatSyntaxTree.isTailCall(i)) {
+                        emitTailCall(classWriter, argumentCount,
+                                getTailCallSlot(flatSyntaxTree), bodyAddress,
+                                flatSyntaxTree.getPosition(i));
+                        break;
+                    }
+
+                    String calleeClassName = className;
+
+                    if (calleeDefinition != functionDefinition) {
+                        CompiledFunction compiledCallee = calleeDefinition.compile(
+                                globalSymbolTable);
+
+                        if (compiledCallee == null)
+                            return false;
+
+                        Class<?> calleeClass = compiledCallee.getFunctionClass();
+
+                        linkedClasses.put(calleeClass.getName(), calleeClass);
+                        dependencies.add(calleeDefinition);
+
+                        calleeClassName = calleeClass.getName().replace('.', '/');
+                    }
+
+                    emitUserCall(classWriter, calleeClassName, argumentCount,
+                            getCallDepthSlot(flatSyntaxTree), flatSyntaxTree.getPosition(i));
+                    break;
+                }
+                case Positive:
+                    break;
+                case Negative:
+                    classWriter.emit(DNeg, 0);
+                    break;
+                case Not:
+                    emitOperation(classWriter, "not", 1);
+                    break;
+                case Addition:
+                    classWriter.emit(DAdd, -2);
+                    break;
+                case Subtraction:
+                    classWriter.emit(DSub, -2);
+                    break;
+                case Multiplication:
+                    classWriter.emit(DMul, -2);
+                    break;
+                case Division:
+                    classWriter.emit(DDiv, -2);
+                    break;
+                case Modulo:
+                    classWriter.emit(DRem, -2);
+                    break;
+                case Exponentiation:
+                    classWriter.emit(InvokeStatic, -2);
+                    classWriter.emitShort(classWriter.methodReference(MathUtilsClassName,
+                            "pow", "(DD)D"));
+                    break;
+                case LessEqual:
+                    emitOperation(classWriter, "lessEqual", 2);
+                    break;
+                case Less:
+                    emitOperation(classWriter, "less", 2);
+                    break;
+                case GreaterEqual:
+                    emitOperation(classWriter, "greaterEqual", 2);
+                    break;
+                case Greater:
+                    emitOperation(classWriter, "greater", 2);
+                    break;
+                case Equal:
+                    emitOperation(classWriter, "equal", 2);
+                    break;
+                case NotEqual:
+                    emitOperation(classWriter, "notEqual", 2);
+                    break;
+                case And:
+                case Or: {
+                    emitOperation(classWriter, "truth", 1);
+
+                    int endAddress = classWriter.emitJump(Goto, 0);
+
+                    classWriter.bindJump(jumpAddresses[i]);
+                    classWriter.discardStack(2);
+                    classWriter.emit(flatSyntaxTree.getType(i) == SymbolType.And
+                            ? DConst0 : DConst1, 2);
+
+                    classWriter.bindJump(endAddress);
+                    break;
+                }
+                case Conditional:
+                    classWriter.bindJump(jumpAddresses[i]);
+                    break;
+                case Binding:
+                    break;
+                default:
+                    return false;
+            }
+
+            emitBranch(classWriter, flatSyntaxTree, i, jumpAddresses);
+        }
+
+        return true;
+    }
+
+    private static void emitBranch(ClassWriter classWriter, FlatSyntaxTree flatSyntaxTree,
+            int node, int[] jumpAddresses) {
+        int parent = flatSyntaxTree.getParent(node);
+
+        if (parent == -1)
+            return;
+
+        boolean firstOperand = flatSyntaxTree.getChild(parent, 0) == node;
+
+        switch (flatSyntaxTree.getType(parent)) {
+            case And:
+            case Or:
+                if (firstOperand) {
+                    classWriter.emit(DConst0, 2);
+                    classWriter.emit(DCmpl, -3);
+                    jumpAddresses[parent] = classWriter.emitJump(
+                            flatSyntaxTree.getType(parent) == SymbolType.And
+                            ? IfEqual : IfNotEqual, -1);
+                }
+                break;
+            case Conditional:
+                if (firstOperand) {
+                    classWriter.emit(DConst0, 2);
+                    classWriter.emit(DCmpl, -3);
+                    jumpAddresses[parent] = classWriter.emitJump(IfEqual, -1);
+                } else if (flatSyntaxTree.getChild(parent, 1) == node) {
+                    int endAddress = classWriter.emitJump(Goto, 0);
+
+                    classWriter.bindJump(jumpAddresses[parent]);
+                    classWriter.discardStack(2);
+                    jumpAddresses[parent] = endAddress;
+                }
+                break;
+            case Binding:
+                if (firstOperand)
+                    emitStore(classWriter, getLocalSlot(flatSyntaxTree, parent));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void emitConstant(ClassWriter classWriter, double value)
+            throws IOException {
+        long bits = Double.doubleToRawLongBits(value);
+
+        if (bits == 0)
+            classWriter.emit(DConst0, 2);
+        else if (value == 1.0)
+            classWriter.emit(DConst1, 2);
+        else {
+            classWriter.emit(Ldc2W, 2);
+            classWriter.emitShort(classWriter.doubleConstant(value));
+        }
+    }
+
+    private static void emitLoad(ClassWriter classWriter, int slot) {
+        if (slot <= 3)
+            classWriter.emit(DLoad0 + slot, 2);
+        else {
+            classWriter.emit(DLoad, 2);
+            classWriter.code.write(slot);
+        }
+    }
+
+    private static void emitStore(ClassWriter classWriter, int slot) {
+        if (slot <= 3)
+            classWriter.emit(DStore0 + slot, -2);
+        else {
+            classWriter.emit(DStore, -2);
+            classWriter.code.write(slot);
+        }
+    }
+
+    private static int getLocalSlot(FlatSyntaxTree flatSyntaxTree, int node) {
+        int argumentIndex = flatSyntaxTree.getArgumentIndex(node);
+
+        if (argumentIndex < flatSyntaxTree.getArgumentCount())
+            return 2 * argumentIndex;
+
+        return 2 * argumentIndex + 1;
+    }
+
+    private static int getCallDepthSlot(FlatSyntaxTree flatSyntaxTree) {
+        return 2 * flatSyntaxTree.getArgumentCount();
+    }
+
+    private static int getTailCallSlot(FlatSyntaxTree flatSyntaxTree) {
+        int localCount = flatSyntaxTree.getArgumentCount()
+                + flatSyntaxTree.getTemporaryCount();
+
+        return 2 * localCount + 1;
+    }
+
+    private static void emitInteger(ClassWriter classWriter, int value)
+            throws IOException {
+        if (value <= 5)
+            classWriter.emit(IConst0 + value, 1);
+        else if (value <= Byte.MAX_VALUE) {
+            classWriter.emit(BIPush, 1);
+            classWriter.code.write(value);
+        } else if (value <= Short.MAX_VALUE) {
+            classWriter.emit(SIPush, 1);
+            classWriter.emitShort(value);
+        } else {
+            classWriter.emit(LdcW, 1);
+            classWriter.emitShort(classWriter.integerConstant(value));
+        }
+    }
+
+    private static void emitUserCall(ClassWriter classWriter, String calleeClassName,
+            int argumentCount, int callDepthSlot, int position) throws IOException {
+        classWriter.emit(ILoad, 1);
+        classWriter.code.write(callDepthSlot);
+
+        int callAddress = classWriter.emitJump(IfGreater, -1);
+
+        emitInteger(classWriter, position);
+        classWriter.emit(InvokeStatic, 0);
+        classWriter.emitShort(classWriter.methodReference(OperationsClassName,
+                "exceedCallDepth", "(I)L" + ExceptionContentClassName + ";"));
+        classWriter.emit(AThrow, -1);
+
+        classWriter.bindJump(callAddress);
+
+        classWriter.emit(ILoad, 1);
+        classWriter.code.write(callDepthSlot);
+        classWriter.emit(IConst1, 1);
+        classWriter.emit(ISub, -1);
+
+        classWriter.emit(InvokeStatic, 1 - 2 * argumentCount);
+        classWriter.emitShort(classWriter.methodReference(calleeClassName, "call",
+                getFunctionDescriptor(argumentCount)));
+    }
+
+    private static void emitTailCall(ClassWriter classWriter, int argumentCount,
+            int tailCallSlot, int bodyAddress, int position) throws IOException {
+        for (int i = argumentCount - 1; i >= 0; i--)
+            emitStore(classWriter, 2 * i);
+
+        classWriter.emit(IInc, 0);
+        classWriter.code.write(tailCallSlot);
+        classWriter.code.write(-1);
+
+        classWriter.emit(ILoad, 1);
+        classWriter.code.write(tailCallSlot);
+
+        classWriter.bindJump(classWriter.emitJump(IfGreater, -1), bodyAddress);
+
+        emitInteger(classWriter, position);
+        classWriter.emit(InvokeStatic, 0);
+        classWriter.emitShort(classWriter.methodReference(OperationsClassName,
+                "exceedTailCallLimit", "(I)L" + ExceptionContentClassName + ";"));
+        classWriter.emit(AThrow, 1);
+    }
+
+    private static void emitOperation(ClassWriter classWriter, String name,
+            int operandCount) throws IOException {
+        classWriter.emit(InvokeStatic, 2 - 2 * operandCount);
+        classWriter.emitShort(classWriter.methodReference(OperationsClassName, name,
+                getCallDescriptor(operandCount)));
+    }
+
+    private static boolean emitNativeCall(ClassWriter classWriter,
+            FunctionLiteralSymbol functionDefinition, int argumentCount,
+            HashMap<String, Class<?>> linkedClasses) throws IOException {
+        Method method = functionDefinition.getClosure().getMethod();
+
+        if (method == null)
+            return false;
+
+        Class<?> declaringClass = method.getDeclaringClass();
+
+        if (!Modifier.isPublic(declaringClass.getModifiers())
+                || !Modifier.isPublic(method.getModifiers())
+                || !Modifier.isStatic(method.getModifiers())
+                || !link(declaringClass, linkedClasses))
+            return false;
+
+        StringBuilder descriptor = new StringBuilder("(");
+
+        for (Class<?> parameterType : method.getParameterTypes())
+            if (parameterType == double.class)
+                descriptor.append('D');
+            else
+                return false;
+
+        Class<?> returnType = method.getReturnType();
+
+        if (returnType == double.class)
+            descriptor.append(")D");
+        else if (returnType == boolean.class)
+            descriptor.append(")Z");
+        else if (returnType == int.class)
+            descriptor.append(")I");
+        else
+            return false;
+
+        classWriter.emit(InvokeStatic,
+                -2 * argumentCount + (returnType == double.class ? 2 : 1));
+        classWriter.emitShort(classWriter.methodReference(
+                declaringClass.getName().replace('.', '/'), method.getName(),
+                descriptor.toString()));
+
+        if (returnType == boolean.class) {
+            classWriter.emit(InvokeStatic, 1);
+            classWriter.emitShort(classWriter.methodReference(MathUtilsClassName,
+                    "number", "(Z)D"));
+        } else if (returnType == int.class)
+            classWriter.emit(I2D, 1);
+
+        return true;
+    }
+
+    private static String getFunctionDescriptor(int argumentCount) {
+        StringBuilder descriptor = new StringBuilder("(");
+
+        for (int i = 0; i < argumentCount; i++)
+            descriptor.append('D');
+
+        descriptor.append("I)D");
+
+        return descriptor.toString();
+    }
+
+    private static String getCallDescriptor(int argumentCount) {
+        StringBuilder descriptor = new StringBuilder("(");
+
+        for (int i = 0; i < argumentCount; i++)
+            descriptor.append('D');
+
+        descriptor.append(")D");
+
+        return descriptor.toString();
+    }
+
+    private static boolean link(Class<?> declaringClass,
+            HashMap<String, Class<?>> linkedClasses) {
+        try {
+            ClassLoader classLoader = JustInTimeCompiler.class.getClassLoader();
+            return Class.forName(declaringClass.getName(), false, classLoader)
+                    == declaringClass;
+        } catch (ClassNotFoundException exception) {
+            linkedClasses.put(declaringClass.getName(), declaringClass);
+            return true;
+        }
+    }
+}
@@ -35,6 +35,8 @@ package mes.lang;
  * @see BinaryOperatorSymbol
  */
 public class LessEqualOperatorSymbol extends BinaryOperatorSymbol {
+    private static final long serialVersionUID = 1603664665706317835L;
+
     /**
      * Initializes the less equal operator.
      */
@@ -46,7 +48,7 @@ public class LessEqualOperatorSymbol extends BinaryOperatorSymbol {
      * Initializes the less equal operator. By default the less equal operator
      * is left associative with precedence 5.
      * @param position The symbol position at the source code
-     * @see Lexer#Lexer(String)
+     * @see Lexer#Lexer(CharSequence)
      * @see OperatorData
      */
     public LessEqualOperatorSymbol(int position) {
@@ -57,11 +59,7 @@ public class LessEqualOperatorSymbol extends BinaryOperatorSymbol {
      * {@inheritDoc}
      */
     @Override
-    public LiteralSymbol evaluate(Symbol[] symbols) {
-        LiteralSymbol leftOperand = (LiteralSymbol)symbols[0];
-        LiteralSymbol rightOperand = (LiteralSymbol)symbols[1];
-
-        return new NumberLiteralSymbol(leftOperand.getDoubleValue()
-                <= rightOperand.getDoubleValue(), position);
+    public double evaluate(double leftOperand, double rightOperand) {
+        return MathUtils.number(leftOperand <= rightOperand);
     }
 }
\ No newline at end of file
@@ -29,132 +29,158 @@
 package mes.lang;
 
 import mes.lang.ExceptionContent.ExceptionMessage;
-import mes.lang.OperatorData.Associativity;
 import mes.lang.Token.TokenType;
 
 /**
- * Lexer to tokenize the source code.
+ * Lexer to tokenize the source code. Characters are classified through
+ * precomputed ASCII tables with a Unicode fallback.
  * @author Danilo Ferreira
  * @version 1.0.0
  * @see Parser
+ * @see OperatorTable
  */
 public class Lexer {
+    private static final int Whitespace = 1;
+    private static final int IdentifierStart = 2;
+    private static final int IdentifierPart = 4;
+    private static final int Digit = 8;
+
+    private static final byte[] characterClasses = new byte[128];
+
+    private static final int MaximumFastDigits = 18;
+    private static final int MaximumExponent = 100000;
+    private static final long MaximumExactMantissa = 1L << 53;
+    private static final double[] powersOfTen = new double[23];
+
+    private static final TokenType[] operatorTokens = new TokenType[128];
+    private static final TokenType[] equalSuffixOperatorTokens = new TokenType[128];
+    private static final TokenType[] doubleOperatorTokens = new TokenType[128];
+    private static final TokenType[] structureTokens = new TokenType[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            int characterClass = 0;
+
+            if (Character.isWhitespace(c))
+                characterClass |= Whitespace;
+
+            if (c == '_' || Character.isAlphabetic(c))
+                characterClass |= IdentifierStart | IdentifierPart;
+
+            if (Character.isDigit(c))
+                characterClass |= Digit | IdentifierPart;
+
+            characterClasses[c] = (byte)characterClass;
+        }
+
+        powersOfTen[0] = 1.0;
+
+        for (int i = 1; i < powersOfTen.length; i++)
+            powersOfTen[i] = powersOfTen[i - 1] * 10.0;
+
+        operatorTokens['+'] = TokenType.Plus;
+        operatorTokens['-'] = TokenType.Minus;
+        operatorTokens['*'] = TokenType.Multiplication;
+        operatorTokens['/'] = TokenType.Division;
+        operatorTokens['%'] = TokenType.Modulo;
+        operatorTokens['^'] = TokenType.Exponentiation;
+        operatorTokens['<'] = TokenType.Less;
+        operatorTokens['>'] = TokenType.Greater;
+        operatorTokens['!'] = TokenType.Not;
+        operatorTokens['?'] = TokenType.Condition;
+        operatorTokens[':'] = TokenType.Otherwise;
+        operatorTokens['='] = TokenType.Assignment;
+
+        equalSuffixOperatorTokens['<'] = TokenType.LessEqual;
+        equalSuffixOperatorTokens['>'] = TokenType.GreaterEqual;
+        equalSuffixOperatorTokens['='] = TokenType.Equal;
+        equalSuffixOperatorTokens['!'] = TokenType.NotEqual;
+
+        doubleOperatorTokens['&'] = TokenType.And;
+        doubleOperatorTokens['|'] = TokenType.Or;
+
+        structureTokens[','] = TokenType.Comma;
+        structureTokens['('] = TokenType.LParenthesis;
+        structureTokens[')'] = TokenType.RParenthesis;
+    }
+
+    private CharSequence source;
     private TokenStream tokenStream;
 
+    private double numberValue;
+
     /**
      * Initializes the lexer by tokenizing the source code. An <i>end of
-     * line</i> token is attached to the end of the stream.
+     * line</i> token is attached to the end of the stream. The source is
+     * scanned by index and tokens only hold spans into it.
      * @param source The source code
      * @throws ExceptionContent Invalid token or expression thrown to
      * {@link Interpreter}
      * @see Interpreter#run(String, boolean)
-     * @see OperatorData
+     * @see OperatorTable
      */
-    public Lexer(String source) {
-        tokenStream = new TokenStream();
+    public Lexer(CharSequence source) {
+        this.source = source;
+        tokenStream = new TokenStream(source);
+
+        int length = source.length();
 
-        for (int i = 0; i < source.length(); i++) {
-            String s = source.substring(i);
-            char c = s.charAt(0);
+        for (int i = 0; i < length; i++) {
+            char c = source.charAt(i);
+            char next = i < length - 1 ? source.charAt(i + 1) : '\0';
 
+            int characterClass = classify(c);
             int endIndex;
 
-            if (Character.isWhitespace(c))
+            if ((characterClass & Whitespace) != 0)
                 continue;
-            else if ((endIndex = isIdentifier(s)) != 0) {
-                tokenStream.add(Token.createIdentifier(s.substring(0, endIndex), i));
-                i += endIndex - 1;
-            } else if ((endIndex = isNumber(s)) != 0) {
-                tokenStream.add(Token.createNumber(s.substring(0, endIndex), i));
-                i += endIndex - 1;
-            } else if (s.startsWith("//")) {
-                tokenStream.add(Token.createComment(s.substring(2).trim(), i));
+            else if ((characterClass & IdentifierStart) != 0) {
+                endIndex = isIdentifier(i);
+
+                tokenStream.addIdentifier(i, endIndex);
+                i = endIndex - 1;
+            } else if ((characterClass & Digit) != 0) {
+                endIndex = isNumber(i);
+
+                tokenStream.addNumber(i, endIndex, numberValue);
+                i = endIndex - 1;
+            } else if (c == '/' && next == '/') {
+                int commentStart = i + 2;
+                int commentEnd = length;
+
+                while (commentStart < commentEnd && source.charAt(commentStart) <= ' ')
+                    commentStart++;
+
+                while (commentEnd > commentStart && source.charAt(commentEnd - 1) <= ' ')
+                    commentEnd--;
+
+                tokenStream.add(TokenType.Comment, commentStart, commentEnd);
                 break;
-            } else if (s.startsWith("<="))
-                tokenStream.add(Token.createOperator(TokenType.LessEqual,
-                        null, new OperatorData(4, Associativity.Left), null, i++));
-            else if (s.startsWith(">="))
-                tokenStream.add(Token.createOperator(TokenType.GreaterEqual,
-                        null, new OperatorData(4, Associativity.Left), null, i++));
-            else if (s.startsWith("=="))
-                tokenStream.add(Token.createOperator(TokenType.Equal,
-                        null, new OperatorData(3, Associativity.Left), null, i++));
-            else if (s.startsWith("!="))
-                tokenStream.add(Token.createOperator(TokenType.NotEqual,
-                        null, new OperatorData(3, Associativity.Left), null, i++));
-            else if (s.startsWith("&&"))
-                tokenStream.add(Token.createOperator(TokenType.And,
-                        null, new OperatorData(2, Associativity.Left), null, i++));
-            else if (s.startsWith("||"))
-                tokenStream.add(Token.createOperator(TokenType.Or,
-                        null, new OperatorData(1, Associativity.Left), null, i++));
+            } else if (c >= 128)
+                throw new ExceptionContent(ExceptionMessage.UnknownToken, i);
+            else if (next == '=' && equalSuffixOperatorTokens[c] != null) {
+                tokenStream.add(equalSuffixOperatorTokens[c], i, i + 2);
+                i++;
+            } else if (next == c && doubleOperatorTokens[c] != null) {
+                tokenStream.add(doubleOperatorTokens[c], i, i + 2);
+                i++;
+            } else if (operatorTokens[c] != null)
+                tokenStream.add(operatorTokens[c], i, i + 1);
+            else if (structureTokens[c] != null)
+                tokenStream.add(structureTokens[c], i, i + 1);
             else
-                switch (c) {
-                    case '+':
-                        tokenStream.add(Token.createOperator(TokenType.Plus,
-                                new OperatorData(7, Associativity.Right),
-                                new OperatorData(5, Associativity.Left), null, i));
-                        break;
-                    case '-':
-                        tokenStream.add(Token.createOperator(TokenType.Minus,
-                                new OperatorData(7, Associativity.Right),
-                                new OperatorData(5, Associativity.Left), null, i));
-                        break;
-                    case '*':
-                        tokenStream.add(Token.createOperator(TokenType.Multiplication,
-                                null, new OperatorData(6, Associativity.Left), null, i));
-                        break;
-                    case '/':
-                        tokenStream.add(Token.createOperator(TokenType.Division,
-                                null, new OperatorData(6, Associativity.Left), null, i));
-                        break;
-                    case '%':
-                        tokenStream.add(Token.createOperator(TokenType.Modulo,
-                                null, new OperatorData(6, Associativity.Left), null, i));
-                        break;
-                    case '^':
-                        tokenStream.add(Token.createOperator(TokenType.Exponentiation,
-                                null, new OperatorData(8, Associativity.Right), null, i));
-                        break;
-                    case '<':
-                        tokenStream.add(Token.createOperator(TokenType.Less,
-                                null, new OperatorData(4, Associativity.Left), null, i));
-                        break;
-                    case '>':
-                        tokenStream.add(Token.createOperator(TokenType.Greater,
-                                null, new OperatorData(4, Associativity.Left), null, i));
-                        break;
-                    case '!':
-                        tokenStream.add(Token.createOperator(TokenType.Not,
-                                new OperatorData(7, Associativity.Right), null, null, i));
-                        break;
-                    case '?':
-                        tokenStream.add(Token.createOperator(TokenType.Condition,
-                                null, null, new OperatorData(1, Associativity.Right), i));
-                        break;
-                    case ':':
-                        tokenStream.add(Token.createOperator(TokenType.Otherwise,
-                                null, null, null, i));
-                        break;
-                    case '=':
-                        tokenStream.add(Token.createOperator(TokenType.Assignment,
-                                null, new OperatorData(0, Associativity.Right), null, i));
-                        break;
-                    case ',':
-                        tokenStream.add(Token.createStructure(TokenType.Comma, i));
-                        break;
-                    case '(':
-                        tokenStream.add(Token.createStructure(TokenType.LParenthesis, i));
-                        break;
-                    case ')':
-                        tokenStream.add(Token.createStructure(TokenType.RParenthesis, i));
-                        break;
-                    default:
-                        throw new ExceptionContent(ExceptionMessage.UnknownToken, i);
-                }
+                throw new ExceptionContent(ExceptionMessage.UnknownToken, i);
         }
 
-        tokenStream.add(Token.createStructure(TokenType.EOL, source.length()));
+        tokenStream.add(TokenType.EOL, length, length);
+    }
+
+    /**
+     * Returns the source code scanned by the lexer.
+     * @return The source code.
+     */
+    public CharSequence getSource() {
+        return source;
     }
 
     /**
@@ -166,58 +192,152 @@ public class Lexer {
         return tokenStream;
     }
 
-    private int isIdentifier(String source) {
-        int i = 0;
-        char c = source.charAt(i);
+    private static int classify(char c) {
+        if (c < 128)
+            return characterClasses[c];
 
-        if (c == '_' || Character.isAlphabetic(c))
-            while (++i < source.length()) {
-                c = source.charAt(i);
+        int characterClass = 0;
 
-                if (c != '_' && !Character.isDigit(c) && !Character.isAlphabetic(c))
-                    break;
-            }
+        if (Character.isWhitespace(c))
+            characterClass |= Whitespace;
+
+        if (Character.isAlphabetic(c))
+            characterClass |= IdentifierStart | IdentifierPart;
+
+        if (Character.isDigit(c))
+            characterClass |= Digit | IdentifierPart;
+
+        return characterClass;
+    }
+
+    private static boolean isDigit(char c) {
+        return (classify(c) & Digit) != 0;
+    }
+
+    private int isIdentifier(int start) {
+        int length = source.length();
+        int i = start;
+
+        while (++i < length)
+            if ((classify(source.charAt(i)) & IdentifierPart) == 0)
+                break;
 
         return i;
     }
 
-    private int isNumber(String source) {
-        int i = 0;
+    private int isNumber(int start) {
+        int length = source.length();
+
+        int i = start;
         char c = source.charAt(i);
 
-        if (!Character.isDigit(c))
-            return i;
+        long mantissa = 0;
+        int digitCount = 0;
+        int exponent = 0;
+        boolean fastPath = true;
 
-        while (Character.isDigit(c))
-            c = ++i < source.length() ? source.charAt(i) : '\0';
+        while (isDigit(c)) {
+            if (c > '9')
+                fastPath = false;
+            else if (mantissa != 0 || c != '0') {
+                if (digitCount++ < MaximumFastDigits)
+                    mantissa = mantissa * 10 + (c - '0');
+                else
+                    fastPath = false;
+            }
 
-        if (i < source.length() - 1 && c == '.') {
+            c = ++i < length ? source.charAt(i) : '\0';
+        }
+
+        if (i < length - 1 && c == '.') {
             c = source.charAt(++i);
 
-            if (!Character.isDigit(c))
+            if (!isDigit(c)) {
+                numberValue = toDouble(start, i - 1, mantissa, exponent, fastPath);
                 return i - 1;
+            }
+
+            while (isDigit(c)) {
+                if (c > '9')
+                    fastPath = false;
+                else if (mantissa != 0 || c != '0') {
+                    if (digitCount++ < MaximumFastDigits)
+                        mantissa = mantissa * 10 + (c - '0');
+                    else
+                        fastPath = false;
+                }
 
-            while (Character.isDigit(c))
-                c = ++i < source.length() ? source.charAt(i) : '\0';
+                exponent--;
+                c = ++i < length ? source.charAt(i) : '\0';
+            }
         }
 
-        if (i < source.length() - 1 && c == 'e') {
+        int endIndex = i;
+
+        if (i < length - 1 && c == 'e') {
             c = source.charAt(++i);
 
-            if (i < source.length() - 1 && (c == '+' || c == '-')) {
+            boolean negative = false;
+
+            if (i < length - 1 && (c == '+' || c == '-')) {
+                negative = c == '-';
                 c = source.charAt(++i);
 
-                if (!Character.isDigit(c))
-                    return i - 2;
+                if (!isDigit(c)) {
+                    numberValue = toDouble(start, endIndex, mantissa, exponent, fastPath);
+                    return endIndex;
+                }
             }
 
-            if (!Character.isDigit(c))
-                return i - 1;
+            if (!isDigit(c)) {
+                numberValue = toDouble(start, endIndex, mantissa, exponent, fastPath);
+                return endIndex;
+            }
+
+            int exponentValue = 0;
+
+            while (isDigit(c)) {
+                if (c > '9')
+                    fastPath = false;
+                else if (exponentValue < MaximumExponent)
+                    exponentValue = exponentValue * 10 + (c - '0');
 
-            while (Character.isDigit(c))
-                c = ++i < source.length() ? source.charAt(i) : '\0';
+                c = ++i < length ? source.charAt(i) : '\0';
+            }
+
+            exponent += negative ? -exponentValue : exponentValue;
+            endIndex = i;
         }
 
-        return i;
+        numberValue = toDouble(start, endIndex, mantissa, exponent, fastPath);
+        return endIndex;
+    }
+
+    private double toDouble(int start, int end, long mantissa, int exponent,
+            boolean fastPath) {
+        if (fastPath) {
+            if (mantissa == 0)
+                return 0.0;
+
+            if (mantissa <= MaximumExactMantissa) {
+                int maximumExponent = powersOfTen.length - 1;
+
+                if (exponent == 0)
+                    return mantissa;
+                else if (exponent > 0 && exponent <= maximumExponent)
+                    return mantissa * powersOfTen[exponent];
+                else if (exponent < 0 && -exponent <= maximumExponent)
+                    return mantissa / powersOfTen[-exponent];
+                else if (exponent > maximumExponent
+                        && exponent - maximumExponent <= maximumExponent) {
+                    double scaledMantissa = mantissa * powersOfTen[exponent - maximumExponent];
+
+                    if (scaledMantissa < MaximumExactMantissa)
+                        return scaledMantissa * powersOfTen[maximumExponent];
+                }
+            }
+        }
+
+        return Double.parseDouble(source.subSequence(start, end).toString());
     }
 }
\ No newline at end of file
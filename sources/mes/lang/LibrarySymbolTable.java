@@ -0,0 +1,320 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import mes.lang.Symbol.SymbolType;
+import mes.lang.SymbolLibrary.IndexEntry;
+
+/**
+ * Symbol table layer with the symbols of external libraries. Loading a
+ * library only indexes its symbols: the symbols of a native class are
+ * imported into the layer when a lookup first misses one of them. Libraries
+ * can not redefine symbols of the parent layers, and a symbol exported by
+ * more than one library is taken from the library loaded first. Imported
+ * constants and functions are never folded into closures nor cached, since
+ * they are undefined when their library is unloaded.
+ * <p>
+ * Imported symbols are kept in a read-only snapshot, replaced by a new one
+ * when a class is imported or a library is unloaded, so lookups never change
+ * a set another thread may be iterating. Iteration, <code>size</code> and
+ * <code>contains</code> see the symbols already imported and, for the
+ * classes not imported yet, placeholders built from the library index with
+ * the name, type and argument count of each symbol, so listing the symbols,
+ * such as for autocompletion, loads no class. Symbols can not be added to or
+ * removed from the layer directly.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see SymbolLibrary
+ * @see Interpreter#loadLibrary(SymbolLibrary)
+ */
+public class LibrarySymbolTable extends SymbolTable {
+    private static final class LibraryContainer {
+        private final SymbolLibrary library;
+        private final String name;
+        private final List<IdentifierLiteralSymbol> indexSymbols;
+        private volatile boolean imported;
+
+        public LibraryContainer(SymbolLibrary library, String name) {
+            this.library = library;
+            this.name = name;
+
+            indexSymbols = new List<>();
+        }
+    }
+
+    private static final class IndexConstantSymbol extends VariableLiteralSymbol {
+        private static final long serialVersionUID = 2952470613317447218L;
+
+        public IndexConstantSymbol(String name) {
+            super(name, 0);
+        }
+
+        @Override
+        public String getPrototype() {
+            return name + ": number";
+        }
+    }
+
+    private static final long serialVersionUID = -151239829398121575L;
+
+    private final transient LinkedHashMap<SymbolLibrary,
+            List<IdentifierLiteralSymbol>> libraries;
+    private final transient ConcurrentHashMap<SymbolKey, LibraryContainer> indexedSymbols;
+    private transient volatile SymbolTable importedSymbols;
+    private transient volatile SymbolTable listedSymbols;
+
+    /**
+     * Initializes an empty library layer over another symbol table.
+     * @param parent The parent layer
+     */
+    public LibrarySymbolTable(SymbolTable parent) {
+        super(parent);
+
+        libraries = new LinkedHashMap<>();
+        indexedSymbols = new ConcurrentHashMap<>();
+
+        importedSymbols = new SymbolTable();
+        importedSymbols.makeReadOnly();
+    }
+
+    /**
+     * Indexes the symbols of a library. No class of the library is loaded.
+     * @param library The library
+     * @return True if the library was not loaded yet.
+     */
+    public synchronized boolean load(SymbolLibrary library) {
+        if (libraries.containsKey(library))
+            return false;
+
+        libraries.put(library, new List<>());
+
+        HashMap<String, LibraryContainer> containers = new HashMap<>();
+
+        for (IndexEntry indexEntry : library.getIndexEntries()) {
+            SymbolKey key = new SymbolKey(AtomTable.intern(indexEntry.getName()),
+                    indexEntry.getType(), indexEntry.getArgumentCount());
+
+            if (indexedSymbols.containsKey(key) || find(key) != null)
+                continue;
+
+            LibraryContainer container = containers.get(indexEntry.getContainerName());
+
+            if (container == null) {
+                container = new LibraryContainer(library, indexEntry.getContainerName());
+                containers.put(container.name, container);
+            }
+
+            indexedSymbols.put(key, container);
+            container.indexSymbols.add(createIndexSymbol(indexEntry));
+        }
+
+        listedSymbols = null;
+
+        updateVersion();
+        return true;
+    }
+
+    /**
+     * Removes the symbols of a library, imported or not.
+     * @param library The library
+     * @return The symbols of the library already imported or null if the
+     * library was not loaded.
+     */
+    public synchronized List<IdentifierLiteralSymbol> unload(SymbolLibrary library) {
+        List<IdentifierLiteralSymbol> librarySymbols = libraries.remove(library);
+
+        if (librarySymbols == null)
+            return null;
+
+        indexedSymbols.values().removeIf(container -> container.library == library);
+
+        SymbolTable symbols = copyImportedSymbols();
+
+        for (IdentifierLiteralSymbol identifierSymbol : librarySymbols)
+            symbols.remove(identifierSymbol);
+
+        symbols.makeReadOnly();
+        importedSymbols = symbols;
+        listedSymbols = null;
+
+        updateVersion();
+        return librarySymbols;
+    }
+
+    /**
+     * Returns the loaded libraries, in load order.
+     * @return A new list with the libraries.
+     */
+    public synchronized List<SymbolLibrary> getLibraries() {
+        List<SymbolLibrary> loadedLibraries = new List<>();
+        loadedLibraries.addAll(libraries.keySet());
+
+        return loadedLibraries;
+    }
+
+    @Override
+    public Iterator<IdentifierLiteralSymbol> iterator() {
+        return getListedSymbols().iterator();
+    }
+
+    @Override
+    public int size() {
+        return getListedSymbols().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getListedSymbols().isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return getListedSymbols().contains(object);
+    }
+
+    @Override
+    public boolean add(IdentifierLiteralSymbol identifierSymbol) {
+        throw new UnsupportedOperationException("Library symbol table.");
+    }
+
+    @Override
+    IdentifierLiteralSymbol defineSymbol(SymbolKey key) {
+        LibraryContainer container = indexedSymbols.get(key);
+
+        if (container == null)
+            return null;
+
+        if (!container.imported)
+            synchronized (this) {
+                if (!container.imported && indexedSymbols.get(key) == container)
+                    importSymbols(container);
+            }
+
+        return importedSymbols.find(key);
+    }
+
+    private void importSymbols(LibraryContainer container) {
+        SymbolImporter symbolImporter = container.library.importSymbols(container.name);
+
+        if (symbolImporter != null) {
+            List<IdentifierLiteralSymbol> librarySymbols
+                    = libraries.get(container.library);
+            SymbolTable symbols = copyImportedSymbols();
+
+            addSymbols(symbolImporter.getConstants(), symbols, librarySymbols);
+            addSymbols(symbolImporter.getFunctions(), symbols, librarySymbols);
+
+            symbols.makeReadOnly();
+            importedSymbols = symbols;
+        }
+
+        container.imported = true;
+        listedSymbols = null;
+    }
+
+    private void addSymbols(SymbolTable importerSymbols, SymbolTable symbols,
+            List<IdentifierLiteralSymbol> librarySymbols) {
+        SymbolTable parent = getParent();
+
+        for (IdentifierLiteralSymbol identifierSymbol : importerSymbols)
+            if ((parent == null || parent.find(identifierSymbol) == null)
+                    && symbols.add(identifierSymbol)) {
+                makeUnloadable(identifierSymbol);
+                librarySymbols.add(identifierSymbol);
+            }
+    }
+
+    private static void makeUnloadable(IdentifierLiteralSymbol identifierSymbol) {
+        if (identifierSymbol.getType() == SymbolType.Variable) {
+            ((VariableLiteralSymbol)identifierSymbol).setConstant(false);
+            return;
+        }
+
+        FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)identifierSymbol;
+
+        try {
+            NativeFunction nativeFunction = functionSymbol.getNativeFunction();
+            functionSymbol.setNativeFunction(nativeFunction.toImpure());
+        } catch (ExceptionContent exception) {
+            // Calls fail when the function is evaluated.
+        }
+    }
+
+    private SymbolTable getListedSymbols() {
+        SymbolTable symbols = listedSymbols;
+
+        if (symbols != null)
+            return symbols;
+
+        synchronized (this) {
+            if (listedSymbols != null)
+                return listedSymbols;
+
+            Set<LibraryContainer> containers
+                    = Collections.newSetFromMap(new IdentityHashMap<>());
+
+            symbols = copyImportedSymbols();
+
+            for (LibraryContainer container : indexedSymbols.values())
+                if (!container.imported && containers.add(container))
+                    symbols.addAll(container.indexSymbols);
+
+            symbols.makeReadOnly();
+            listedSymbols = symbols;
+
+            return symbols;
+        }
+    }
+
+    private static IdentifierLiteralSymbol createIndexSymbol(IndexEntry indexEntry) {
+        if (indexEntry.getType() == SymbolType.Variable)
+            return new IndexConstantSymbol(indexEntry.getName());
+
+        FunctionArgumentList arguments = new FunctionArgumentList();
+
+        for (int i = 0; i < indexEntry.getArgumentCount(); i++)
+            arguments.add(new FunctionArgument(new VariableLiteralSymbol("arg" + i, 0)));
+
+        return new FunctionLiteralSymbol(indexEntry.getName(), arguments, 0);
+    }
+
+    private SymbolTable copyImportedSymbols() {
+        SymbolTable symbols = new SymbolTable();
+        symbols.addAll(importedSymbols);
+
+        return symbols;
+    }
+}
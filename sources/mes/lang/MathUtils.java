@@ -532,7 +532,8 @@ public abstract class MathUtils {
      * Returns a pseudorandom real value between zero and one (exclusive).
      * @return A pseudorandom real value.
      */
-    @ExportSymbol("Returns a pseudorandom number between zero and one (exclusive).")
+    @ExportSymbol(value = "Returns a pseudorandom number between zero and one (exclusive).",
+            pure = false)
     public static double rand() {
         return random.nextDouble();
     }
@@ -541,7 +542,7 @@ public abstract class MathUtils {
      * Returns a pseudorandom positive integer value.
      * @return A pseudorandom positive integer value.
      */
-    @ExportSymbol("Returns a pseudorandom positive integer number.")
+    @ExportSymbol(value = "Returns a pseudorandom positive integer number.", pure = false)
     public static int seed() {
         return random.nextInt(Integer.MAX_VALUE);
     }
@@ -0,0 +1,235 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Method;
+import mes.lang.ExceptionContent.ExceptionMessage;
+
+/**
+ * Direct invoker of a native function. The method is either called by the
+ * {@link SymbolRegistry} generated for its class or bound once to a
+ * {@link MethodHandle} taking the argument values as a <code>double</code>
+ * array and returning a <code>double</code>, so calls need no reflection and
+ * box no value. Boolean results become numbers and boolean parameters take
+ * the truth of their argument.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see SymbolImporter
+ * @see SymbolRegistry
+ * @see FunctionLiteralSymbol#getNativeFunction()
+ */
+public final class NativeFunction {
+    private static final MethodType InvokerType
+            = MethodType.methodType(double.class, double[].class);
+
+    private static final MethodHandle NumberConverter;
+    private static final MethodHandle BooleanConverter;
+    private static final MethodHandle ObjectConverter;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+            NumberConverter = lookup.findStatic(MathUtils.class, "number",
+                    MethodType.methodType(double.class, boolean.class));
+            BooleanConverter = lookup.findStatic(MathUtils.class, "bool",
+                    MethodType.methodType(boolean.class, double.class));
+            ObjectConverter = lookup.findStatic(NativeFunction.class, "toDouble",
+                    MethodType.methodType(double.class, Object.class));
+        } catch (ReflectiveOperationException exception) {
+            throw new ExceptionInInitializerError(exception);
+        }
+    }
+
+    private final SymbolRegistry registry;
+    private final int function;
+    private final MethodHandle methodHandle;
+    private final boolean impure;
+
+    private Method method;
+
+    private NativeFunction(Method method, MethodHandle methodHandle) {
+        registry = null;
+        function = -1;
+        impure = false;
+
+        this.method = method;
+        this.methodHandle = methodHandle;
+    }
+
+    private NativeFunction(SymbolRegistry registry, int function) {
+        this.registry = registry;
+        this.function = function;
+
+        methodHandle = null;
+        impure = false;
+    }
+
+    private NativeFunction(NativeFunction nativeFunction) {
+        registry = nativeFunction.registry;
+        function = nativeFunction.function;
+        methodHandle = nativeFunction.methodHandle;
+        method = nativeFunction.method;
+
+        impure = true;
+    }
+
+    /**
+     * Returns the native method. Methods exported through a registry are
+     * looked up on the first call.
+     * @return The method or null if it can not be found.
+     * @see SymbolRegistry#getMethod(int)
+     */
+    public Method getMethod() {
+        if (method == null && registry != null)
+            method = registry.getMethod(function);
+
+        return method;
+    }
+
+    /**
+     * Returns whether the native function always gives the same result for
+     * the same arguments and has no side effect.
+     * @return True if the function is pure.
+     * @see ExportSymbol#pure()
+     */
+    public boolean isPure() {
+        if (impure)
+            return false;
+
+        if (registry != null)
+            return registry.isPure(function);
+
+        return FunctionLiteralSymbol.isPure(method);
+    }
+
+    /**
+     * Returns an invoker of the same native function that is never pure, so
+     * its calls are neither folded into closures nor cached. Used for
+     * functions that can be unloaded, like the ones of external libraries.
+     * @return The impure invoker.
+     * @see #isPure()
+     */
+    public NativeFunction toImpure() {
+        return impure ? this : new NativeFunction(this);
+    }
+
+    /**
+     * Invokes the native function.
+     * @param argumentValues The values of function arguments
+     * @param position The position of the function call at the source code
+     * @return The output value.
+     * @throws ExceptionContent Function evaluation failure
+     */
+    public double invoke(double[] argumentValues, int position) {
+        try {
+            if (registry != null)
+                return registry.invoke(function, argumentValues);
+
+            return (double)methodHandle.invokeExact(argumentValues);
+        } catch (Throwable throwable) {
+            throw new ExceptionContent(ExceptionMessage.FunctionEvaluationFailed,
+                    position);
+        }
+    }
+
+    /**
+     * Binds a method exported through a registry to a direct invoker.
+     * @param registry The registry of the native class
+     * @param function The function index
+     * @return The invoker.
+     */
+    public static NativeFunction bind(SymbolRegistry registry, int function) {
+        return new NativeFunction(registry, function);
+    }
+
+    /**
+     * Binds a static method to a direct invoker.
+     * @param method The native function
+     * @return The invoker.
+     * @throws IllegalAccessException The method is not accessible
+     * @throws IllegalArgumentException Parameter or return type not
+     * convertible from or to <code>double</code>
+     */
+    public static NativeFunction bind(Method method) throws IllegalAccessException {
+        MethodHandle methodHandle = MethodHandles.lookup().unreflect(method);
+
+        try {
+            Class<?>[] parameterTypes = method.getParameterTypes();
+
+            for (int i = 0; i < parameterTypes.length; i++)
+                if (parameterTypes[i] != double.class)
+                    methodHandle = MethodHandles.filterArguments(methodHandle, i,
+                            getParameterConverter(parameterTypes[i]));
+
+            Class<?> returnType = methodHandle.type().returnType();
+
+            if (returnType == boolean.class)
+                methodHandle = MethodHandles.filterReturnValue(methodHandle,
+                        NumberConverter);
+            else if (!returnType.isPrimitive())
+                methodHandle = MethodHandles.filterReturnValue(methodHandle,
+                        ObjectConverter.asType(ObjectConverter.type()
+                                .changeParameterType(0, returnType)));
+            else
+                methodHandle = MethodHandles.explicitCastArguments(methodHandle,
+                        methodHandle.type().changeReturnType(double.class));
+
+            methodHandle = methodHandle.asSpreader(double[].class, parameterTypes.length);
+
+            return new NativeFunction(method, methodHandle.asType(InvokerType));
+        } catch (WrongMethodTypeException exception) {
+            throw new IllegalArgumentException("Unsupported native function type.",
+                    exception);
+        }
+    }
+
+    private static MethodHandle getParameterConverter(Class<?> parameterType) {
+        if (parameterType == boolean.class)
+            return BooleanConverter;
+        else if (parameterType.isPrimitive())
+            return MethodHandles.explicitCastArguments(
+                    MethodHandles.identity(double.class),
+                    MethodType.methodType(parameterType, double.class));
+
+        return MethodHandles.identity(double.class).asType(
+                MethodType.methodType(parameterType, double.class));
+    }
+
+    private static double toDouble(Object output) {
+        if (output instanceof Boolean)
+            return MathUtils.number((Boolean)output);
+
+        return ((Number)output).doubleValue();
+    }
+}
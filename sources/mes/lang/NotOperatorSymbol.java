@@ -35,6 +35,8 @@ package mes.lang;
  * @see UnaryOperatorSymbol
  */
 public class NotOperatorSymbol extends UnaryOperatorSymbol {
+    private static final long serialVersionUID = -4595564837458647057L;
+
     /**
      * Initializes the <i>not</i> operator. By default the position index is
      * zero.
@@ -56,8 +58,7 @@ public class NotOperatorSymbol extends UnaryOperatorSymbol {
      * {@inheritDoc}
      */
     @Override
-    public LiteralSymbol evaluate(Symbol[] symbols) {
-        LiteralSymbol inputOperand = (LiteralSymbol)symbols[0];
-        return new NumberLiteralSymbol(!inputOperand.getBooleanValue(), position);
+    public double evaluate(double inputOperand) {
+        return MathUtils.number(!MathUtils.bool(inputOperand));
     }
 }
\ No newline at end of file
@@ -29,10 +29,12 @@
 package mes.lang;
 
 /**
- * Represents the properties of a unary, binary or ternary operator.
+ * Represents the properties of a unary, binary or ternary operator. Instances
+ * are immutable and shared through {@link OperatorTable}.
  * @author Danilo Ferreira
  * @version 1.0.0
  * @see Token
+ * @see OperatorTable
  */
 public class OperatorData {
     /**
@@ -49,8 +51,8 @@ public class OperatorData {
         Right
     }
 
-    private int precedence;
-    private Associativity associativity;
+    private final int precedence;
+    private final Associativity associativity;
 
     /**
      * Initializes the operator data.
@@ -35,6 +35,8 @@ package mes.lang;
  * @see Symbol
  */
 public abstract class OperatorSymbol extends Symbol {
+    private static final long serialVersionUID = -6608412731689187116L;
+
     /**
      * Initializes an operator symbol.
      * @param type The symbol type
@@ -0,0 +1,159 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import mes.lang.OperatorData.Associativity;
+import mes.lang.Token.TokenType;
+
+/**
+ * Static table of the operator properties of each token type. Every operator
+ * and arity maps to a single shared {@link OperatorData} instance.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see OperatorData
+ * @see Lexer
+ * @see Parser
+ */
+public abstract class OperatorTable {
+    /**
+     * Positive, negative and <i>not</i> operator data.
+     */
+    public static final OperatorData Unary = new OperatorData(7, Associativity.Right);
+
+    /**
+     * Exponentiation operator data.
+     */
+    public static final OperatorData Exponentiation
+            = new OperatorData(8, Associativity.Right);
+
+    /**
+     * Multiplication, division and modulo operator data.
+     */
+    public static final OperatorData Multiplicative
+            = new OperatorData(6, Associativity.Left);
+
+    /**
+     * Addition and subtraction operator data.
+     */
+    public static final OperatorData Additive = new OperatorData(5, Associativity.Left);
+
+    /**
+     * Less, less equal, greater and greater equal operator data.
+     */
+    public static final OperatorData Relational = new OperatorData(4, Associativity.Left);
+
+    /**
+     * Equal and not equal operator data.
+     */
+    public static final OperatorData Equality = new OperatorData(3, Associativity.Left);
+
+    /**
+     * <i>And</i> operator data.
+     */
+    public static final OperatorData And = new OperatorData(2, Associativity.Left);
+
+    /**
+     * <i>Or</i> operator data.
+     */
+    public static final OperatorData Or = new OperatorData(1, Associativity.Left);
+
+    /**
+     * Conditional operator data.
+     */
+    public static final OperatorData Conditional = new OperatorData(1, Associativity.Right);
+
+    /**
+     * Assignment operator data.
+     */
+    public static final OperatorData Assignment = new OperatorData(0, Associativity.Right);
+
+    private static final OperatorData[] unaryOperators;
+    private static final OperatorData[] binaryOperators;
+    private static final OperatorData[] ternaryOperators;
+
+    static {
+        int tokenTypeCount = TokenType.values().length;
+
+        unaryOperators = new OperatorData[tokenTypeCount];
+        binaryOperators = new OperatorData[tokenTypeCount];
+        ternaryOperators = new OperatorData[tokenTypeCount];
+
+        unaryOperators[TokenType.Plus.ordinal()] = Unary;
+        unaryOperators[TokenType.Minus.ordinal()] = Unary;
+        unaryOperators[TokenType.Not.ordinal()] = Unary;
+
+        binaryOperators[TokenType.Plus.ordinal()] = Additive;
+        binaryOperators[TokenType.Minus.ordinal()] = Additive;
+        binaryOperators[TokenType.Multiplication.ordinal()] = Multiplicative;
+        binaryOperators[TokenType.Division.ordinal()] = Multiplicative;
+        binaryOperators[TokenType.Modulo.ordinal()] = Multiplicative;
+        binaryOperators[TokenType.Exponentiation.ordinal()] = Exponentiation;
+        binaryOperators[TokenType.LessEqual.ordinal()] = Relational;
+        binaryOperators[TokenType.Less.ordinal()] = Relational;
+        binaryOperators[TokenType.GreaterEqual.ordinal()] = Relational;
+        binaryOperators[TokenType.Greater.ordinal()] = Relational;
+        binaryOperators[TokenType.Equal.ordinal()] = Equality;
+        binaryOperators[TokenType.NotEqual.ordinal()] = Equality;
+        binaryOperators[TokenType.And.ordinal()] = And;
+        binaryOperators[TokenType.Or.ordinal()] = Or;
+        binaryOperators[TokenType.Assignment.ordinal()] = Assignment;
+
+        ternaryOperators[TokenType.Condition.ordinal()] = Conditional;
+    }
+
+    /**
+     * Returns the unary operator data of a token type.
+     * @param type The token type
+     * @return The shared operator data or null if the token type is not a
+     * unary operator.
+     */
+    public static OperatorData getUnaryOperatorData(TokenType type) {
+        return unaryOperators[type.ordinal()];
+    }
+
+    /**
+     * Returns the binary operator data of a token type.
+     * @param type The token type
+     * @return The shared operator data or null if the token type is not a
+     * binary operator.
+     */
+    public static OperatorData getBinaryOperatorData(TokenType type) {
+        return binaryOperators[type.ordinal()];
+    }
+
+    /**
+     * Returns the ternary operator data of a token type.
+     * @param type The token type
+     * @return The shared operator data or null if the token type is not a
+     * ternary operator.
+     */
+    public static OperatorData getTernaryOperatorData(TokenType type) {
+        return ternaryOperators[type.ordinal()];
+    }
+}
@@ -35,6 +35,8 @@ package mes.lang;
  * @see BinaryOperatorSymbol
  */
 public class OrOperatorSymbol extends BinaryOperatorSymbol {
+    private static final long serialVersionUID = 7122427931256082864L;
+
     /**
      * Initializes the <i>or</i> operator.
      */
@@ -46,7 +48,7 @@ public class OrOperatorSymbol extends BinaryOperatorSymbol {
      * Initializes the <i>or</i> operator. By default the <i>or</i> operator is
      * left associative with precedence 2.
      * @param position The symbol position at the source code
-     * @see Lexer#Lexer(String)
+     * @see Lexer#Lexer(CharSequence)
      * @see OperatorData
      */
     public OrOperatorSymbol(int position) {
@@ -57,11 +59,8 @@ public class OrOperatorSymbol extends BinaryOperatorSymbol {
      * {@inheritDoc}
      */
     @Override
-    public LiteralSymbol evaluate(Symbol[] symbols) {
-        LiteralSymbol leftOperand = (LiteralSymbol)symbols[0];
-        LiteralSymbol rightOperand = (LiteralSymbol)symbols[1];
-
-        return new NumberLiteralSymbol(leftOperand.getBooleanValue()
-                || rightOperand.getBooleanValue(), position);
+    public double evaluate(double leftOperand, double rightOperand) {
+        return MathUtils.number(MathUtils.bool(leftOperand)
+                || MathUtils.bool(rightOperand));
     }
 }
\ No newline at end of file
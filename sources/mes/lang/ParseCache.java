@@ -0,0 +1,333 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import mes.lang.Symbol.SymbolType;
+
+/**
+ * Least recently used cache of parsed statements for {@link Interpreter}. The
+ * cache maps normalized source code to its abstract syntax tree and comment,
+ * so repeated statements skip the {@link Lexer} and the {@link Parser}. The
+ * capacity is measured in characters of cached source code. The cache is
+ * thread safe and statements missing from it are parsed outside of its lock.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see Interpreter#run(String, boolean)
+ */
+public class ParseCache {
+    /**
+     * Parsed form of a statement. The abstract syntax tree of an entry is
+     * shared by every statement with the same source code, so its structure
+     * must not be modified by evaluation.
+     * @author Danilo Ferreira
+     * @version 1.0.0
+     * @see AbstractSyntaxTree
+     */
+    public static final class Entry {
+        private final AbstractSyntaxTree abstractSyntaxTree;
+        private final String comment;
+        private final int weight;
+        private final boolean assignment;
+
+        private Bytecode bytecode;
+        private volatile boolean compiled;
+        private boolean used;
+
+        private Entry(AbstractSyntaxTree abstractSyntaxTree, String comment,
+                int weight) {
+            this.abstractSyntaxTree = abstractSyntaxTree;
+            this.comment = comment;
+            this.weight = weight;
+
+            assignment = containsAssignment(abstractSyntaxTree.getRoot());
+        }
+
+        /**
+         * Returns the abstract syntax tree of the statement.
+         * @return The abstract syntax tree.
+         */
+        public AbstractSyntaxTree getAbstractSyntaxTree() {
+            return abstractSyntaxTree;
+        }
+
+        /**
+         * Returns the comment of the statement.
+         * @return The comment string.
+         */
+        public String getComment() {
+            return comment;
+        }
+
+        /**
+         * Returns whether the statement contains an assignment operator.
+         * @return True if the statement contains an assignment and false
+         * otherwise.
+         */
+        public boolean hasAssignment() {
+            return assignment;
+        }
+
+        /**
+         * Returns the statement compiled to bytecode. The statement is
+         * compiled on the second call, since a statement that runs once is
+         * evaluated faster than it is compiled. Threads racing on the call may
+         * compile the statement more than once.
+         * @param globalSymbolTable The symbol table with native functions
+         * @return The bytecode or null if the statement can not be compiled
+         * or was not used before.
+         * @see BytecodeCompiler
+         */
+        public Bytecode getBytecode(SymbolTable globalSymbolTable) {
+            if (!compiled) {
+                if (!used) {
+                    used = true;
+                    return null;
+                }
+
+                bytecode = BytecodeCompiler.compile(abstractSyntaxTree.getRoot(),
+                        new FunctionArgumentList(), globalSymbolTable);
+                compiled = true;
+            }
+
+            return bytecode;
+        }
+
+        private static boolean containsAssignment(AbstractSyntaxNode root) {
+            ArrayDeque<AbstractSyntaxNode> pendingNodes = new ArrayDeque<>();
+
+            if (root != null)
+                pendingNodes.push(root);
+
+            while (!pendingNodes.isEmpty()) {
+                Symbol symbol = (Symbol)pendingNodes.pop();
+
+                if (symbol.getType() == SymbolType.Assignment)
+                    return true;
+
+                if (symbol.getType() == SymbolType.Function) {
+                    FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)symbol;
+
+                    for (FunctionArgument argument : functionSymbol.getArguments())
+                        pendingNodes.push(argument.getRoot());
+                } else
+                    for (AbstractSyntaxNode child : symbol.getChildren())
+                        if (child != null)
+                            pendingNodes.push(child);
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Default capacity in characters of cached source code.
+     */
+    public static final int DefaultCapacity = 1 << 16;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    private int capacity;
+    private int weight;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Initializes the cache with the default capacity.
+     * @see #DefaultCapacity
+     */
+    public ParseCache() {
+        this(DefaultCapacity);
+    }
+
+    /**
+     * Initializes the cache.
+     * @param capacity The capacity in characters of cached source code. A
+     * capacity of zero disables the cache
+     * @throws IllegalArgumentException Negative capacity
+     */
+    public ParseCache(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Negative cache capacity.");
+
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        this.capacity = capacity;
+        weight = 0;
+    }
+
+    /**
+     * Returns the parsed form of a source code, parsing and caching it when
+     * the source code is not in the cache. Source code with syntax errors is
+     * never cached.
+     * @param source The source code
+     * @return The parsed form of the source code.
+     * @throws ExceptionContent Invalid syntax thrown to {@link Interpreter}
+     * @see #normalize(String)
+     */
+    public Entry parse(String source) {
+        String key = normalize(source);
+        Entry entry;
+
+        synchronized (this) {
+            entry = entries.get(key);
+
+            if (entry != null) {
+                hitCount++;
+                return entry;
+            }
+
+            missCount++;
+        }
+
+        Lexer lexer = new Lexer(source);
+        Parser parser = new Parser(lexer);
+
+        entry = new Entry(parser.getAbstractSyntaxTree(), parser.getComment(),
+                key.length() + 1);
+
+        synchronized (this) {
+            Entry cachedEntry = entries.get(key);
+
+            if (cachedEntry != null)
+                return cachedEntry;
+
+            if (entry.weight <= capacity) {
+                entries.put(key, entry);
+                weight += entry.weight;
+
+                evict();
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * Normalizes a source code to the cache key. Trailing whitespace does not
+     * change the parsed form nor the position of any token.
+     * @param source The source code
+     * @return The normalized source code.
+     */
+    public static String normalize(String source) {
+        int end = source.length();
+
+        while (end != 0 && source.charAt(end - 1) <= ' ')
+            end--;
+
+        return source.substring(0, end);
+    }
+
+    /**
+     * Sets the capacity of the cache, evicting the least recently used
+     * entries that do not fit.
+     * @param capacity The capacity in characters of cached source code. A
+     * capacity of zero disables the cache
+     * @throws IllegalArgumentException Negative capacity
+     */
+    public synchronized void setCapacity(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Negative cache capacity.");
+
+        this.capacity = capacity;
+        evict();
+    }
+
+    /**
+     * Returns the capacity of the cache.
+     * @return The capacity in characters of cached source code.
+     */
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the characters of source code currently cached.
+     * @return The cache weight.
+     */
+    public synchronized int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Returns the number of cached statements.
+     * @return The entry count.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups that found a cached statement.
+     * @return The hit count.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that parsed the source code.
+     * @return The miss count.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of statements removed to respect the capacity.
+     * @return The eviction count.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Removes all the cached statements. The counters are preserved.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+
+        while (weight > capacity && iterator.hasNext()) {
+            weight -= iterator.next().getValue().weight;
+            iterator.remove();
+
+            evictionCount++;
+        }
+    }
+}
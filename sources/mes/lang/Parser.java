@@ -28,23 +28,42 @@
 
 package mes.lang;
 
+import java.util.Arrays;
 import mes.lang.ExceptionContent.ExceptionMessage;
 import mes.lang.OperatorData.Associativity;
 import mes.lang.Token.TokenType;
 
 /**
- * Parser to assembly an abstract syntax tree from a {@link Lexer}.
+ * Parser to assembly an abstract syntax tree from a {@link Lexer}. Operands
+ * and pending operators are kept in explicit stacks, so the parser stack use
+ * does not depend on how deeply the expression is nested.
  * @author Danilo Ferreira
  * @version 1.0.0
  * @see Lexer
+ * @see OperatorTable
  * @see AbstractSyntaxTree
  */
 public class Parser {
+    private static final int UnaryOperation = 0;
+    private static final int BinaryOperation = 1;
+    private static final int Parenthesis = 2;
+    private static final int Condition = 3;
+    private static final int Otherwise = 4;
+    private static final int FunctionCall = 5;
+
     private String comment;
 
-    private TokenStream.Iterator currentTokenIterator;
+    private TokenStream.Cursor cursor;
     private AbstractSyntaxTree abstractSyntaxTree;
 
+    private Symbol[] operands;
+    private int operandCount;
+
+    private int[] operationKinds;
+    private Symbol[] operationSymbols;
+    private OperatorData[] operationData;
+    private int operationCount;
+
     /**
      * Initializes the parser by assembling an abstract syntax tree from the
      * token stream returned by a lexer object.
@@ -58,9 +77,21 @@ public class Parser {
         comment = "";
 
         TokenStream tokenStream = lexer.getTokenStream();
+        cursor = tokenStream.cursor();
+
+        operands = new Symbol[16];
+        operandCount = 0;
+
+        operationKinds = new int[16];
+        operationSymbols = new Symbol[16];
+        operationData = new OperatorData[16];
+        operationCount = 0;
 
-        currentTokenIterator = tokenStream.iterator();
         abstractSyntaxTree = new AbstractSyntaxTree(parseStatement());
+
+        operands = null;
+        operationSymbols = null;
+        operationData = null;
     }
 
     /**
@@ -81,12 +112,87 @@ public class Parser {
     }
 
     private Symbol parseStatement() {
-        Symbol statementSymbol = parseExpression();
+        boolean expectOperand = true;
 
-        if (expect(TokenType.Comment)) {
-            Token currentToken = current();
-            comment = currentToken.getValue();
+        while (true)
+            if (expectOperand) {
+                if (expect(TokenType.Number)) {
+                    pushOperand(new NumberLiteralSymbol(cursor.getNumberValue(),
+                            cursor.getPosition()));
+
+                    next();
+                    expectOperand = false;
+                } else if (expect(TokenType.Identifier)) {
+                    String identifierName = cursor.getAtom() != AtomTable.NoAtom
+                            ? AtomTable.getName(cursor.getAtom()) : cursor.getValue();
+                    int identifierPosition = cursor.getPosition();
+
+                    next();
+
+                    if (expect(TokenType.LParenthesis)) {
+                        next();
+                        pushOperation(FunctionCall, new FunctionLiteralSymbol(
+                                identifierName, identifierPosition), null);
+                    } else {
+                        pushOperand(new VariableLiteralSymbol(
+                                identifierName, identifierPosition));
+
+                        expectOperand = false;
+                    }
+                } else if (isUnaryOperator()) {
+                    OperatorData unaryOperatorData
+                            = OperatorTable.getUnaryOperatorData(cursor.getType());
+
+                    pushOperation(UnaryOperation, parseUnaryOperator(), unaryOperatorData);
+                } else if (expect(TokenType.LParenthesis)) {
+                    next();
+                    pushOperation(Parenthesis, null, null);
+                } else if (operationCount == 0)
+                    return parseStatementEnd();
+                else
+                    expectOperand = parseMissingOperand();
+            } else if (isBinaryOperator()) {
+                OperatorData binaryOperatorData
+                        = OperatorTable.getBinaryOperatorData(cursor.getType());
+
+                int precedence = binaryOperatorData.getPrecedence();
+
+                if (binaryOperatorData.getAssociativity() == Associativity.Right)
+                    precedence++;
+
+                reduceOperations(precedence);
+                pushOperation(BinaryOperation, parseBinaryOperator(), binaryOperatorData);
 
+                expectOperand = true;
+            } else if (expect(TokenType.Condition)) {
+                OperatorData ternaryOperatorData
+                        = OperatorTable.getTernaryOperatorData(cursor.getType());
+
+                reduceOperations(ternaryOperatorData.getPrecedence());
+
+                Symbol conditionalOperator = new ConditionalOperatorSymbol(
+                        cursor.getPosition());
+                conditionalOperator.setFirst(popOperand());
+
+                next();
+                pushOperation(Condition, conditionalOperator, ternaryOperatorData);
+
+                expectOperand = true;
+            } else {
+                reduceOperations(0);
+
+                if (operationCount == 0)
+                    return parseStatementEnd();
+
+                expectOperand = parseExpressionEnd();
+            }
+    }
+
+    private Symbol parseStatementEnd() {
+        Symbol statementSymbol = operandCount != 0 ? popOperand() : null;
+
+        if (expect(TokenType.Comment)) {
+            comment = cursor.getValue();
             next();
         }
 
@@ -98,100 +204,173 @@ public class Parser {
         return statementSymbol;
     }
 
-    private Symbol parseExpression() {
-        return parseExpression(0);
-    }
+    private boolean parseExpressionEnd() {
+        int index = operationCount - 1;
+        Symbol operationSymbol = operationSymbols[index];
 
-    private Symbol parseExpression(int minimumPrecendence) {
-        Symbol expressionSymbol = parseBasicOperator(minimumPrecendence);
+        switch (operationKinds[index]) {
+            case Condition:
+                if (expect(TokenType.Otherwise)) {
+                    operationSymbol.setSecond(popOperand());
+                    operationKinds[index] = Otherwise;
 
-        if (expressionSymbol == null)
-            return null;
-
-        if (!expect(TokenType.Condition))
-            return expressionSymbol;
+                    next();
+                    return true;
+                }
 
-        Token currentToken = current();
+                expectedElement("the otherwise token \":\" in conditional operator");
+                break;
+            case Otherwise:
+                operationSymbol.setThird(popOperand());
 
-        OperatorData ternaryOperatorData = currentToken.getTernaryOperatorData();
-        int precedence = ternaryOperatorData.getPrecedence();
+                popOperation();
+                pushOperand(operationSymbol);
 
-        if (precedence < minimumPrecendence)
-            return expressionSymbol;
+                return false;
+            case Parenthesis:
+                if (expect(TokenType.RParenthesis)) {
+                    popOperation();
+                    next();
 
-        Symbol conditionalOperator = new ConditionalOperatorSymbol(
-                currentToken.getPosition());
-        conditionalOperator.setFirst(expressionSymbol);
+                    return false;
+                }
 
-        next();
+                expectedElement("a right parenthesis \")\" after literal or expression");
+                break;
+            default:
+                FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)operationSymbol;
+                FunctionArgumentList functionArguments = functionSymbol.getArguments();
 
-        Symbol leftSymbol = parseExpression();
-        conditionalOperator.setSecond(leftSymbol);
+                if (expect(TokenType.Comma)) {
+                    functionArguments.add(new FunctionArgument(popOperand()));
+                    next();
 
-        if (leftSymbol == null)
-            expectedElement("a literal or expression in conditional operator");
+                    return true;
+                } else if (expect(TokenType.RParenthesis)) {
+                    functionArguments.add(new FunctionArgument(popOperand()));
 
-        if (expect(TokenType.Otherwise))
-            next();
-        else
-            expectedElement("the otherwise token \":\" in conditional operator");
+                    popOperation();
+                    pushOperand(functionSymbol);
 
-        Symbol rightSymbol = parseExpression();
-        conditionalOperator.setThird(rightSymbol);
+                    next();
+                    return false;
+                }
 
-        if (rightSymbol == null)
-            expectedElement("a literal or expression in conditional operator");
+                expectedElement("a right parenthesis \")\" after function arguments");
+        }
 
-        return conditionalOperator;
+        return false;
     }
 
-    private Symbol parseBasicOperator(int minimumPrecendence) {
-        Symbol expressionSymbol = parseLiteral();
-        Token currentToken = current();
+    private boolean parseMissingOperand() {
+        int index = operationCount - 1;
+
+        switch (operationKinds[index]) {
+            case UnaryOperation:
+                expectedElement("a literal or expression after unary operator");
+                break;
+            case BinaryOperation:
+                expectedElement("a literal or expression after binary operator");
+                break;
+            case Condition:
+            case Otherwise:
+                expectedElement("a literal or expression in conditional operator");
+                break;
+            case Parenthesis:
+                expectedElement("a literal or expression after left parenthesis \"(\"");
+                break;
+            default:
+                FunctionLiteralSymbol functionSymbol
+                        = (FunctionLiteralSymbol)operationSymbols[index];
 
-        if (expressionSymbol == null || !currentToken.isBinaryOperator())
-            return expressionSymbol;
+                if (!functionSymbol.getArguments().isEmpty())
+                    expectedElement("a literal or expression as function argument");
+                else if (expect(TokenType.RParenthesis)) {
+                    popOperation();
+                    pushOperand(functionSymbol);
 
-        OperatorData binaryOperatorData = currentToken.getBinaryOperatorData();
-        int precedence = binaryOperatorData.getPrecedence();
+                    next();
+                    return false;
+                }
 
-        while (currentToken.isBinaryOperator()
-                && precedence >= minimumPrecendence) {
-            Associativity associativity = binaryOperatorData.getAssociativity();
+                expectedElement("a right parenthesis \")\" after function arguments");
+        }
 
-            if (associativity == Associativity.Left)
-                precedence++;
+        return false;
+    }
 
-            Symbol binaryOperator = parseBinaryOperator();
-            binaryOperator.setFirst(expressionSymbol);
+    private void reduceOperations(int minimumPrecedence) {
+        while (operationCount != 0) {
+            int index = operationCount - 1;
+            int kind = operationKinds[index];
 
-            expressionSymbol = parseExpression(precedence);
+            if ((kind != UnaryOperation && kind != BinaryOperation)
+                    || operationData[index].getPrecedence() < minimumPrecedence)
+                break;
 
-            if (expressionSymbol != null) {
-                binaryOperator.setSecond(expressionSymbol);
+            Symbol operatorSymbol = operationSymbols[index];
 
-                expressionSymbol = binaryOperator;
-                currentToken = current();
+            if (kind == BinaryOperation) {
+                operatorSymbol.setSecond(popOperand());
+                operatorSymbol.setFirst(popOperand());
             } else
-                expectedElement("a literal or expression after binary operator");
+                operatorSymbol.setFirst(popOperand());
+
+            popOperation();
+            pushOperand(operatorSymbol);
+        }
+    }
+
+    private void pushOperand(Symbol operand) {
+        if (operandCount == operands.length)
+            operands = Arrays.copyOf(operands, operandCount << 1);
+
+        operands[operandCount++] = operand;
+    }
+
+    private Symbol popOperand() {
+        Symbol operand = operands[--operandCount];
+        operands[operandCount] = null;
+
+        return operand;
+    }
+
+    private void pushOperation(int kind, Symbol symbol, OperatorData data) {
+        if (operationCount == operationKinds.length) {
+            int capacity = operationCount << 1;
+
+            operationKinds = Arrays.copyOf(operationKinds, capacity);
+            operationSymbols = Arrays.copyOf(operationSymbols, capacity);
+            operationData = Arrays.copyOf(operationData, capacity);
         }
 
-        return expressionSymbol;
+        operationKinds[operationCount] = kind;
+        operationSymbols[operationCount] = symbol;
+        operationData[operationCount] = data;
+
+        operationCount++;
+    }
+
+    private void popOperation() {
+        operationCount--;
+
+        operationSymbols[operationCount] = null;
+        operationData[operationCount] = null;
     }
 
     private Symbol parseUnaryOperator() {
-        Token currentToken = current();
+        int position = cursor.getPosition();
         Symbol unaryOperator;
 
-        switch (currentToken.getType()) {
+        switch (cursor.getType()) {
             case Plus:
-                unaryOperator = new PositiveOperatorSymbol(currentToken.getPosition());
+                unaryOperator = new PositiveOperatorSymbol(position);
                 break;
             case Minus:
-                unaryOperator = new NegativeOperatorSymbol(currentToken.getPosition());
+                unaryOperator = new NegativeOperatorSymbol(position);
                 break;
             default:
-                unaryOperator = new NotOperatorSymbol(currentToken.getPosition());
+                unaryOperator = new NotOperatorSymbol(position);
         }
 
         next();
@@ -199,184 +378,83 @@ public class Parser {
     }
 
     private Symbol parseBinaryOperator() {
-        Token currentToken = current();
+        int position = cursor.getPosition();
         Symbol binaryOperator;
 
-        switch (currentToken.getType()) {
+        switch (cursor.getType()) {
             case Plus:
-                binaryOperator = new AdditionOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new AdditionOperatorSymbol(position);
                 break;
             case Minus:
-                binaryOperator = new SubtractionOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new SubtractionOperatorSymbol(position);
                 break;
             case Multiplication:
-                binaryOperator = new MultiplicationOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new MultiplicationOperatorSymbol(position);
                 break;
             case Division:
-                binaryOperator = new DivisionOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new DivisionOperatorSymbol(position);
                 break;
             case Modulo:
-                binaryOperator = new ModuloOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new ModuloOperatorSymbol(position);
                 break;
             case Exponentiation:
-                binaryOperator = new ExponentiationOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new ExponentiationOperatorSymbol(position);
                 break;
             case LessEqual:
-                binaryOperator = new LessEqualOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new LessEqualOperatorSymbol(position);
                 break;
             case Less:
-                binaryOperator = new LessOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new LessOperatorSymbol(position);
                 break;
             case GreaterEqual:
-                binaryOperator = new GreaterEqualOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new GreaterEqualOperatorSymbol(position);
                 break;
             case Greater:
-                binaryOperator = new GreaterOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new GreaterOperatorSymbol(position);
                 break;
             case Equal:
-                binaryOperator = new EqualOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new EqualOperatorSymbol(position);
                 break;
             case NotEqual:
-                binaryOperator = new NotEqualOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new NotEqualOperatorSymbol(position);
                 break;
             case And:
-                binaryOperator = new AndOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new AndOperatorSymbol(position);
                 break;
             case Or:
-                binaryOperator = new OrOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new OrOperatorSymbol(position);
                 break;
             default:
-                binaryOperator = new AssignmentOperatorSymbol(currentToken.getPosition());
+                binaryOperator = new AssignmentOperatorSymbol(position);
         }
 
         next();
         return binaryOperator;
     }
 
-    private Symbol parseLiteral() {
-        Token currentToken = current();
-        Symbol literalSymbol = parseNumber();
-
-        if (literalSymbol != null)
-            return literalSymbol;
-        else if ((literalSymbol = parseIdentifier()) != null)
-            return literalSymbol;
-        else if (currentToken.isUnaryOperator()) {
-            OperatorData unaryOperatorData = currentToken.getUnaryOperatorData();
-
-            Symbol unaryOperator = parseUnaryOperator();
-            literalSymbol = parseExpression(unaryOperatorData.getPrecedence());
-
-            if (literalSymbol != null) {
-                unaryOperator.setFirst(literalSymbol);
-                return unaryOperator;
-            } else
-                expectedElement("a literal or expression after unary operator");
-        } else if (expect(TokenType.LParenthesis)) {
-            next();
-            literalSymbol = parseExpression();
-
-            if (literalSymbol != null)
-                if (expect(TokenType.RParenthesis)) {
-                    next();
-                    return literalSymbol;
-                } else
-                    expectedElement("a right parenthesis \")\" after literal or expression");
-            else
-                expectedElement("a literal or expression after left parenthesis \"(\"");
-        }
-
-        return null;
-    }
-
-    private Symbol parseIdentifier() {
-        Symbol identifierSymbol = null;
-
-        if (expect(TokenType.Identifier)) {
-            Token identifierToken = current();
-            next();
-
-            if (expect(TokenType.LParenthesis)) {
-                next();
-
-                FunctionLiteralSymbol functionSymbol = new FunctionLiteralSymbol(
-                        identifierToken.getValue(), identifierToken.getPosition());
-                functionSymbol.setArguments(parseFunctionArguments());
-
-                if (expect(TokenType.RParenthesis)) {
-                    identifierSymbol = functionSymbol;
-                    next();
-                } else
-                    expectedElement("a right parenthesis \")\" after function arguments");
-            } else
-                identifierSymbol = new VariableLiteralSymbol(
-                        identifierToken.getValue(), identifierToken.getPosition());
-        }
-
-        return identifierSymbol;
-    }
-
-    private Symbol parseNumber() {
-        if (expect(TokenType.Number)) {
-            Token currentToken = current();
-
-            double numberValue = Double.valueOf(currentToken.getValue());
-            NumberLiteralSymbol numberSymbol = new NumberLiteralSymbol(
-                    numberValue, currentToken.getPosition());
-
-            next();
-            return numberSymbol;
-        }
-
-        return null;
-    }
-
-    private FunctionArgumentList parseFunctionArguments() {
-        FunctionArgumentList functionArgumentList = new FunctionArgumentList();
-        Symbol expressionSymbol = parseExpression();
-
-        while (expressionSymbol != null) {
-            FunctionArgument functionArgument = new FunctionArgument(expressionSymbol);
-            functionArgumentList.add(functionArgument);
-
-            if (expect(TokenType.Comma)) {
-                next();
-                expressionSymbol = parseExpression();
-
-                if (expressionSymbol == null)
-                    expectedElement("a literal or expression as function argument");
-            } else
-                break;
-        }
-
-        return functionArgumentList;
-    }
-
     private void expectedElement(String expectedElement) {
-        Token currentToken = current();
-
         throw new ExceptionContent(ExceptionMessage.expect(expectedElement),
-                currentToken.getPosition());
+                cursor.getPosition());
     }
 
     private void invalidExpression() {
-        Token currentToken = current();
-
         throw new ExceptionContent(ExceptionMessage.InvalidExpression,
-                currentToken.getPosition());
+                cursor.getPosition());
     }
 
-    private boolean expect(TokenType type) {
-        Token currentToken = current();
-        return currentToken.getType() == type;
+    private boolean isUnaryOperator() {
+        return OperatorTable.getUnaryOperatorData(cursor.getType()) != null;
     }
 
-    private Token next() {
-        currentTokenIterator.next();
-        return current();
+    private boolean isBinaryOperator() {
+        return OperatorTable.getBinaryOperatorData(cursor.getType()) != null;
+    }
+
+    private boolean expect(TokenType type) {
+        return cursor.expect(type);
     }
 
-    private Token current() {
-        return currentTokenIterator.get();
+    private void next() {
+        cursor.next();
     }
 }
\ No newline at end of file
@@ -35,6 +35,8 @@ package mes.lang;
  * @see UnaryOperatorSymbol
  */
 public class PositiveOperatorSymbol extends UnaryOperatorSymbol {
+    private static final long serialVersionUID = 8828177457700078427L;
+
     /**
      * Initializes the positive operator. By default the position index is zero.
      */
@@ -55,8 +57,7 @@ public class PositiveOperatorSymbol extends UnaryOperatorSymbol {
      * {@inheritDoc}
      */
     @Override
-    public LiteralSymbol evaluate(Symbol[] symbols) {
-        LiteralSymbol inputOperand = (LiteralSymbol)symbols[0];
-        return new NumberLiteralSymbol(inputOperand.getDoubleValue(), position);
+    public double evaluate(double inputOperand) {
+        return inputOperand;
     }
 }
\ No newline at end of file
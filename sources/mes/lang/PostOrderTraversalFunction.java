@@ -0,0 +1,175 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.util.Arrays;
+
+/**
+ * Function abstraction for post-order {@link AbstractSyntaxTree} traversal.
+ * The traversal keeps its own stack of pending nodes, so the depth of the tree
+ * does not consume call stack.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see TraversalFunction
+ * @see AbstractSyntaxTree#traverse(TraversalFunction)
+ */
+public abstract class PostOrderTraversalFunction extends TraversalFunction {
+    /**
+     * Initializes the traversal function with a primitive array of objects as
+     * arguments.
+     * @param arguments The function arguments
+     */
+    public PostOrderTraversalFunction(Object... arguments) {
+        super(arguments);
+    }
+
+    /**
+     * Traverses the nodes in post-order. Each node is visited after all of its
+     * operands, receiving the output nodes of these operands.
+     * @param node The root node of the traversal
+     * @return The output node.
+     * @see #visit(AbstractSyntaxNode, AbstractSyntaxNode[])
+     */
+    @Override
+    public AbstractSyntaxNode traverse(AbstractSyntaxNode node) {
+        if (node == null)
+            return null;
+
+        AbstractSyntaxNode[] nodes = new AbstractSyntaxNode[16];
+        int[] operandCounts = new int[16];
+        int[] operandIndices = new int[16];
+        int depth = 0;
+
+        AbstractSyntaxNode[] outputs = new AbstractSyntaxNode[16];
+        int outputCount = 0;
+
+        nodes[0] = node;
+        operandCounts[0] = enter(node) ? getOperandCount(node) : 0;
+        operandIndices[0] = 0;
+        depth++;
+
+        while (depth != 0) {
+            int top = depth - 1;
+            AbstractSyntaxNode current = nodes[top];
+
+            if (operandIndices[top] != operandCounts[top]) {
+                AbstractSyntaxNode operand = getOperand(current, operandIndices[top]++);
+
+                if (operand == null) {
+                    if (outputCount == outputs.length)
+                        outputs = Arrays.copyOf(outputs, outputCount << 1);
+
+                    outputs[outputCount++] = null;
+                    continue;
+                }
+
+                if (depth == nodes.length) {
+                    int capacity = depth << 1;
+
+                    nodes = Arrays.copyOf(nodes, capacity);
+                    operandCounts = Arrays.copyOf(operandCounts, capacity);
+                    operandIndices = Arrays.copyOf(operandIndices, capacity);
+                }
+
+                nodes[depth] = operand;
+                operandCounts[depth] = enter(operand) ? getOperandCount(operand) : 0;
+                operandIndices[depth] = 0;
+                depth++;
+            } else {
+                int operandCount = operandCounts[top];
+                AbstractSyntaxNode[] operands = createOperands(operandCount);
+
+                outputCount -= operandCount;
+                System.arraycopy(outputs, outputCount, operands, 0, operandCount);
+
+                nodes[top] = null;
+                depth--;
+
+                AbstractSyntaxNode output = visit(current, operands);
+
+                if (outputCount == outputs.length)
+                    outputs = Arrays.copyOf(outputs, outputCount << 1);
+
+                outputs[outputCount++] = output;
+            }
+        }
+
+        return outputs[0];
+    }
+
+    /**
+     * This method is called before the operands of a node are traversed.
+     * @param node The node being entered
+     * @return True if the operands of node must be traversed and false
+     * otherwise.
+     */
+    protected boolean enter(AbstractSyntaxNode node) {
+        return true;
+    }
+
+    /**
+     * Returns the number of operands traversed before visiting a node. By
+     * default the operands are the node children.
+     * @param node The node being entered
+     * @return The operand count.
+     */
+    protected int getOperandCount(AbstractSyntaxNode node) {
+        return node.getChildCount();
+    }
+
+    /**
+     * Returns the operand of a node by index. By default the operands are the
+     * node children.
+     * @param node The node being traversed
+     * @param index The operand index
+     * @return The operand node.
+     */
+    protected AbstractSyntaxNode getOperand(AbstractSyntaxNode node, int index) {
+        return node.getChild(index);
+    }
+
+    /**
+     * Creates the array that receives the output nodes of operands. Subclasses
+     * can return an array of a more specific node type.
+     * @param operandCount The operand count
+     * @return The operand array.
+     */
+    protected AbstractSyntaxNode[] createOperands(int operandCount) {
+        return new AbstractSyntaxNode[operandCount];
+    }
+
+    /**
+     * This method is called after all the operands of a node are traversed.
+     * @param node The node being visited
+     * @param operands The output nodes of operands
+     * @return The output node.
+     */
+    protected abstract AbstractSyntaxNode visit(AbstractSyntaxNode node,
+            AbstractSyntaxNode[] operands);
+}
@@ -0,0 +1,405 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.util.Arrays;
+import mes.lang.Closure.ClosureType;
+import mes.lang.ExceptionContent.ExceptionMessage;
+import mes.lang.Symbol.SymbolType;
+
+/**
+ * Evaluation of expressions to primitive values. Operands are kept on a
+ * <code>double</code> stack and operators are computed by their primitive
+ * methods, so evaluating numbers, variables and operators allocates no memory
+ * once the stacks have grown to the depth of the expression. Function calls
+ * allocate their argument values. The <i>and</i>, <i>or</i> and conditional
+ * operators only evaluate the operands that decide the result. The evaluation
+ * is reentrant: functions called by an expression evaluate their bodies on top
+ * of the same stacks, and the depth of nested user function calls of the
+ * thread is counted here for every execution tier. A function body that
+ * calls itself as its result, directly or from the taken branch of a
+ * conditional, is restarted with the new arguments instead of nesting a
+ * call.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see OperatorSymbol
+ * @see Interpreter#evaluate(String)
+ */
+public class PrimitiveEvaluation {
+    private static final ThreadLocal<PrimitiveEvaluation> Instances
+            = ThreadLocal.withInitial(PrimitiveEvaluation::new);
+
+    private static final int InitialCapacity = 16;
+
+    private Symbol[] nodes;
+    private int[] operandIndices;
+    private FunctionLiteralSymbol[] functionDefinitions;
+    private boolean[] tailPositions;
+    private int depth;
+
+    private double[] values;
+    private int valueCount;
+
+    private int callDepth;
+
+    /**
+     * Initializes an evaluation with empty stacks.
+     */
+    public PrimitiveEvaluation() {
+        nodes = new Symbol[InitialCapacity];
+        operandIndices = new int[InitialCapacity];
+        functionDefinitions = new FunctionLiteralSymbol[InitialCapacity];
+        tailPositions = new boolean[InitialCapacity];
+        depth = 0;
+
+        values = new double[InitialCapacity];
+        valueCount = 0;
+
+        callDepth = 0;
+    }
+
+    /**
+     * Returns the evaluation of the current thread.
+     * @return The evaluation instance.
+     */
+    public static PrimitiveEvaluation getInstance() {
+        return Instances.get();
+    }
+
+    /**
+     * Evaluates an expression.
+     * @param root The root node of the expression
+     * @param globalSymbolTable The symbol table used to resolve identifiers
+     * @return The output value.
+     * @throws ExceptionContent Undefined symbol, illegal assignment or
+     * evaluation failure
+     */
+    public double evaluate(AbstractSyntaxNode root, SymbolTable globalSymbolTable) {
+        return evaluate(root, null, null, globalSymbolTable);
+    }
+
+    /**
+     * Evaluates a function body. Variables named after function arguments are
+     * resolved to argument values and any other identifier is resolved in the
+     * symbol table. Tail calls of the function to itself reuse the evaluation
+     * of the body.
+     * @param root The root node of the function body
+     * @param arguments The function arguments
+     * @param argumentValues The values of function arguments in definition
+     * order
+     * @param globalSymbolTable The symbol table used to resolve identifiers
+     * @return The output value.
+     * @throws ExceptionContent Undefined symbol, illegal assignment or
+     * evaluation failure
+     */
+    public double evaluate(AbstractSyntaxNode root, FunctionArgumentList arguments,
+            double[] argumentValues, SymbolTable globalSymbolTable) {
+        if (root == null)
+            return 0;
+
+        int baseDepth = depth;
+        int baseValueCount = valueCount;
+        int tailCallCount = 0;
+
+        try {
+            enter((Symbol)root, globalSymbolTable, arguments != null);
+
+            while (depth != baseDepth) {
+                int top = depth - 1;
+                Symbol node = nodes[top];
+
+                boolean shortCircuit = isShortCircuit(node);
+
+                if (shortCircuit && operandIndices[top] != 0)
+                    operandIndices[top] = selectOperand(node, operandIndices[top]);
+
+                if (operandIndices[top] != getOperandCount(node)) {
+                    int operandIndex = operandIndices[top]++;
+
+                    enter(getOperand(node, operandIndex), globalSymbolTable,
+                            tailPositions[top] && isTailOperand(node, operandIndex));
+                    continue;
+                }
+
+                depth--;
+                nodes[top] = null;
+
+                if (shortCircuit)
+                    continue;
+
+                FunctionLiteralSymbol functionDefinition = functionDefinitions[top];
+                functionDefinitions[top] = null;
+
+                if (tailPositions[top] && isBody(functionDefinition, root)) {
+                    if (++tailCallCount > functionDefinition.getTieredExecution()
+                            .getTailCallLimit())
+                        throw new ExceptionContent(ExceptionMessage.TailCallLimitExceeded,
+                                node.getPosition());
+
+                    argumentValues = popArguments(argumentValues.length);
+
+                    while (depth != baseDepth) {
+                        depth--;
+                        nodes[depth] = null;
+                    }
+
+                    valueCount = baseValueCount;
+                    enter((Symbol)root, globalSymbolTable, true);
+
+                    continue;
+                }
+
+                push(visit(node, functionDefinition, arguments, argumentValues,
+                        globalSymbolTable));
+            }
+
+            return values[--valueCount];
+        } finally {
+            while (depth != baseDepth) {
+                depth--;
+                nodes[depth] = null;
+                functionDefinitions[depth] = null;
+            }
+
+            valueCount = baseValueCount;
+        }
+    }
+
+    /**
+     * Enters a user function call of the current thread.
+     * @param callDepthLimit The maximum depth of nested calls
+     * @param position The position of the function call at the source code
+     * @return The call depth including the entered call.
+     * @throws ExceptionContent Maximum call depth exceeded
+     * @see TieredExecution#getCallDepthLimit()
+     */
+    public int enterCall(int callDepthLimit, int position) {
+        if (callDepth >= callDepthLimit)
+            throw new ExceptionContent(ExceptionMessage.CallDepthExceeded, position);
+
+        return ++callDepth;
+    }
+
+    /**
+     * Exits the innermost user function call of the current thread.
+     * @see #enterCall(int, int)
+     */
+    public void exitCall() {
+        callDepth--;
+    }
+
+    /**
+     * Returns the depth of nested user function calls of the current thread.
+     * @return The call depth.
+     */
+    public int getCallDepth() {
+        return callDepth;
+    }
+
+    private void enter(Symbol node, SymbolTable globalSymbolTable, boolean tailPosition) {
+        FunctionLiteralSymbol functionDefinition = null;
+
+        if (node.getType() == SymbolType.Function) {
+            IdentifierLiteralSymbol identifierSymbol
+                    = ((IdentifierLiteralSymbol)node).resolve(globalSymbolTable);
+
+            if (identifierSymbol == null)
+                throw new ExceptionContent(ExceptionMessage.UndefinedSymbol,
+                        node.getPosition());
+
+            functionDefinition = (FunctionLiteralSymbol)identifierSymbol;
+        }
+
+        if (depth == nodes.length) {
+            int capacity = depth << 1;
+
+            nodes = Arrays.copyOf(nodes, capacity);
+            operandIndices = Arrays.copyOf(operandIndices, capacity);
+            functionDefinitions = Arrays.copyOf(functionDefinitions, capacity);
+            tailPositions = Arrays.copyOf(tailPositions, capacity);
+        }
+
+        nodes[depth] = node;
+        operandIndices[depth] = 0;
+        functionDefinitions[depth] = functionDefinition;
+        tailPositions[depth] = tailPosition;
+        depth++;
+    }
+
+    private double visit(Symbol node, FunctionLiteralSymbol functionDefinition,
+            FunctionArgumentList arguments, double[] argumentValues,
+            SymbolTable globalSymbolTable) {
+        switch (node.getType()) {
+            case Number: {
+                LiteralSymbol literalSymbol = (LiteralSymbol)node;
+                return literalSymbol.getDoubleValue();
+            }
+            case Variable:
+                return getVariableValue((VariableLiteralSymbol)node, arguments,
+                        argumentValues, globalSymbolTable);
+            case Function:
+                return functionDefinition.invoke(globalSymbolTable,
+                        popArguments(functionDefinition.getArguments().size()),
+                        node.getPosition());
+            default:
+                break;
+        }
+
+        if (node.isUnaryOperator()) {
+            UnaryOperatorSymbol operatorSymbol = (UnaryOperatorSymbol)node;
+            return operatorSymbol.evaluate(values[--valueCount]);
+        } else if (node.isBinaryOperator()) {
+            BinaryOperatorSymbol operatorSymbol = (BinaryOperatorSymbol)node;
+            valueCount -= 2;
+
+            return operatorSymbol.evaluate(values[valueCount], values[valueCount + 1]);
+        }
+
+        TernaryOperatorSymbol operatorSymbol = (TernaryOperatorSymbol)node;
+        valueCount -= 3;
+
+        return operatorSymbol.evaluate(values[valueCount], values[valueCount + 1],
+                values[valueCount + 2]);
+    }
+
+    private int selectOperand(Symbol node, int operandIndex) {
+        if (node.getType() == SymbolType.Conditional) {
+            if (operandIndex != 1)
+                return 3;
+
+            return MathUtils.bool(values[--valueCount]) ? 1 : 2;
+        }
+
+        boolean value = MathUtils.bool(values[valueCount - 1]);
+
+        if (operandIndex == 1 && value != (node.getType() == SymbolType.Or)) {
+            valueCount--;
+            return 1;
+        }
+
+        values[valueCount - 1] = MathUtils.number(value);
+        return 2;
+    }
+
+    private double getVariableValue(VariableLiteralSymbol variableSymbol,
+            FunctionArgumentList arguments, double[] argumentValues,
+            SymbolTable globalSymbolTable) {
+        if (arguments != null)
+            for (int i = 0; i < argumentValues.length; i++) {
+                IdentifierLiteralSymbol argumentSymbol
+                        = (IdentifierLiteralSymbol)arguments.get(i).getRoot();
+
+                if (argumentSymbol.getName().equals(variableSymbol.getName()))
+                    return argumentValues[i];
+            }
+
+        IdentifierLiteralSymbol identifierSymbol = variableSymbol.resolve(globalSymbolTable);
+
+        if (identifierSymbol == null)
+            throw new ExceptionContent(ExceptionMessage.UndefinedSymbol,
+                    variableSymbol.getPosition());
+
+        return identifierSymbol.getDoubleValue();
+    }
+
+    private double[] popArguments(int argumentCount) {
+        double[] argumentValues = new double[argumentCount];
+
+        valueCount -= argumentCount;
+        System.arraycopy(values, valueCount, argumentValues, 0, argumentCount);
+
+        return argumentValues;
+    }
+
+    private void push(double value) {
+        if (valueCount == values.length)
+            values = Arrays.copyOf(values, valueCount << 1);
+
+        values[valueCount++] = value;
+    }
+
+    private static boolean isShortCircuit(Symbol node) {
+        switch (node.getType()) {
+            case And:
+            case Or:
+            case Conditional:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isTailOperand(Symbol node, int operandIndex) {
+        switch (node.getType()) {
+            case Positive:
+                return true;
+            case Conditional:
+                return operandIndex != 0;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isBody(FunctionLiteralSymbol functionDefinition,
+            AbstractSyntaxNode root) {
+        if (functionDefinition == null)
+            return false;
+
+        Closure closure = functionDefinition.getClosure();
+
+        return closure.getType() == ClosureType.AbstractSyntaxTree
+                && closure.getAbstractSyntaxTree().getRoot() == root;
+    }
+
+    private static int getOperandCount(Symbol node) {
+        switch (node.getType()) {
+            case Number:
+            case Variable:
+                return 0;
+            case Function: {
+                FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)node;
+                return functionSymbol.getArguments().size();
+            }
+            default:
+                if (node.isUnaryOperator())
+                    return 1;
+
+                return node.isBinaryOperator() ? 2 : 3;
+        }
+    }
+
+    private static Symbol getOperand(Symbol node, int index) {
+        if (node.getType() == SymbolType.Function) {
+            FunctionLiteralSymbol functionSymbol = (FunctionLiteralSymbol)node;
+            return (Symbol)functionSymbol.getArguments().get(index).getRoot();
+        }
+
+        return (Symbol)node.getChild(index);
+    }
+}
@@ -35,6 +35,8 @@ package mes.lang;
  * @see BinaryOperatorSymbol
  */
 public class SubtractionOperatorSymbol extends BinaryOperatorSymbol {
+    private static final long serialVersionUID = -3385096839760155694L;
+
     /**
      * Initializes the subtraction operator.
      */
@@ -46,7 +48,7 @@ public class SubtractionOperatorSymbol extends BinaryOperatorSymbol {
      * Initializes the subtraction operator. By default the subtraction operator
      * is left associative with precedence 6.
      * @param position The symbol position at the source code
-     * @see Lexer#Lexer(String)
+     * @see Lexer#Lexer(CharSequence)
      * @see OperatorData
      */
     public SubtractionOperatorSymbol(int position) {
@@ -57,11 +59,7 @@ public class SubtractionOperatorSymbol extends BinaryOperatorSymbol {
      * {@inheritDoc}
      */
     @Override
-    public LiteralSymbol evaluate(Symbol[] symbols) {
-        LiteralSymbol leftOperand = (LiteralSymbol)symbols[0];
-        LiteralSymbol rightOperand = (LiteralSymbol)symbols[1];
-
-        return new NumberLiteralSymbol(leftOperand.getDoubleValue()
-                - rightOperand.getDoubleValue(), position);
+    public double evaluate(double leftOperand, double rightOperand) {
+        return leftOperand - rightOperand;
     }
 }
\ No newline at end of file
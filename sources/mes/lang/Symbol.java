@@ -122,7 +122,11 @@ public abstract class Symbol extends AbstractSyntaxNode {
         /**
          * Assignment operator symbol.
          */
-        Assignment
+        Assignment,
+        /**
+         * Binding of a temporary value created by the closure optimizer.
+         */
+        Binding
     }
 
     protected SymbolType type;
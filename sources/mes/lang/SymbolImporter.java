@@ -34,7 +34,11 @@ import java.lang.reflect.Parameter;
 
 /**
  * Class to import symbols from the native language into the MES language
- * specification.
+ * specification. Symbols are read from the {@link SymbolRegistry} generated
+ * for the native class at compile time. Classes compiled without the
+ * {@link ExportSymbolProcessor} are scanned by reflection instead, and their
+ * argument names are only kept when compiled with the <code>-parameters</code>
+ * flag.
  * @author Danilo Ferreira
  * @version 1.0.0
  * @see Interpreter
@@ -60,7 +64,12 @@ public class SymbolImporter {
     public static SymbolImporter importFrom(Class container) {
         try {
             SymbolImporter instance = new SymbolImporter();
-            instance.importSymbols(container);
+            SymbolRegistry registry = SymbolRegistry.find(container);
+
+            if (registry != null)
+                instance.importSymbols(registry);
+            else
+                instance.importSymbols(container);
 
             return instance;
         } catch (Exception exception) {
@@ -68,6 +77,53 @@ public class SymbolImporter {
         }
     }
 
+    private void importSymbols(SymbolRegistry registry) {
+        for (int i = 0; i < registry.getConstantCount(); i++) {
+            VariableLiteralSymbol constant = new VariableLiteralSymbol();
+
+            constant.setName(registry.getConstantName(i));
+            constant.setDoubleValue(registry.getConstantValue(i));
+            constant.setDocumentation(registry.getConstantDocumentation(i));
+            constant.setConstant(true);
+
+            constants.add(constant);
+        }
+
+        for (int i = 0; i < registry.getFunctionCount(); i++) {
+            FunctionArgumentList arguments = new FunctionArgumentList();
+
+            for (String parameterName : registry.getParameterNames(i)) {
+                VariableLiteralSymbol variableSymbol = new VariableLiteralSymbol();
+                variableSymbol.setName(parameterName);
+
+                arguments.add(new FunctionArgument(variableSymbol));
+            }
+
+            Closure closure = new Closure(bind(registry, i));
+            FunctionLiteralSymbol function = new FunctionLiteralSymbol();
+
+            function.setName(registry.getFunctionName(i));
+            function.setArguments(arguments);
+            function.setClosure(closure);
+            function.setDocumentation(registry.getFunctionDocumentation(i));
+
+            functions.add(function);
+        }
+    }
+
+    private static NativeFunction bind(SymbolRegistry registry, int function) {
+        Method method = !registry.isDirect(function) ? registry.getMethod(function) : null;
+
+        if (method != null)
+            try {
+                return NativeFunction.bind(method);
+            } catch (IllegalAccessException | IllegalArgumentException exception) {
+                // Calls fail when the function is evaluated.
+            }
+
+        return NativeFunction.bind(registry, function);
+    }
+
     private void importSymbols(Class container) throws Exception {
         Field[] fields = container.getDeclaredFields();
         Method[] methods = container.getDeclaredMethods();
@@ -90,6 +146,7 @@ public class SymbolImporter {
 
                     constant.setName(field.getName());
                     constant.setDocumentation(annotation.value());
+                    constant.setConstant(true);
 
                     constants.add(constant);
                 }
@@ -118,6 +175,12 @@ public class SymbolImporter {
                     function.setClosure(closure);
                     function.setDocumentation(annotation.value());
 
+                    try {
+                        function.setNativeFunction(NativeFunction.bind(method));
+                    } catch (IllegalArgumentException exception) {
+                        // Calls fail when the function is evaluated.
+                    }
+
                     functions.add(function);
                 }
     }
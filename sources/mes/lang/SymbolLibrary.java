@@ -0,0 +1,347 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import mes.lang.Symbol.SymbolType;
+
+/**
+ * External library of native symbols. A library is a jar file or a class
+ * path entry with classes exporting symbols through {@link ExportSymbol}. The
+ * {@link ExportSymbolProcessor} lists the exported symbols of a library in
+ * its symbol index, the {@link #IndexName} resource, so a library is indexed
+ * without loading its classes. A class is only loaded when one of its
+ * symbols is first referenced. The processor is built into its own jar,
+ * <code>mes-processor.jar</code> next to <code>mes.jar</code>, which library
+ * builds put on the annotation processor path of javac.
+ * <p>
+ * A library opened from a path without a symbol index, like one compiled
+ * without the processor, is indexed by scanning its classes for exported
+ * symbols instead. The scan loads every class of the library without
+ * initializing it, so {@link #isIndexed()} tells callers to report it.
+ * <p>
+ * A library is loaded into an interpreter session through
+ * {@link Interpreter#loadLibrary(SymbolLibrary)}, and may be loaded into
+ * many sessions at once. Its classes are loaded once, by the class loader of
+ * the library.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see LibrarySymbolTable
+ * @see SymbolRegistry
+ */
+public class SymbolLibrary implements Closeable {
+    /**
+     * The name of the symbol index resource.
+     */
+    public static final String IndexName = "META-INF/mes/symbols";
+    /**
+     * The extension of library files.
+     */
+    public static final String LibraryExtension = ".jar";
+
+    /**
+     * Entry of the symbol index: an exported symbol and its native class.
+     */
+    static final class IndexEntry {
+        private final String containerName;
+        private final SymbolType type;
+        private final String name;
+        private final int argumentCount;
+
+        public IndexEntry(String containerName, SymbolType type, String name,
+                int argumentCount) {
+            this.containerName = containerName;
+            this.type = type;
+            this.name = name;
+            this.argumentCount = argumentCount;
+        }
+
+        public String getContainerName() {
+            return containerName;
+        }
+
+        public SymbolType getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getArgumentCount() {
+            return argumentCount;
+        }
+    }
+
+    private final String name;
+    private final ClassLoader classLoader;
+    private final URLClassLoader libraryClassLoader;
+    private final List<IndexEntry> indexEntries;
+    private final boolean indexed;
+
+    private SymbolLibrary(String name, ClassLoader classLoader,
+            URLClassLoader libraryClassLoader, Enumeration<URL> indexes)
+            throws IOException {
+        this.name = name;
+        this.classLoader = classLoader;
+        this.libraryClassLoader = libraryClassLoader;
+
+        indexEntries = new List<>();
+        indexed = indexes.hasMoreElements();
+
+        for (URL index : Collections.list(indexes))
+            readIndex(index);
+    }
+
+    /**
+     * Opens a library from a jar file or a class directory. The library
+     * classes are loaded by a new class loader whose parent is the class
+     * loader of the interpreter. A library without a symbol index is
+     * indexed by scanning its classes.
+     * @param path The library path
+     * @return The library.
+     * @throws IOException The symbol index or the library classes can not be
+     * read
+     */
+    public static SymbolLibrary open(Path path) throws IOException {
+        URLClassLoader libraryClassLoader = new URLClassLoader(
+                new URL[] {path.toUri().toURL()}, SymbolLibrary.class.getClassLoader());
+
+        try {
+            SymbolLibrary library = new SymbolLibrary(path.getFileName().toString(),
+                    libraryClassLoader, libraryClassLoader,
+                    libraryClassLoader.findResources(IndexName));
+
+            if (!library.indexed)
+                library.scanClasses(path);
+
+            return library;
+        } catch (IOException exception) {
+            libraryClassLoader.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Opens every library file of a directory, sorted by file name.
+     * @param directory The library directory
+     * @return The libraries.
+     * @throws IOException The directory or a symbol index can not be read
+     * @see #LibraryExtension
+     */
+    public static List<SymbolLibrary> openDirectory(Path directory) throws IOException {
+        List<Path> paths = new List<>();
+
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory,
+                '*' + LibraryExtension)) {
+            for (Path path : directoryStream)
+                if (Files.isRegularFile(path))
+                    paths.add(path);
+        }
+
+        Collections.sort(paths);
+
+        List<SymbolLibrary> libraries = new List<>();
+
+        try {
+            for (Path path : paths)
+                libraries.add(open(path));
+        } catch (IOException exception) {
+            for (SymbolLibrary library : libraries)
+                library.close();
+
+            throw exception;
+        }
+
+        return libraries;
+    }
+
+    /**
+     * Returns the library of every symbol index visible to a class loader,
+     * like the providers found by {@link java.util.ServiceLoader}. The
+     * classes of the interpreter itself are indexed too, but their symbols
+     * are already defined and are skipped when the library is loaded.
+     * @param classLoader The class loader
+     * @return The library.
+     * @throws IOException A symbol index can not be read
+     */
+    public static SymbolLibrary find(ClassLoader classLoader) throws IOException {
+        return new SymbolLibrary(classLoader.toString(), classLoader, null,
+                classLoader.getResources(IndexName));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of symbols listed in the symbol index or found by
+     * scanning the library classes.
+     * @return The symbol count.
+     */
+    public int getSymbolCount() {
+        return indexEntries.size();
+    }
+
+    /**
+     * Returns whether the library has a symbol index. A library opened from
+     * a path without one was indexed by scanning its classes.
+     * @return True if a symbol index was read.
+     * @see ExportSymbolProcessor
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    List<IndexEntry> getIndexEntries() {
+        return indexEntries;
+    }
+
+    /**
+     * Loads a native class of this library and imports its symbols.
+     * @param containerName The binary name of the native class
+     * @return The imported symbols or null if the class can not be loaded.
+     */
+    SymbolImporter importSymbols(String containerName) {
+        try {
+            return SymbolImporter.importFrom(Class.forName(containerName, true,
+                    classLoader));
+        } catch (ClassNotFoundException | LinkageError exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Closes the class loader of a library opened from a path. Must only be
+     * called after the library is unloaded from every session.
+     * @throws IOException The library file can not be closed
+     * @see Interpreter#unloadLibrary(SymbolLibrary)
+     */
+    @Override
+    public void close() throws IOException {
+        if (libraryClassLoader != null)
+            libraryClassLoader.close();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private void readIndex(URL index) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                index.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+
+                indexEntries.add(parseIndexEntry(index, line));
+            }
+        }
+    }
+
+    private void scanClasses(Path path) throws IOException {
+        List<String> classNames = new List<>();
+
+        if (Files.isDirectory(path))
+            try (Stream<Path> files = Files.walk(path)) {
+                files.forEach(file -> {
+                    if (file.toString().endsWith(".class"))
+                        classNames.add(path.relativize(file).toString()
+                                .replace(file.getFileSystem().getSeparator(), "/"));
+                });
+            }
+        else
+            try (JarFile jarFile = new JarFile(path.toFile())) {
+                for (JarEntry entry : Collections.list(jarFile.entries()))
+                    if (entry.getName().endsWith(".class"))
+                        classNames.add(entry.getName());
+            }
+
+        Collections.sort(classNames);
+
+        for (String className : classNames) {
+            className = className.substring(0, className.length() - 6).replace('/', '.');
+
+            if (className.endsWith("module-info") || className.endsWith("package-info"))
+                continue;
+
+            try {
+                addIndexEntries(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException | LinkageError exception) {
+                // Classes that can not be loaded can not export symbols either.
+            }
+        }
+    }
+
+    private void addIndexEntries(Class<?> container) {
+        for (Field field : container.getDeclaredFields())
+            if (field.isAnnotationPresent(ExportSymbol.class))
+                indexEntries.add(new IndexEntry(container.getName(), SymbolType.Variable,
+                        field.getName(), 0));
+
+        for (Method method : container.getDeclaredMethods())
+            if (method.isAnnotationPresent(ExportSymbol.class))
+                indexEntries.add(new IndexEntry(container.getName(), SymbolType.Function,
+                        method.getName(), method.getParameterCount()));
+    }
+
+    private static IndexEntry parseIndexEntry(URL index, String line) throws IOException {
+        String[] fields = line.split("\\s+");
+
+        if (fields.length == 3 && fields[1].equals(SymbolType.Variable.name()))
+            return new IndexEntry(fields[0], SymbolType.Variable, fields[2], 0);
+        else if (fields.length == 4 && fields[1].equals(SymbolType.Function.name())
+                && fields[3].matches("\\d{1,9}"))
+            return new IndexEntry(fields[0], SymbolType.Function, fields[2],
+                    Integer.parseInt(fields[3]));
+
+        throw new IOException("Invalid symbol index entry in " + index + ": " + line);
+    }
+}
@@ -0,0 +1,217 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.lang.reflect.Method;
+
+/**
+ * Table of the symbols exported by a native class, generated at compile time
+ * by {@link ExportSymbolProcessor}. The registry holds the names, values,
+ * argument names and documentation of the exported symbols and invokes the
+ * exported methods directly, so importing them needs no reflection.
+ * Constants and functions are indexed in declaration order.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see ExportSymbol
+ * @see SymbolImporter
+ */
+public abstract class SymbolRegistry {
+    /**
+     * Suffix appended to the binary name of a native class to name its
+     * registry class.
+     */
+    public static final String RegistrySuffix = "Symbols";
+
+    private final Class<?> container;
+
+    private final String[] constantNames;
+    private final double[] constantValues;
+    private final String[] constantDocumentations;
+
+    private final String[] functionNames;
+    private final String[][] parameterNames;
+    private final Class<?>[][] parameterTypes;
+    private final String[] functionDocumentations;
+    private final boolean[] pureFunctions;
+    private final boolean[] directFunctions;
+
+    /**
+     * Initializes the registry of a native class.
+     * @param container The native class
+     * @param constantNames The names of the exported fields
+     * @param constantValues The values of the exported fields
+     * @param constantDocumentations The documentation of the exported fields
+     * @param functionNames The names of the exported methods
+     * @param parameterNames The parameter names of the exported methods
+     * @param parameterTypes The parameter types of the exported methods
+     * @param functionDocumentations The documentation of the exported methods
+     * @param pureFunctions The purity of the exported methods
+     * @param directFunctions Whether the exported methods are invoked by the
+     * registry
+     * @see ExportSymbol#pure()
+     */
+    protected SymbolRegistry(Class<?> container, String[] constantNames,
+            double[] constantValues, String[] constantDocumentations,
+            String[] functionNames, String[][] parameterNames,
+            Class<?>[][] parameterTypes, String[] functionDocumentations,
+            boolean[] pureFunctions, boolean[] directFunctions) {
+        this.container = container;
+
+        this.constantNames = constantNames;
+        this.constantValues = constantValues;
+        this.constantDocumentations = constantDocumentations;
+
+        this.functionNames = functionNames;
+        this.parameterNames = parameterNames;
+        this.parameterTypes = parameterTypes;
+        this.functionDocumentations = functionDocumentations;
+        this.pureFunctions = pureFunctions;
+        this.directFunctions = directFunctions;
+    }
+
+    /**
+     * Returns the native class of the registry.
+     * @return The native class.
+     */
+    public Class<?> getContainer() {
+        return container;
+    }
+
+    public int getConstantCount() {
+        return constantNames.length;
+    }
+
+    public String getConstantName(int constant) {
+        return constantNames[constant];
+    }
+
+    public double getConstantValue(int constant) {
+        return constantValues[constant];
+    }
+
+    public String getConstantDocumentation(int constant) {
+        return constantDocumentations[constant];
+    }
+
+    public int getFunctionCount() {
+        return functionNames.length;
+    }
+
+    public String getFunctionName(int function) {
+        return functionNames[function];
+    }
+
+    /**
+     * Returns the parameter names of an exported method, as declared in its
+     * source code.
+     * @param function The function index
+     * @return The parameter names.
+     */
+    public String[] getParameterNames(int function) {
+        return parameterNames[function].clone();
+    }
+
+    public String getFunctionDocumentation(int function) {
+        return functionDocumentations[function];
+    }
+
+    /**
+     * Returns whether an exported method always gives the same result for the
+     * same arguments and has no side effect.
+     * @param function The function index
+     * @return True if the method is pure.
+     * @see ExportSymbol#pure()
+     */
+    public boolean isPure(int function) {
+        return pureFunctions[function];
+    }
+
+    /**
+     * Returns whether an exported method is invoked by the registry. Methods
+     * that can not be called directly are imported by reflection instead.
+     * @param function The function index
+     * @return True if the registry invokes the method.
+     * @see #invoke(int, double[])
+     */
+    public boolean isDirect(int function) {
+        return directFunctions[function];
+    }
+
+    /**
+     * Looks up an exported method by reflection. Only needed to compile calls
+     * of the method to JVM bytecode and to import methods the registry does
+     * not invoke.
+     * @param function The function index
+     * @return The method or null if the native class no longer declares it.
+     * @see JustInTimeCompiler
+     */
+    public Method getMethod(int function) {
+        try {
+            return container.getDeclaredMethod(functionNames[function],
+                    parameterTypes[function]);
+        } catch (NoSuchMethodException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Invokes an exported method. Argument values are converted to the
+     * parameter types and boolean results become numbers.
+     * @param function The function index
+     * @param argumentValues The values of function arguments
+     * @return The output value.
+     * @throws UnsupportedOperationException The method can not be called
+     * directly, like a private method
+     * @see #isDirect(int)
+     */
+    public abstract double invoke(int function, double[] argumentValues);
+
+    /**
+     * Loads the registry generated for a native class.
+     * @param container The native class
+     * @return The registry or null if none was generated for the class.
+     * @see #RegistrySuffix
+     */
+    public static SymbolRegistry find(Class<?> container) {
+        try {
+            Class<?> registryClass = Class.forName(container.getName() + RegistrySuffix,
+                    true, container.getClassLoader());
+
+            if (!SymbolRegistry.class.isAssignableFrom(registryClass))
+                return null;
+
+            SymbolRegistry registry = (SymbolRegistry)registryClass
+                    .getDeclaredConstructor().newInstance();
+
+            return registry.container == container ? registry : null;
+        } catch (ReflectiveOperationException | LinkageError exception) {
+            return null;
+        }
+    }
+}
@@ -28,19 +28,423 @@
 
 package mes.lang;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import mes.lang.Symbol.SymbolType;
 
 /**
- * Set implementation for {@link IdentifierLiteralSymbol}.
+ * Set implementation for {@link IdentifierLiteralSymbol}. A symbol table can
+ * be a layer of a scope chain: lookups that miss this layer continue on its
+ * parent layer, so a function frame or a user session is stacked over the
+ * default symbols without copying them. Symbols of a layer hide the symbols
+ * of its parent layers with the same name, type and argument count. The set
+ * operations only see the symbols of this layer.
+ * <p>
+ * Iteration follows the sorted order of the set, while lookups go through a
+ * hash index keyed by name atom, type and argument count. The index is built on
+ * the first lookup and kept up to date by the set operations. Changing the
+ * table through a subset view is not supported.
+ * <p>
+ * Lookups are thread safe and may run while another thread changes the
+ * table, so many threads can evaluate over the same scope chain. Changes must
+ * not run concurrently with each other nor with an iteration of the table. A
+ * read-only table rejects every change, so it can be shared as the parent
+ * layer of many scope chains.
+ * <p>
+ * A layer may define symbols on demand, when a lookup misses it, like the
+ * {@link LibrarySymbolTable} layer does for symbols of external libraries.
+ * Such symbols are kept out of the set, so lookups never change it.
  * @author Danilo Ferreira
  * @version 1.0.0
  * @see TreeSet
  */
 public class SymbolTable extends TreeSet<IdentifierLiteralSymbol> {
+    private static final long serialVersionUID = -3644720603751952006L;
+
+    private static final int VersionStripeCount = 64;
+
+    static final class SymbolKey {
+        private final int atom;
+        private final SymbolType type;
+        private final int argumentCount;
+
+        public SymbolKey(int atom, SymbolType type, int argumentCount) {
+            this.atom = atom;
+            this.type = type;
+            this.argumentCount = type == SymbolType.Function ? argumentCount : 0;
+        }
+
+        public SymbolKey(IdentifierLiteralSymbol identifierSymbol) {
+            this(identifierSymbol.getAtom(), identifierSymbol.getType(),
+                    getArgumentCount(identifierSymbol));
+        }
+
+        public boolean hasAtom() {
+            return atom != AtomTable.NoAtom;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof SymbolKey))
+                return false;
+
+            SymbolKey key = (SymbolKey)other;
+
+            return atom == key.atom && type == key.type
+                    && argumentCount == key.argumentCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return (atom * 31 + type.ordinal()) * 31 + argumentCount;
+        }
+    }
+
+    private transient SymbolTable parent;
+    private transient volatile ConcurrentHashMap<SymbolKey,
+            IdentifierLiteralSymbol> index;
+    private transient volatile AtomicLongArray versions;
+    private transient volatile boolean readOnly;
+
     /**
      * Initializes an empty symbol table.
      */
     public SymbolTable() {
         super();
     }
+
+    /**
+     * Initializes an empty layer over another symbol table.
+     * @param parent The parent layer
+     */
+    public SymbolTable(SymbolTable parent) {
+        super();
+        this.parent = parent;
+    }
+
+    /**
+     * Sets the layer where lookups continue when they miss this layer.
+     * @param parent The parent layer or null to end the scope chain
+     */
+    public synchronized void setParent(SymbolTable parent) {
+        checkWritable();
+
+        AtomicLongArray layerVersions = getVersions();
+
+        for (int stripe = 0; stripe < VersionStripeCount; stripe++)
+            layerVersions.addAndGet(stripe, getVersion(stripe) + 1);
+
+        this.parent = parent;
+    }
+
+    public SymbolTable getParent() {
+        return parent;
+    }
+
+    /**
+     * Makes this layer read-only. The lookup index is built before the
+     * method returns, so lookups never change the table afterwards.
+     * @see #isReadOnly()
+     */
+    public synchronized void makeReadOnly() {
+        getIndex();
+        readOnly = true;
+    }
+
+    /**
+     * Returns whether this layer rejects changes.
+     * @return True if the layer is read-only.
+     * @see #makeReadOnly()
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Returns the definition of a symbol, looking up this layer first and
+     * then its parent layers.
+     * @param identifierSymbol The symbol to look up
+     * @return The definition with the same name, type and argument count as
+     * the symbol or null if it is not defined.
+     */
+    public IdentifierLiteralSymbol find(IdentifierLiteralSymbol identifierSymbol) {
+        return find(new SymbolKey(identifierSymbol));
+    }
+
+    /**
+     * Returns the definition of a symbol in the scope chain.
+     * @param name The symbol name
+     * @param type The symbol type, variable or function
+     * @param argumentCount The function argument count, ignored for variables
+     * @return The definition or null if it is not defined.
+     * @see #find(IdentifierLiteralSymbol)
+     */
+    public IdentifierLiteralSymbol find(String name, SymbolType type, int argumentCount) {
+        int atom = AtomTable.lookup(name);
+
+        if (atom == AtomTable.NoAtom)
+            return null;
+
+        return find(new SymbolKey(atom, type, argumentCount));
+    }
+
+    /**
+     * Returns whether a symbol is defined in the scope chain.
+     * @param identifierSymbol The symbol to look up
+     * @return True if the symbol is defined.
+     * @see #find(IdentifierLiteralSymbol)
+     */
+    public boolean defines(IdentifierLiteralSymbol identifierSymbol) {
+        return find(identifierSymbol) != null;
+    }
+
+    /**
+     * Returns the symbols visible from this layer, sorted. Symbols hidden by
+     * a layer closer to this one are skipped.
+     * @return A new symbol table with the visible symbols.
+     */
+    public SymbolTable getVisibleSymbols() {
+        SymbolTable visibleSymbols = new SymbolTable();
+
+        for (SymbolTable layer = this; layer != null; layer = layer.parent)
+            visibleSymbols.addAll(layer);
+
+        return visibleSymbols;
+    }
+
+    @Override
+    public synchronized boolean add(IdentifierLiteralSymbol identifierSymbol) {
+        checkWritable();
+        identifierSymbol.internAtom();
+
+        if (!super.add(identifierSymbol))
+            return false;
+
+        SymbolKey key = new SymbolKey(identifierSymbol);
+        updateVersion(key);
+
+        if (index != null)
+            index.put(key, identifierSymbol);
+
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends IdentifierLiteralSymbol> symbols) {
+        boolean modified = false;
+
+        for (IdentifierLiteralSymbol identifierSymbol : symbols)
+            modified |= add(identifierSymbol);
+
+        return modified;
+    }
+
+    @Override
+    public synchronized boolean remove(Object object) {
+        checkWritable();
+
+        if (!super.remove(object))
+            return false;
+
+        removeIndex((IdentifierLiteralSymbol)object);
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        checkWritable();
+        super.clear();
+
+        if (index != null)
+            index.clear();
+
+        updateVersion();
+    }
+
+    @Override
+    public synchronized IdentifierLiteralSymbol pollFirst() {
+        checkWritable();
+
+        IdentifierLiteralSymbol identifierSymbol = super.pollFirst();
+
+        if (identifierSymbol != null)
+            removeIndex(identifierSymbol);
+
+        return identifierSymbol;
+    }
+
+    @Override
+    public synchronized IdentifierLiteralSymbol pollLast() {
+        checkWritable();
+
+        IdentifierLiteralSymbol identifierSymbol = super.pollLast();
+
+        if (identifierSymbol != null)
+            removeIndex(identifierSymbol);
+
+        return identifierSymbol;
+    }
+
+    @Override
+    public Iterator<IdentifierLiteralSymbol> iterator() {
+        Iterator<IdentifierLiteralSymbol> iterator = super.iterator();
+
+        return new Iterator<IdentifierLiteralSymbol>() {
+            private IdentifierLiteralSymbol current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public IdentifierLiteralSymbol next() {
+                current = iterator.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                synchronized (SymbolTable.this) {
+                    checkWritable();
+                    iterator.remove();
+                    removeIndex(current);
+                }
+            }
+        };
+    }
+
+    IdentifierLiteralSymbol find(SymbolKey key) {
+        for (SymbolTable layer = this; layer != null; layer = layer.parent) {
+            IdentifierLiteralSymbol definition = layer.getIndex().get(key);
+
+            if (definition == null)
+                definition = layer.defineSymbol(key);
+
+            if (definition != null)
+                return definition;
+        }
+
+        return null;
+    }
+
+    /**
+     * Called when a lookup misses this layer, before it continues on the
+     * parent layer. Layers that define symbols on demand return the symbol
+     * here. The set of this layer must not be changed, since the lookup may
+     * run during an iteration of the table.
+     * @param key The key of the missing symbol
+     * @return The definition or null if this layer does not define it.
+     */
+    IdentifierLiteralSymbol defineSymbol(SymbolKey key) {
+        return null;
+    }
+
+    /**
+     * Returns the version of the definitions of a symbol in the scope chain.
+     * Versions are kept per stripe of symbol keys, so the version changes
+     * whenever a symbol with a key of the same stripe is added to or removed
+     * from any layer of the chain. Redefining a symbol leaves the version of
+     * most other symbols unchanged.
+     * @param key The key of the symbol
+     * @return The definition version.
+     * @see InlineCache
+     */
+    long getVersion(SymbolKey key) {
+        return getVersion(key.hashCode() & (VersionStripeCount - 1));
+    }
+
+    /**
+     * Changes the version of every symbol of the scope chain without changing
+     * this layer, so inline caches resolve their symbols again.
+     */
+    synchronized void updateVersion() {
+        AtomicLongArray layerVersions = getVersions();
+
+        for (int stripe = 0; stripe < VersionStripeCount; stripe++)
+            layerVersions.incrementAndGet(stripe);
+    }
+
+    private void updateVersion(SymbolKey key) {
+        getVersions().incrementAndGet(key.hashCode() & (VersionStripeCount - 1));
+    }
+
+    private long getVersion(int stripe) {
+        long chainVersion = 0;
+
+        for (SymbolTable layer = this; layer != null; layer = layer.parent)
+            chainVersion += layer.getVersions().get(stripe);
+
+        return chainVersion;
+    }
+
+    private AtomicLongArray getVersions() {
+        AtomicLongArray currentVersions = versions;
+
+        if (currentVersions != null)
+            return currentVersions;
+
+        synchronized (this) {
+            if (versions == null)
+                versions = new AtomicLongArray(VersionStripeCount);
+
+            return versions;
+        }
+    }
+
+    private ConcurrentHashMap<SymbolKey, IdentifierLiteralSymbol> getIndex() {
+        ConcurrentHashMap<SymbolKey, IdentifierLiteralSymbol> currentIndex = index;
+
+        if (currentIndex != null)
+            return currentIndex;
+
+        synchronized (this) {
+            if (index == null) {
+                currentIndex = new ConcurrentHashMap<>(Math.max(16, size() * 2));
+
+                for (IdentifierLiteralSymbol identifierSymbol : this) {
+                    identifierSymbol.internAtom();
+                    currentIndex.put(new SymbolKey(identifierSymbol), identifierSymbol);
+                }
+
+                index = currentIndex;
+            }
+
+            return index;
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly)
+            throw new UnsupportedOperationException("Read-only symbol table.");
+    }
+
+    private void removeIndex(IdentifierLiteralSymbol identifierSymbol) {
+        SymbolKey key = new SymbolKey(identifierSymbol);
+        updateVersion(key);
+
+        if (index != null)
+            index.remove(key);
+    }
+
+    private void readObject(ObjectInputStream input)
+            throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+
+        // Definitions read from a stream intern their names as added ones do.
+        for (IdentifierLiteralSymbol identifierSymbol : this)
+            identifierSymbol.internAtom();
+    }
+
+    private static int getArgumentCount(IdentifierLiteralSymbol identifierSymbol) {
+        if (identifierSymbol.getType() != SymbolType.Function)
+            return 0;
+
+        return ((FunctionLiteralSymbol)identifierSymbol).getArguments().size();
+    }
 }
\ No newline at end of file
@@ -35,6 +35,8 @@ package mes.lang;
  * @see OperatorSymbol
  */
 public abstract class TernaryOperatorSymbol extends OperatorSymbol {
+    private static final long serialVersionUID = 3309585040581602405L;
+
     /**
      * Initializes a ternary operator.
      * @param type The symbol type
@@ -43,4 +45,27 @@ public abstract class TernaryOperatorSymbol extends OperatorSymbol {
     public TernaryOperatorSymbol(SymbolType type, int position) {
         super(type, position);
     }
+
+    /**
+     * Computes the operator result without allocating symbols.
+     * @param conditionOperand The first operand value
+     * @param leftOperand The second operand value
+     * @param rightOperand The third operand value
+     * @return The result value.
+     */
+    public abstract double evaluate(double conditionOperand, double leftOperand,
+            double rightOperand);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LiteralSymbol evaluate(Symbol[] symbols) {
+        LiteralSymbol conditionOperand = (LiteralSymbol)symbols[0];
+        LiteralSymbol leftOperand = (LiteralSymbol)symbols[1];
+        LiteralSymbol rightOperand = (LiteralSymbol)symbols[2];
+
+        return new NumberLiteralSymbol(evaluate(conditionOperand.getDoubleValue(),
+                leftOperand.getDoubleValue(), rightOperand.getDoubleValue()), position);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,273 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+/**
+ * Promotion policy of user functions between execution tiers. A function
+ * starts on the tree-walking interpreter, moves to {@link Bytecode} after a
+ * number of invocations and is compiled to a JVM class once it is hot. Calls
+ * made while the function is already running count as recursion and promote
+ * recursive functions sooner. A threshold of {@link Integer#MAX_VALUE}
+ * disables the corresponding promotion. The policy also limits the depth of
+ * nested user function calls, so runaway recursion fails with an
+ * {@link ExceptionContent} on every tier, bounds the {@link FunctionCache}
+ * of pure functions and enables the {@link ClosureOptimizer} run when a
+ * function is defined.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see FunctionLiteralSymbol.ExecutionTier
+ * @see Interpreter#getTieredExecution()
+ */
+public class TieredExecution {
+    /**
+     * Default invocation count to execute a function as bytecode.
+     */
+    public static final int DefaultBytecodeThreshold = 16;
+
+    /**
+     * Default invocation count to compile a function to a JVM class.
+     */
+    public static final int DefaultCompilationThreshold = 256;
+
+    /**
+     * Default recursive invocation count to compile a function to a JVM class.
+     */
+    public static final int DefaultRecursionThreshold = 64;
+
+    /**
+     * Default maximum depth of nested user function calls.
+     */
+    public static final int DefaultCallDepthLimit = 1024;
+
+    /**
+     * Default maximum number of tail calls of a function to itself in one
+     * call.
+     */
+    public static final int DefaultTailCallLimit = 1 << 20;
+
+    /**
+     * Default number of cached results of each pure function.
+     */
+    public static final int DefaultCacheCapacity = 256;
+
+    private int bytecodeThreshold;
+    private int compilationThreshold;
+    private int recursionThreshold;
+    private int callDepthLimit;
+    private int tailCallLimit;
+    private int cacheCapacity;
+    private boolean optimizationEnabled;
+    private boolean optimizationDumpEnabled;
+
+    /**
+     * Initializes the policy with the default thresholds.
+     */
+    public TieredExecution() {
+        this(DefaultBytecodeThreshold, DefaultCompilationThreshold,
+                DefaultRecursionThreshold);
+    }
+
+    /**
+     * Initializes the policy.
+     * @param bytecodeThreshold The invocation count to execute a function as
+     * bytecode
+     * @param compilationThreshold The invocation count to compile a function
+     * @param recursionThreshold The recursive invocation count to compile a
+     * function
+     * @throws IllegalArgumentException Threshold less than one
+     */
+    public TieredExecution(int bytecodeThreshold, int compilationThreshold,
+            int recursionThreshold) {
+        setBytecodeThreshold(bytecodeThreshold);
+        setCompilationThreshold(compilationThreshold);
+        setRecursionThreshold(recursionThreshold);
+        setCallDepthLimit(DefaultCallDepthLimit);
+        setTailCallLimit(DefaultTailCallLimit);
+        setCacheCapacity(DefaultCacheCapacity);
+
+        optimizationEnabled = true;
+        optimizationDumpEnabled = false;
+    }
+
+    /**
+     * Sets the invocation count to execute a function as bytecode.
+     * @param bytecodeThreshold The invocation count
+     * @throws IllegalArgumentException Threshold less than one
+     */
+    public void setBytecodeThreshold(int bytecodeThreshold) {
+        this.bytecodeThreshold = validate(bytecodeThreshold);
+    }
+
+    /**
+     * Sets the invocation count to compile a function to a JVM class.
+     * @param compilationThreshold The invocation count
+     * @throws IllegalArgumentException Threshold less than one
+     */
+    public void setCompilationThreshold(int compilationThreshold) {
+        this.compilationThreshold = validate(compilationThreshold);
+    }
+
+    /**
+     * Sets the recursive invocation count to compile a function to a JVM
+     * class.
+     * @param recursionThreshold The recursive invocation count
+     * @throws IllegalArgumentException Threshold less than one
+     */
+    public void setRecursionThreshold(int recursionThreshold) {
+        this.recursionThreshold = validate(recursionThreshold);
+    }
+
+    /**
+     * Sets the maximum depth of nested user function calls. Tail calls of a
+     * function to itself do not increase the depth.
+     * @param callDepthLimit The maximum call depth
+     * @throws IllegalArgumentException Call depth limit less than one
+     */
+    public void setCallDepthLimit(int callDepthLimit) {
+        if (callDepthLimit < 1)
+            throw new IllegalArgumentException("Call depth limit less than one.");
+
+        this.callDepthLimit = callDepthLimit;
+    }
+
+    /**
+     * Sets the maximum number of tail calls of a function to itself in one
+     * call. Tail calls are evaluated as jumps and do not count against the
+     * call depth limit, so this limit stops definitions such as
+     * <code>h(t) = h(t)</code>. Compiled functions keep the limit they were
+     * compiled with.
+     * @param tailCallLimit The maximum tail call count
+     * @throws IllegalArgumentException Tail call limit less than one
+     */
+    public void setTailCallLimit(int tailCallLimit) {
+        if (tailCallLimit < 1)
+            throw new IllegalArgumentException("Tail call limit less than one.");
+
+        this.tailCallLimit = tailCallLimit;
+    }
+
+    /**
+     * Sets the number of cached results of each pure function. Caches with
+     * another capacity are rebuilt on the next call of their function.
+     * @param cacheCapacity The cache capacity. A capacity of zero disables
+     * the caches
+     * @throws IllegalArgumentException Negative capacity
+     */
+    public void setCacheCapacity(int cacheCapacity) {
+        if (cacheCapacity < 0)
+            throw new IllegalArgumentException("Negative cache capacity.");
+
+        this.cacheCapacity = cacheCapacity;
+    }
+
+    /**
+     * Enables the optimization of closures when functions are defined.
+     * Functions already defined are not affected.
+     * @param optimizationEnabled The optimization state
+     * @see ClosureOptimizer
+     */
+    public void setOptimizationEnabled(boolean optimizationEnabled) {
+        this.optimizationEnabled = optimizationEnabled;
+    }
+
+    /**
+     * Enables printing the optimized closure of each function defined to the
+     * standard error stream, to verify the rewrites of the optimizer.
+     * @param optimizationDumpEnabled The dump state
+     * @see ClosureOptimizer#format(AbstractSyntaxNode)
+     */
+    public void setOptimizationDumpEnabled(boolean optimizationDumpEnabled) {
+        this.optimizationDumpEnabled = optimizationDumpEnabled;
+    }
+
+    /**
+     * Returns the invocation count to execute a function as bytecode.
+     * @return The invocation count.
+     */
+    public int getBytecodeThreshold() {
+        return bytecodeThreshold;
+    }
+
+    /**
+     * Returns the invocation count to compile a function to a JVM class.
+     * @return The invocation count.
+     */
+    public int getCompilationThreshold() {
+        return compilationThreshold;
+    }
+
+    /**
+     * Returns the recursive invocation count to compile a function to a JVM
+     * class.
+     * @return The recursive invocation count.
+     */
+    public int getRecursionThreshold() {
+        return recursionThreshold;
+    }
+
+    /**
+     * Returns the maximum depth of nested user function calls.
+     * @return The maximum call depth.
+     */
+    public int getCallDepthLimit() {
+        return callDepthLimit;
+    }
+
+    /**
+     * Returns the maximum number of tail calls of a function to itself in one
+     * call.
+     * @return The maximum tail call count.
+     */
+    public int getTailCallLimit() {
+        return tailCallLimit;
+    }
+
+    /**
+     * Returns the number of cached results of each pure function.
+     * @return The cache capacity.
+     */
+    public int getCacheCapacity() {
+        return cacheCapacity;
+    }
+
+    public boolean isOptimizationEnabled() {
+        return optimizationEnabled;
+    }
+
+    public boolean isOptimizationDumpEnabled() {
+        return optimizationDumpEnabled;
+    }
+
+    private static int validate(int threshold) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("Threshold less than one.");
+
+        return threshold;
+    }
+}
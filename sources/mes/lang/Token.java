@@ -33,6 +33,7 @@ package mes.lang;
  * @author Danilo Ferreira
  * @version 1.0.0
  * @see OperatorData
+ * @see OperatorTable
  */
 public class Token {
     /**
@@ -139,55 +140,35 @@ public class Token {
     }
 
     private TokenType type;
-    private String value;
-    private OperatorData unaryOperatorData;
-    private OperatorData binaryOperatorData;
-    private OperatorData ternaryOperatorData;
-    private int position;
+    private CharSequence source;
+    private int start;
+    private int length;
 
     private Token(TokenType type, int position) {
-        this(type, "", position);
+        this(type, null, position, 0);
     }
 
-    private Token(TokenType type, String value, int position) {
-        this(type, value, null, null, null, position);
-    }
-
-    private Token(TokenType type, OperatorData unaryOperatorData,
-            OperatorData binaryOperatorData, OperatorData ternaryOperatorData,
-            int position) {
-        this(type, "", unaryOperatorData, binaryOperatorData, ternaryOperatorData,
-                position);
-    }
-
-    private Token(TokenType type, String value, OperatorData unaryOperatorData,
-            OperatorData binaryOperatorData, OperatorData ternaryOperatorData,
-            int position) {
+    private Token(TokenType type, CharSequence source, int start, int length) {
         this.type = type;
-        this.value = value;
-        this.unaryOperatorData = unaryOperatorData;
-        this.binaryOperatorData = binaryOperatorData;
-        this.ternaryOperatorData = ternaryOperatorData;
-        this.position = position;
+        this.source = source;
+        this.start = start;
+        this.length = length;
     }
 
-    public static Token createIdentifier(String value, int position) {
-        return new Token(TokenType.Identifier, value, position);
+    public static Token createIdentifier(CharSequence source, int start, int length) {
+        return new Token(TokenType.Identifier, source, start, length);
     }
 
-    public static Token createNumber(String value, int position) {
-        return new Token(TokenType.Number, value, position);
+    public static Token createNumber(CharSequence source, int start, int length) {
+        return new Token(TokenType.Number, source, start, length);
     }
 
-    public static Token createComment(String value, int position) {
-        return new Token(TokenType.Comment, value, position);
+    public static Token createComment(CharSequence source, int start, int length) {
+        return new Token(TokenType.Comment, source, start, length);
     }
 
-    public static Token createOperator(TokenType type,
-            OperatorData unaryOperatorData, OperatorData binaryOperatorData,
-            OperatorData ternaryOperatorData, int position) {
-        return new Token(type, unaryOperatorData, binaryOperatorData,
-                ternaryOperatorData, position);
+    public static Token createOperator(TokenType type, int position) {
+        return new Token(type, position);
     }
 
     public static Token createStructure(TokenType type, int position) {
@@ -198,24 +179,50 @@ public class Token {
         return type;
     }
 
+    /**
+     * Returns the source code span of the token as string. The string is
+     * created on demand, tokens without span return an empty string.
+     * @return The token value.
+     * @see #getStart()
+     * @see #getLength()
+     */
     public String getValue() {
-        return value;
+        if (source == null)
+            return "";
+
+        return source.subSequence(start, start + length).toString();
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getEnd() {
+        return start + length;
     }
 
     public OperatorData getUnaryOperatorData() {
-        return unaryOperatorData;
+        return OperatorTable.getUnaryOperatorData(type);
     }
 
     public OperatorData getBinaryOperatorData() {
-        return binaryOperatorData;
+        return OperatorTable.getBinaryOperatorData(type);
     }
 
     public OperatorData getTernaryOperatorData() {
-        return ternaryOperatorData;
+        return OperatorTable.getTernaryOperatorData(type);
     }
 
     public int getPosition() {
-        return position;
+        return start;
     }
 
     public boolean isNumber() {
@@ -231,15 +238,15 @@ public class Token {
     }
 
     public boolean isUnaryOperator() {
-        return unaryOperatorData != null;
+        return getUnaryOperatorData() != null;
     }
 
     public boolean isBinaryOperator() {
-        return binaryOperatorData != null;
+        return getBinaryOperatorData() != null;
     }
 
     public boolean isTernaryOperator() {
-        return ternaryOperatorData != null;
+        return getTernaryOperatorData() != null;
     }
 
     public boolean isLanguageStructure() {
@@ -28,25 +28,342 @@
 
 package mes.lang;
 
+import java.util.Arrays;
+import mes.lang.Token.TokenType;
+
 /**
- * List implementation for {@link Token}.
+ * Primitive token buffer produced by {@link Lexer}. Tokens are stored in
+ * parallel arrays of type ordinals, source spans and numeric values instead of
+ * {@link Token} objects.
  * @author Danilo Ferreira
  * @version 1.0.0
- * @see List
+ * @see Lexer
+ * @see Parser
  */
-public class TokenStream extends List<Token> {
+public class TokenStream {
+    /**
+     * Cursor to iterate over the tokens of a {@link TokenStream}.
+     * @author Danilo Ferreira
+     * @version 1.0.0
+     */
+    public class Cursor {
+        private int index;
+
+        private Cursor() {
+            this(0);
+        }
+
+        private Cursor(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Set the current token of the cursor by index.
+         * @param index The token index
+         */
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Returns the current token index of the cursor.
+         * @return The token index.
+         * @see #setIndex(int)
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns whether the current cursor index is a valid token of the
+         * stream.
+         * @return The state of the current cursor index.
+         */
+        public boolean isNull() {
+            return index < 0 || index >= size;
+        }
+
+        /**
+         * Increments the cursor.
+         */
+        public void next() {
+            index++;
+        }
+
+        /**
+         * Resets the cursor to the first token.
+         */
+        public void reset() {
+            index = 0;
+        }
+
+        /**
+         * Returns whether the current token is of the given type.
+         * @param type The expected token type
+         * @return True if the current token matches the type and false
+         * otherwise.
+         */
+        public boolean expect(TokenType type) {
+            return !isNull() && types[index] == type.ordinal();
+        }
+
+        /**
+         * Returns the type of the current token.
+         * @return The token type or null if the cursor is not valid.
+         */
+        public TokenType getType() {
+            return isNull() ? null : getTokenType(index);
+        }
+
+        /**
+         * Returns the source code position of the current token.
+         * @return The token position.
+         */
+        public int getPosition() {
+            return starts[index];
+        }
+
+        /**
+         * Returns the source code span of the current token as string.
+         * @return The token value.
+         * @see TokenStream#getValue(int)
+         */
+        public String getValue() {
+            return TokenStream.this.getValue(index);
+        }
+
+        /**
+         * Returns the interned name of the current identifier token.
+         * @return The identifier atom or {@link AtomTable#NoAtom} if its name
+         * was never defined.
+         * @see TokenStream#getAtom(int)
+         */
+        public int getAtom() {
+            return atoms[index];
+        }
+
+        /**
+         * Returns the numeric value of the current token.
+         * @return The number value.
+         * @see TokenStream#getNumberValue(int)
+         */
+        public double getNumberValue() {
+            return numberValues[index];
+        }
+
+        /**
+         * Returns the current token as a {@link Token} object.
+         * @return The current token or null if the cursor is not valid.
+         */
+        public Token get() {
+            return isNull() ? null : TokenStream.this.get(index);
+        }
+    }
+
+    private static final TokenType[] tokenTypes = TokenType.values();
+
+    private CharSequence source;
+
+    private int[] types;
+    private int[] starts;
+    private int[] ends;
+    private double[] numberValues;
+    private int[] atoms;
+
+    private int size;
+
+    /**
+     * Initializes an empty token stream for a source code.
+     * @param source The source code
+     */
+    public TokenStream(CharSequence source) {
+        this(source, 16);
+    }
+
+    /**
+     * Initializes an empty token stream for a source code with an initial
+     * capacity.
+     * @param source The source code
+     * @param capacity The initial token capacity
+     */
+    public TokenStream(CharSequence source, int capacity) {
+        this.source = source;
+
+        capacity = Math.max(capacity, 1);
+
+        types = new int[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        numberValues = new double[capacity];
+        atoms = new int[capacity];
+
+        size = 0;
+    }
+
+    /**
+     * Appends a token spanning a range of the source code.
+     * @param type The token type
+     * @param start The start index (inclusive)
+     * @param end The end index (exclusive)
+     */
+    public void add(TokenType type, int start, int end) {
+        add(type, start, end, 0);
+    }
+
+    /**
+     * Appends an identifier token and looks its name up, without interning
+     * names that were never defined.
+     * @param start The start index (inclusive)
+     * @param end The end index (exclusive)
+     * @see AtomTable#lookup(CharSequence, int, int)
+     */
+    public void addIdentifier(int start, int end) {
+        add(TokenType.Identifier, start, end, 0);
+        atoms[size - 1] = AtomTable.lookup(source, start, end);
+    }
+
+    /**
+     * Appends a number token with its parsed value.
+     * @param start The start index (inclusive)
+     * @param end The end index (exclusive)
+     * @param value The parsed number value
+     */
+    public void addNumber(int start, int end, double value) {
+        add(TokenType.Number, start, end, value);
+    }
+
+    /**
+     * Returns the source code of the token stream.
+     * @return The source code.
+     */
+    public CharSequence getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the token count.
+     * @return The token count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the token stream is empty.
+     * @return The empty state.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the type of a token.
+     * @param index The token index
+     * @return The token type.
+     */
+    public TokenType getTokenType(int index) {
+        return tokenTypes[types[index]];
+    }
+
+    /**
+     * Returns the start index of a token in the source code.
+     * @param index The token index
+     * @return The start index (inclusive).
+     */
+    public int getStart(int index) {
+        return starts[index];
+    }
+
     /**
-     * Initializes an empty token stream.
+     * Returns the end index of a token in the source code.
+     * @param index The token index
+     * @return The end index (exclusive).
      */
-    public TokenStream() {
-        super();
+    public int getEnd(int index) {
+        return ends[index];
     }
 
     /**
-     * Initializes the token stream with an initial size.
-     * @param size The token stream size
+     * Returns the source code span of a token as string. The string is
+     * created on demand.
+     * @param index The token index
+     * @return The token value.
      */
-    public TokenStream(int size) {
-        super(size);
+    public String getValue(int index) {
+        return source.subSequence(starts[index], ends[index]).toString();
+    }
+
+    /**
+     * Returns the interned name of an identifier token.
+     * @param index The token index
+     * @return The atom or {@link AtomTable#NoAtom} if the token is not an
+     * identifier or its name was never defined.
+     */
+    public int getAtom(int index) {
+        return atoms[index];
+    }
+
+    /**
+     * Returns the parsed value of a number token.
+     * @param index The token index
+     * @return The number value or zero if the token is not a number.
+     */
+    public double getNumberValue(int index) {
+        return numberValues[index];
+    }
+
+    /**
+     * Creates a {@link Token} object representing a token of the stream.
+     * @param index The token index
+     * @return The token object.
+     */
+    public Token get(int index) {
+        TokenType type = getTokenType(index);
+        int start = starts[index];
+
+        switch (type) {
+            case Identifier:
+                return Token.createIdentifier(source, start, ends[index] - start);
+            case Number:
+                return Token.createNumber(source, start, ends[index] - start);
+            case Comment:
+                return Token.createComment(source, start, ends[index] - start);
+            case LParenthesis:
+            case RParenthesis:
+            case Comma:
+            case EOL:
+                return Token.createStructure(type, start);
+            default:
+                return Token.createOperator(type, start);
+        }
+    }
+
+    /**
+     * Returns a cursor for the first token in the stream.
+     * @return The first token cursor.
+     * @see Cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    private void add(TokenType type, int start, int end, double value) {
+        if (size == types.length) {
+            int capacity = size << 1;
+
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            numberValues = Arrays.copyOf(numberValues, capacity);
+            atoms = Arrays.copyOf(atoms, capacity);
+        }
+
+        types[size] = type.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        numberValues[size] = value;
+        atoms[size] = AtomTable.NoAtom;
+
+        size++;
     }
-}
\ No newline at end of file
+}
@@ -35,15 +35,33 @@ package mes.lang;
  * @see OperatorSymbol
  */
 public abstract class UnaryOperatorSymbol extends OperatorSymbol {
+    private static final long serialVersionUID = -5922490926700440753L;
+
     /**
      * Initializes a unary operator. By default the unary operators are right
      * associative with precedence 8.
      * @param type The symbol type
      * @param position The symbol position at the source code
-     * @see Lexer#Lexer(String)
+     * @see Lexer#Lexer(CharSequence)
      * @see OperatorData
      */
     public UnaryOperatorSymbol(SymbolType type, int position) {
         super(type, position);
     }
+
+    /**
+     * Computes the operator result without allocating symbols.
+     * @param inputOperand The operand value
+     * @return The result value.
+     */
+    public abstract double evaluate(double inputOperand);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LiteralSymbol evaluate(Symbol[] symbols) {
+        LiteralSymbol inputOperand = (LiteralSymbol)symbols[0];
+        return new NumberLiteralSymbol(evaluate(inputOperand.getDoubleValue()), position);
+    }
 }
\ No newline at end of file
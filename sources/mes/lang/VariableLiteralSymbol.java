@@ -38,6 +38,10 @@ import mes.lang.ExceptionContent.ExceptionMessage;
  * @see IdentifierLiteralSymbol
  */
 public class VariableLiteralSymbol extends IdentifierLiteralSymbol {
+    private static final long serialVersionUID = 4476705781609428316L;
+
+    private transient boolean constant;
+
     public VariableLiteralSymbol() {
         this("", 0);
     }
@@ -54,36 +58,58 @@ public class VariableLiteralSymbol extends IdentifierLiteralSymbol {
         super(name, doubleValue, SymbolType.Variable, position);
     }
 
+    /**
+     * Marks the variable as a constant imported from native code. Constants
+     * can not be redefined, so their value is folded into closures.
+     * @param constant The constant state
+     * @see SymbolImporter
+     * @see ClosureOptimizer
+     */
+    public void setConstant(boolean constant) {
+        this.constant = constant;
+    }
+
+    public boolean isConstant() {
+        return constant;
+    }
+
     @Override
     public void evaluate(SymbolTable globalSymbolTable) {
         if (closure.getType() == ClosureType.AbstractSyntaxTree) {
             AbstractSyntaxTree abstractSyntaxTree = closure.getAbstractSyntaxTree();
 
-            LiteralSymbol literalSymbol = (LiteralSymbol)abstractSyntaxTree.traverse(
-                    new LiteralEvaluation(globalSymbolTable));
-
-            value = literalSymbol.getDoubleValue();
+            value = PrimitiveEvaluation.getInstance().evaluate(abstractSyntaxTree.getRoot(),
+                    globalSymbolTable);
             closure.setEmpty();
         } else {
-            if (!globalSymbolTable.contains(this))
+            IdentifierLiteralSymbol variableDefinition = resolve(globalSymbolTable);
+
+            if (variableDefinition == null)
                 throw new ExceptionContent(ExceptionMessage.UndefinedSymbol, position);
 
-            for (IdentifierLiteralSymbol identifierSymbol : globalSymbolTable)
-                if (identifierSymbol.equals(this)) {
-                    value = identifierSymbol.getDoubleValue();
-                    return;
-                }
+            value = variableDefinition.getDoubleValue();
         }
     }
 
     @Override
     public void precompile(SymbolTable globalSymbolTable) {
-        if (!globalSymbolTable.contains(this))
+        if (!globalSymbolTable.defines(this))
             throw new ExceptionContent(ExceptionMessage.UndefinedSymbol, position);
 
         closure.setEmpty();
     }
 
+    /**
+     * Returns the variable definition with the given name.
+     * @param globalSymbolTable The symbol table with variable definitions
+     * @param name The variable name
+     * @return The variable definition or null if it is not defined.
+     */
+    public static VariableLiteralSymbol findDefinition(SymbolTable globalSymbolTable,
+            String name) {
+        return (VariableLiteralSymbol)globalSymbolTable.find(name, SymbolType.Variable, 0);
+    }
+
     @Override
     public String getPrototype() {
         return String.format("%s: %s", name, getFormatedValue());
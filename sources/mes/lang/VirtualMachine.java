@@ -0,0 +1,258 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.util.Arrays;
+import mes.lang.ExceptionContent.ExceptionMessage;
+import mes.lang.Symbol.SymbolType;
+
+/**
+ * Stack machine that executes {@link Bytecode} over a primitive operand
+ * stack.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see Bytecode
+ * @see BytecodeCompiler
+ */
+public abstract class VirtualMachine {
+    private static final double[] NoArguments = new double[0];
+
+    /**
+     * Executes a compiled statement.
+     * @param bytecode The compiled statement
+     * @param globalSymbolTable The symbol table used to resolve identifiers
+     * @return The output value.
+     * @throws ExceptionContent Undefined symbol or evaluation failure
+     */
+    public static double execute(Bytecode bytecode, SymbolTable globalSymbolTable) {
+        return execute(bytecode, globalSymbolTable, NoArguments);
+    }
+
+    /**
+     * Executes a compiled function body.
+     * @param bytecode The compiled function body
+     * @param globalSymbolTable The symbol table used to resolve identifiers
+     * @param argumentValues The values of function arguments
+     * @return The output value.
+     * @throws ExceptionContent Undefined symbol or evaluation failure
+     */
+    public static double execute(Bytecode bytecode, SymbolTable globalSymbolTable,
+            double[] argumentValues) {
+        int[] code = bytecode.getCode();
+        double[] constants = bytecode.getConstants();
+        InlineCache[] inlineCaches = bytecode.getInlineCaches();
+
+        argumentValues = allocateTemporaries(bytecode, argumentValues);
+
+        double[] stack = new double[bytecode.getMaximumStackSize()];
+        int top = 0;
+
+        FunctionLiteralSymbol[] functions = bytecode.getMaximumCallDepth() != 0
+                ? new FunctionLiteralSymbol[bytecode.getMaximumCallDepth()] : null;
+        int functionCount = 0;
+
+        int tailCallCount = 0;
+        int programCounter = 0;
+
+        while (true)
+            switch (code[programCounter++]) {
+                case Bytecode.LoadConstant:
+                    stack[top++] = constants[code[programCounter++]];
+                    break;
+                case Bytecode.LoadArgument:
+                    stack[top++] = argumentValues[code[programCounter++]];
+                    break;
+                case Bytecode.StoreArgument:
+                    argumentValues[code[programCounter++]] = stack[--top];
+                    break;
+                case Bytecode.LoadVariable: {
+                    InlineCache inlineCache = InlineCache.resolve(inlineCaches[programCounter],
+                            globalSymbolTable, bytecode.getNames()[code[programCounter]],
+                            SymbolType.Variable, 0);
+                    VariableLiteralSymbol variableDefinition
+                            = (VariableLiteralSymbol)inlineCache.getDefinition();
+
+                    inlineCaches[programCounter] = inlineCache;
+
+                    if (variableDefinition == null)
+                        throw new ExceptionContent(ExceptionMessage.UndefinedSymbol,
+                                code[programCounter + 1]);
+
+                    stack[top++] = variableDefinition.getDoubleValue();
+                    programCounter += 2;
+                    break;
+                }
+                case Bytecode.Negate:
+                    stack[top - 1] = -stack[top - 1];
+                    break;
+                case Bytecode.Not:
+                    stack[top - 1] = MathUtils.number(!MathUtils.bool(stack[top - 1]));
+                    break;
+                case Bytecode.Add:
+                    top--;
+                    stack[top - 1] += stack[top];
+                    break;
+                case Bytecode.Subtract:
+                    top--;
+                    stack[top - 1] -= stack[top];
+                    break;
+                case Bytecode.Multiply:
+                    top--;
+                    stack[top - 1] *= stack[top];
+                    break;
+                case Bytecode.Divide:
+                    top--;
+                    stack[top - 1] /= stack[top];
+                    break;
+                case Bytecode.Modulo:
+                    top--;
+                    stack[top - 1] %= stack[top];
+                    break;
+                case Bytecode.Power:
+                    top--;
+                    stack[top - 1] = MathUtils.pow(stack[top - 1], stack[top]);
+                    break;
+                case Bytecode.LessEqual:
+                    top--;
+                    stack[top - 1] = MathUtils.number(stack[top - 1] <= stack[top]);
+                    break;
+                case Bytecode.Less:
+                    top--;
+                    stack[top - 1] = MathUtils.number(stack[top - 1] < stack[top]);
+                    break;
+                case Bytecode.GreaterEqual:
+                    top--;
+                    stack[top - 1] = MathUtils.number(stack[top - 1] >= stack[top]);
+                    break;
+                case Bytecode.Greater:
+                    top--;
+                    stack[top - 1] = MathUtils.number(stack[top - 1] > stack[top]);
+                    break;
+                case Bytecode.Equal:
+                    top--;
+                    stack[top - 1] = MathUtils.number(stack[top - 1] == stack[top]);
+                    break;
+                case Bytecode.NotEqual:
+                    top--;
+                    stack[top - 1] = MathUtils.number(stack[top - 1] != stack[top]);
+                    break;
+                case Bytecode.Truth:
+                    stack[top - 1] = MathUtils.number(MathUtils.bool(stack[top - 1]));
+                    break;
+                case Bytecode.Jump:
+                    programCounter = code[programCounter];
+                    break;
+                case Bytecode.JumpIfFalse:
+                    if (MathUtils.bool(stack[--top]))
+                        programCounter++;
+                    else
+                        programCounter = code[programCounter];
+
+                    break;
+                case Bytecode.JumpIfTrue:
+                    if (MathUtils.bool(stack[--top]))
+                        programCounter = code[programCounter];
+                    else
+                        programCounter++;
+
+                    break;
+                case Bytecode.ResolveFunction: {
+                    InlineCache inlineCache = InlineCache.resolve(inlineCaches[programCounter],
+                            globalSymbolTable, bytecode.getNames()[code[programCounter]],
+                            SymbolType.Function, code[programCounter + 1]);
+                    FunctionLiteralSymbol functionDefinition
+                            = (FunctionLiteralSymbol)inlineCache.getDefinition();
+
+                    inlineCaches[programCounter] = inlineCache;
+
+                    if (functionDefinition == null)
+                        throw new ExceptionContent(ExceptionMessage.UndefinedSymbol,
+                                code[programCounter + 2]);
+
+                    functions[functionCount++] = functionDefinition;
+                    programCounter += 3;
+                    break;
+                }
+                case Bytecode.CallUser:
+                case Bytecode.TailCallUser: {
+                    int argumentCount = code[programCounter];
+                    double[] functionArgumentValues = new double[argumentCount];
+
+                    top -= argumentCount;
+                    System.arraycopy(stack, top, functionArgumentValues, 0, argumentCount);
+
+                    FunctionLiteralSymbol functionDefinition = functions[--functionCount];
+                    functions[functionCount] = null;
+
+                    if (code[programCounter - 1] == Bytecode.TailCallUser
+                            && functionDefinition.getBytecode() == bytecode) {
+                        if (++tailCallCount > functionDefinition.getTieredExecution()
+                                .getTailCallLimit())
+                            throw new ExceptionContent(
+                                    ExceptionMessage.TailCallLimitExceeded,
+                                    code[programCounter + 1]);
+
+                        argumentValues = allocateTemporaries(bytecode,
+                                functionArgumentValues);
+                        programCounter = 0;
+                        break;
+                    }
+
+                    stack[top++] = functionDefinition.invoke(globalSymbolTable,
+                            functionArgumentValues, code[programCounter + 1]);
+                    programCounter += 2;
+                    break;
+                }
+                case Bytecode.CallNative: {
+                    NativeFunction nativeFunction
+                            = bytecode.getNativeFunctions()[code[programCounter]];
+                    int argumentCount = code[programCounter + 1];
+                    double[] functionArgumentValues = new double[argumentCount];
+
+                    top -= argumentCount;
+                    System.arraycopy(stack, top, functionArgumentValues, 0, argumentCount);
+
+                    stack[top++] = nativeFunction.invoke(functionArgumentValues,
+                            code[programCounter + 2]);
+                    programCounter += 3;
+                    break;
+                }
+                default:
+                    return stack[top - 1];
+            }
+    }
+
+    private static double[] allocateTemporaries(Bytecode bytecode, double[] argumentValues) {
+        if (bytecode.getTemporaryCount() == 0)
+            return argumentValues;
+
+        return Arrays.copyOf(argumentValues,
+                argumentValues.length + bytecode.getTemporaryCount());
+    }
+}
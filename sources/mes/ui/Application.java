@@ -96,6 +96,11 @@ public class Application {
      */
     public static final String styleSheet = "styles/general.css";
 
+    /**
+     * The directory of symbol libraries loaded at startup.
+     */
+    public static final String libraryDirectory = "libraries";
+
     private static final File preferenceFile = new File(name.toLowerCase() + ".pref");
     private static final Logger logger = Logger.getLogger(name);
 
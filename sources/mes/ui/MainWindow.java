@@ -30,6 +30,10 @@ package mes.ui;
 
 import com.sun.javafx.robot.FXRobot;
 import com.sun.javafx.robot.FXRobotFactory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
@@ -119,6 +123,7 @@ import mes.lang.Interpreter;
 import mes.lang.MathUtils;
 import mes.lang.Statement;
 import mes.lang.Symbol.SymbolType;
+import mes.lang.SymbolLibrary;
 import mes.lang.SymbolTable;
 
 /**
@@ -364,7 +369,8 @@ public class MainWindow extends javafx.application.Application {
                     String word = currentValue.substring(beginIndex, endIndex).toLowerCase();
 
                     if (!word.isEmpty()) {
-                        autocompletePopup.computeList(word, interpreter.getSymbolTable());
+                        autocompletePopup.computeList(word,
+                                interpreter.getSymbolTable().getVisibleSymbols());
                         autocompletePopup.show(primaryStage);
                     }
                 } catch (Exception exception) {
@@ -1317,6 +1323,25 @@ public class MainWindow extends javafx.application.Application {
         if (!interpreter.hasDefaultSymbols())
             Application.informationLog("cannot import default symbols.");
 
+        Path libraryDirectory = Paths.get(Application.libraryDirectory);
+
+        if (Files.isDirectory(libraryDirectory))
+            try {
+                for (SymbolLibrary library : SymbolLibrary.openDirectory(libraryDirectory)) {
+                    if (!library.isIndexed())
+                        Application.warningLog("symbol library " + library.getName()
+                                + " has no symbol index, its classes were scanned.");
+
+                    if (library.getSymbolCount() == 0)
+                        Application.warningLog("symbol library " + library.getName()
+                                + " exports no symbols.");
+
+                    interpreter.loadLibrary(library);
+                }
+            } catch (IOException exception) {
+                Application.informationLog("cannot load symbol libraries.");
+            }
+
         file = new File();
         saveStatusProperty = new SimpleBooleanProperty(false);
 
@@ -1740,7 +1765,7 @@ public class MainWindow extends javafx.application.Application {
             AutocompletePopup autocompletePopup = commandLine.getAutocompletePopup();
             autocompletePopup.hide();
 
-            autocompletePopup.setList(interpreter.getSymbolTable());
+            autocompletePopup.setList(interpreter.getSymbolTable().getVisibleSymbols());
             autocompletePopup.show(primaryStage, true);
         }
     }
@@ -0,0 +1,89 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.lang.management.ManagementFactory;
+import org.junit.Assume;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that evaluating an expression of numbers, variables and operators
+ * that was already parsed allocates nothing once the evaluation path is warmed
+ * up, counting the bytes allocated by the current thread. Function calls are
+ * not covered, since they allocate their argument values.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see Interpreter#evaluate(String)
+ */
+public class AllocationTest {
+    private static final String[] Sources = {
+        "x * 2 + y ^ 2 - (x / y) % 3", "x > y && !(x == 1) || y <= 3 ? -x : +y * PI",
+        "((((x + 1) * 2) - 3) / 4) ^ 0.5", "x < y ? (x >= 1 || y != 2) : x - -y"
+    };
+
+    private static final int WarmupCount = 200000;
+    private static final int EvaluationCount = 100000;
+
+    @Test
+    public void evaluationDoesNotAllocate() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean);
+
+        com.sun.management.ThreadMXBean threadBean
+                = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        Interpreter interpreter = new Interpreter();
+
+        interpreter.run("x = 1.5");
+        interpreter.run("y = 2");
+
+        long threadId = Thread.currentThread().getId();
+
+        for (String source : Sources) {
+            double sum = 0;
+
+            for (int i = 0; i < WarmupCount; i++)
+                sum += interpreter.evaluate(source);
+
+            long allocatedBytes = threadBean.getThreadAllocatedBytes(threadId);
+
+            for (int i = 0; i < EvaluationCount; i++)
+                sum += interpreter.evaluate(source);
+
+            allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - allocatedBytes;
+
+            assertTrue(source + " allocated " + allocatedBytes + " bytes for a sum of " + sum,
+                    allocatedBytes < EvaluationCount);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that {@link AtomTable} only interns the names of definitions, and
+ * that references resolved before their definition find it once defined.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see AtomTable
+ */
+public class AtomTableTest {
+    @Test
+    public void referencesAreNotInterned() {
+        Interpreter interpreter = new Interpreter();
+
+        assertTrue(interpreter.run("referenceOnly + 1").hasException());
+        assertTrue(interpreter.run("referenceOnlyFunction(2)").hasException());
+        assertEquals(AtomTable.NoAtom, AtomTable.lookup("referenceOnly"));
+        assertEquals(AtomTable.NoAtom, AtomTable.lookup("referenceOnlyFunction"));
+    }
+
+    @Test
+    public void definitionsAreInterned() {
+        Interpreter interpreter = new Interpreter();
+
+        interpreter.run("definedLater = 2");
+
+        int atom = AtomTable.lookup("definedLater");
+
+        assertNotEquals(AtomTable.NoAtom, atom);
+        assertEquals("definedLater", AtomTable.getName(atom));
+        assertEquals(atom, AtomTable.intern("definedLater"));
+    }
+
+    @Test
+    public void referencesFindLaterDefinitions() {
+        Interpreter interpreter = new Interpreter();
+
+        for (int i = 0; i < 3; i++)
+            assertTrue(interpreter.run("definedAfterUse + 1").hasException());
+
+        interpreter.run("definedAfterUse = 2");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(3, interpreter.run("definedAfterUse + 1").getResult()
+                    .getDoubleValue(), 0.0);
+            assertEquals(3, interpreter.evaluate("definedAfterUse + 1"), 0.0);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Stress test of one interpreter session evaluating the same definitions from
+ * many threads, on each execution tier, while another thread keeps defining
+ * variables. Every result is checked against the value computed in Java.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see Interpreter#evaluate(String)
+ */
+public class ConcurrencyTest {
+    private static final String[] Definitions = {
+        "k = 3", "sq(x) = x * x", "g(x, y) = sq(x) + sq(y) + k",
+        "fib(n) = n < 2 ? n : fib(n - 1) + fib(n - 2)", "h(x) = x > 0 ? h(x - 1) + 1 : 0",
+        "p(x) = g(x, x) * 2 - sq(x)", "c(x) = x > 0 ? c(x - 1) + sq(x) : 0"
+    };
+
+    private static final int ThreadCount = 8;
+    private static final int EvaluationCount = 2000;
+
+    @Test
+    public void interpretedEvaluation() throws Exception {
+        Interpreter interpreter = new Interpreter();
+
+        interpreter.setBytecodeEnabled(false);
+        stress(interpreter);
+    }
+
+    @Test
+    public void bytecodeEvaluation() throws Exception {
+        Interpreter interpreter = new Interpreter();
+
+        interpreter.getTieredExecution().setBytecodeThreshold(2);
+        interpreter.getTieredExecution().setCompilationThreshold(Integer.MAX_VALUE);
+        stress(interpreter);
+    }
+
+    @Test
+    public void compiledEvaluation() throws Exception {
+        Interpreter interpreter = new Interpreter();
+
+        interpreter.getTieredExecution().setBytecodeThreshold(2);
+        interpreter.getTieredExecution().setCompilationThreshold(50);
+        interpreter.getTieredExecution().setCacheCapacity(0);
+        stress(interpreter);
+    }
+
+    @Test
+    public void cachedEvaluation() throws Exception {
+        stress(new Interpreter());
+    }
+
+    private static void stress(Interpreter interpreter) throws Exception {
+        for (String definition : Definitions)
+            assertFalse(definition, interpreter.run(definition).hasException());
+
+        ExecutorService executor = Executors.newFixedThreadPool(ThreadCount + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+
+        try {
+            Future<Integer> writer = executor.submit(() -> {
+                start.await();
+
+                int errorCount = 0;
+
+                for (int i = 0; !done.get(); i++)
+                    if (interpreter.run("v" + (i % 500) + " = " + i).hasException())
+                        errorCount++;
+
+                return errorCount;
+            });
+
+            ArrayList<Future<Integer>> readers = new ArrayList<>();
+
+            for (int i = 0; i < ThreadCount; i++)
+                readers.add(executor.submit(createReader(interpreter, start, i)));
+
+            start.countDown();
+
+            int wrongCount = 0;
+
+            for (Future<Integer> reader : readers)
+                wrongCount += reader.get();
+
+            done.set(true);
+
+            assertEquals("wrong results", 0, wrongCount);
+            assertEquals("failed definitions", 0, (int)writer.get());
+        } finally {
+            done.set(true);
+            executor.shutdownNow();
+        }
+    }
+
+    private static Callable<Integer> createReader(Interpreter interpreter,
+            CountDownLatch start, int seed) {
+        return () -> {
+            Random random = new Random(seed);
+            int wrongCount = 0;
+
+            start.await();
+
+            for (int i = 0; i < EvaluationCount; i++) {
+                int a = random.nextInt(40);
+                int b = random.nextInt(40);
+
+                String source;
+                double value;
+
+                switch ((i + seed) % 6) {
+                    case 0:
+                        source = "fib(" + a % 16 + ")";
+                        value = fib(a % 16);
+                        break;
+                    case 1:
+                        source = "g(" + a + ", " + b + ")";
+                        value = a * a + b * b + 3;
+                        break;
+                    case 2:
+                        source = "h(" + a * 5 + ")";
+                        value = a * 5;
+                        break;
+                    case 3:
+                        source = "p(" + a + ") + 1";
+                        value = 3 * a * a + 7;
+                        break;
+                    case 4:
+                        source = "c(" + a + ")";
+                        value = a * (a + 1) * (2 * a + 1) / 6;
+                        break;
+                    default:
+                        source = "sq(" + a + ") - k";
+                        value = a * a - 3;
+                        break;
+                }
+
+                if ((i & 1) == 0) {
+                    if (interpreter.evaluate(source) != value)
+                        wrongCount++;
+                } else {
+                    Statement statement = interpreter.run(source, (i & 2) != 0);
+
+                    if (statement.hasException()
+                            || statement.getResult().getDoubleValue() != value)
+                        wrongCount++;
+                }
+            }
+
+            return wrongCount;
+        };
+    }
+
+    private static double fib(int n) {
+        return n < 2 ? n : fib(n - 1) + fib(n - 2);
+    }
+}
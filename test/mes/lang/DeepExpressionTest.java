@@ -0,0 +1,165 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests that deeply nested expressions are parsed and evaluated without
+ * recursion. The statements run on a thread with a small stack, so any
+ * traversal whose stack use grows with the depth of the input overflows.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see ParserBenchmark
+ */
+public class DeepExpressionTest {
+    private static final int Depth = 100000;
+    private static final long StackSize = 256 * 1024;
+
+    @Test
+    public void nestedParentheses() throws Throwable {
+        StringBuilder source = new StringBuilder();
+
+        for (int i = 0; i < Depth; i++)
+            source.append('(');
+
+        source.append('x');
+
+        for (int i = 0; i < Depth; i++)
+            source.append(")+1");
+
+        check(source.toString(), 2 + Depth, 3 + Depth);
+    }
+
+    @Test
+    public void chainedOperators() throws Throwable {
+        StringBuilder source = new StringBuilder("x");
+
+        for (int i = 0; i < Depth; i++)
+            source.append("+x");
+
+        check(source.toString(), 2.0 * (Depth + 1), 3.0 * (Depth + 1));
+    }
+
+    @Test
+    public void unaryOperators() throws Throwable {
+        StringBuilder source = new StringBuilder();
+
+        for (int i = 0; i < Depth; i++)
+            source.append('-');
+
+        check(source.append('x').toString(), 2, 3);
+    }
+
+    @Test
+    public void rightAssociativeOperators() throws Throwable {
+        StringBuilder source = new StringBuilder("x");
+
+        for (int i = 0; i < Depth; i++)
+            source.append("^1");
+
+        check(source.toString(), 2, 3);
+    }
+
+    @Test
+    public void nestedConditionals() throws Throwable {
+        StringBuilder source = new StringBuilder();
+
+        for (int i = 0; i < Depth; i++)
+            source.append("x < ").append(i + 1).append(" ? ").append(i).append(" : ");
+
+        check(source.append('0').toString(), 2, 3);
+    }
+
+    @Test
+    public void nestedCalls() throws Throwable {
+        StringBuilder source = new StringBuilder();
+
+        for (int i = 0; i < Depth; i++)
+            source.append("abs(");
+
+        source.append('x');
+
+        for (int i = 0; i < Depth; i++)
+            source.append(')');
+
+        check(source.toString(), 2, 3);
+    }
+
+    private static void check(String source, double value, double callValue)
+            throws Throwable {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread thread = new Thread(null, () -> {
+            try {
+                evaluate(source, value, callValue);
+            } catch (Throwable throwable) {
+                failure.set(throwable);
+            }
+        }, "deep expression", StackSize);
+
+        thread.start();
+        thread.join();
+
+        if (failure.get() != null)
+            throw failure.get();
+    }
+
+    private static void evaluate(String source, double value, double callValue) {
+        Interpreter interpreter = new Interpreter();
+
+        assertValue(interpreter.run("x = 2"), 2);
+        assertValue(interpreter.run(source), value);
+        assertValue(interpreter.run("v = " + source), value);
+
+        Statement definition = interpreter.run("f(x) = " + source);
+
+        assertFalse(definition.hasException());
+        assertValue(interpreter.run("f(3)"), callValue);
+
+        TieredExecution tieredExecution = interpreter.getTieredExecution();
+
+        tieredExecution.setBytecodeThreshold(1);
+        tieredExecution.setCompilationThreshold(2);
+        tieredExecution.setCacheCapacity(0);
+
+        for (int i = 0; i < 3; i++)
+            assertValue(interpreter.run("f(3)"), callValue);
+    }
+
+    private static void assertValue(Statement statement, double value) {
+        if (statement.hasException())
+            throw statement.getException();
+
+        assertEquals(value, statement.getResult().getDoubleValue(), 0.0);
+    }
+}
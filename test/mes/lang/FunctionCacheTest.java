@@ -0,0 +1,131 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that {@link FunctionCache} finds the results it cached, respects its
+ * capacity and returns consistent results while many threads share it.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see FunctionCache
+ */
+public class FunctionCacheTest {
+    private static final int ThreadCount = 8;
+    private static final int CallCount = 100000;
+
+    @Test
+    public void cachedResultsAreFound() {
+        FunctionCache cache = new FunctionCache(2, 64);
+        double[] argumentValues = {1, 2};
+
+        assertNull(cache.find(argumentValues));
+
+        cache.put(argumentValues, 3);
+
+        assertEquals(3, cache.find(argumentValues).getValue(), 0.0);
+        assertNull(cache.find(new double[] {1, -2}));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        cache.clear();
+
+        assertNull(cache.find(argumentValues));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void keysAreBitPatterns() {
+        FunctionCache cache = new FunctionCache(1, 8);
+
+        cache.put(new double[] {0.0}, 1);
+
+        assertNull(cache.find(new double[] {-0.0}));
+        assertNotNull(cache.find(new double[] {0.0}));
+    }
+
+    @Test
+    public void capacityIsRespected() {
+        FunctionCache cache = new FunctionCache(1, 10);
+
+        for (int i = 0; i < 1000; i++)
+            cache.put(new double[] {i}, i);
+
+        assertTrue(cache.size() <= 10);
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test
+    public void sharedCacheIsConsistent() throws Exception {
+        FunctionCache cache = new FunctionCache(1, 32);
+        ExecutorService executor = Executors.newFixedThreadPool(ThreadCount);
+
+        try {
+            ArrayList<Future<Integer>> workers = new ArrayList<>();
+
+            for (int i = 0; i < ThreadCount; i++) {
+                int seed = i;
+
+                workers.add(executor.submit(() -> {
+                    double[] argumentValues = new double[1];
+                    int wrongCount = 0;
+
+                    for (int j = 0; j < CallCount; j++) {
+                        argumentValues[0] = (j * 31 + seed) % 48;
+
+                        FunctionCache.Entry entry = cache.find(argumentValues);
+
+                        if (entry == null)
+                            cache.put(argumentValues, argumentValues[0] * 2);
+                        else if (entry.getValue() != argumentValues[0] * 2)
+                            wrongCount++;
+                    }
+
+                    return wrongCount;
+                }));
+            }
+
+            for (Future<Integer> worker : workers)
+                assertEquals(0, (int)worker.get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(cache.size() <= 32);
+    }
+}
@@ -0,0 +1,111 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import mes.lang.Symbol.SymbolType;
+
+/**
+ * Micro-benchmark of one function body on each execution tier: the compiled
+ * class, the bytecode {@link VirtualMachine} and the flat syntax tree walker,
+ * followed by a statement that calls the function through the interpreter.
+ * Run it with the compiled sources and tests on the class path:
+ * <code>java mes.lang.JustInTimeCompilerBenchmark</code>.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see TierDifferentialTest
+ */
+public class JustInTimeCompilerBenchmark {
+    private static final String Definition = "f(x, y) = x * y + 2 - (x / y) ^ 2 % 3"
+            + " + (x > y ? x : y) + !x + -y + max(x, y) + x * 3 + y * 4 + 5 * 6";
+
+    private static final int CallCount = 1000000;
+    private static final int StatementCount = 100000;
+    private static final int RepetitionCount = 5;
+
+    public static void main(String[] args) {
+        Interpreter interpreter = new Interpreter();
+
+        interpreter.run(Definition);
+
+        SymbolTable symbolTable = interpreter.getSymbolTable();
+        FunctionLiteralSymbol function = (FunctionLiteralSymbol)interpreter
+                .getUserSymbolTable().find("f", SymbolType.Function, 2);
+        FlatSyntaxTree flatSyntaxTree = function.getClosure().getFlatSyntaxTree();
+        Bytecode bytecode = BytecodeCompiler.compile(flatSyntaxTree, symbolTable);
+
+        if (function.compile(symbolTable) == null)
+            System.out.println("f(x, y) was not compiled");
+
+        double[] argumentValues = {1, 2};
+
+        for (int repetition = 0; repetition < RepetitionCount; repetition++) {
+            double sum = 0;
+            long startTime = System.nanoTime();
+
+            for (int i = 0; i < CallCount; i++) {
+                argumentValues[0] = i;
+                sum += function.invoke(symbolTable, argumentValues, 0);
+            }
+
+            print("compiled", startTime, CallCount);
+            startTime = System.nanoTime();
+
+            for (int i = 0; i < CallCount; i++) {
+                argumentValues[0] = i;
+                sum += VirtualMachine.execute(bytecode, symbolTable, argumentValues);
+            }
+
+            print("bytecode", startTime, CallCount);
+            startTime = System.nanoTime();
+
+            for (int i = 0; i < CallCount; i++) {
+                argumentValues[0] = i;
+                sum += flatSyntaxTree.evaluate(symbolTable, argumentValues);
+            }
+
+            print("tree", startTime, CallCount);
+            startTime = System.nanoTime();
+
+            for (int i = 0; i < StatementCount; i++)
+                sum += interpreter.run("f(1, 2)", true).getResult().getDoubleValue();
+
+            print("statement", startTime, StatementCount);
+
+            if (Double.isNaN(sum))
+                System.out.println(sum);
+        }
+    }
+
+    private static void print(String tier, long startTime, int count) {
+        double time = (System.nanoTime() - startTime) / 1e6;
+
+        System.out.printf("%-9s %7d calls: %8.1f ms, %6.1f ns/call%n", tier, count, time,
+                time * 1e6 / count);
+    }
+}
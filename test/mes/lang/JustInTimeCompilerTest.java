@@ -0,0 +1,104 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import mes.lang.FunctionLiteralSymbol.ExecutionTier;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that {@link JustInTimeCompiler} produces classes that load and verify,
+ * so functions reach the compiled tier instead of staying on bytecode. The
+ * callees are recursive, so they are called and not inlined.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see TierDifferentialTest
+ */
+public class JustInTimeCompilerTest {
+    private static final int RunCount = 100;
+
+    private Interpreter interpreter;
+
+    @Before
+    public void setUp() {
+        interpreter = new Interpreter();
+
+        TieredExecution tieredExecution = interpreter.getTieredExecution();
+
+        tieredExecution.setBytecodeThreshold(1);
+        tieredExecution.setCompilationThreshold(2);
+        tieredExecution.setCacheCapacity(0);
+
+        interpreter.run("g(x) = x < 1 ? 0 : g(x - 1) + 2");
+        interpreter.run("k(x, y) = x < 1 ? y : k(x - 1, y) - 1");
+        interpreter.run("s(x, y, z) = x < 1 ? y * z : s(x - 1, y, z) + 1");
+    }
+
+    @Test
+    public void callsWithFewerArguments() {
+        interpreter.run("f(x, y) = g(x) + y");
+        interpreter.run("t(x, y, z) = g(x) + k(y, z)");
+
+        check("f(1, 2)", 4);
+        check("t(1, 2, 3)", 3);
+        assertCompiled("f", 2);
+        assertCompiled("t", 3);
+    }
+
+    @Test
+    public void callsWithMoreArguments() {
+        interpreter.run("m(x) = k(x, x) + 1");
+        interpreter.run("n(x) = s(x, x, 2) + k(1, x)");
+
+        check("m(3)", 1);
+        check("n(2)", 7);
+        assertCompiled("m", 1);
+        assertCompiled("n", 1);
+    }
+
+    @Test
+    public void callsWithSameArguments() {
+        interpreter.run("h(x) = g(x) + 1");
+
+        check("h(1)", 3);
+        assertCompiled("h", 1);
+        assertCompiled("g", 1);
+    }
+
+    private void check(String source, double value) {
+        for (int i = 0; i < RunCount; i++)
+            assertEquals(source, value, interpreter.evaluate(source), 0.0);
+    }
+
+    private void assertCompiled(String name, int argumentCount) {
+        assertEquals(name, ExecutionTier.Compiled,
+                interpreter.getExecutionTier(name, argumentCount));
+    }
+}
@@ -0,0 +1,83 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+/**
+ * Micro-benchmark of {@link Lexer} on inputs from 10 thousand to 1 million
+ * characters. The time per character stays flat when tokenizing is linear in
+ * the input length. Run it with the compiled sources and tests on the class
+ * path: <code>java mes.lang.LexerBenchmark [maximum length]</code>.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see LexerTest
+ */
+public class LexerBenchmark {
+    private static final int[] Lengths = {10000, 100000, 1000000};
+    private static final int WarmupCount = 10;
+    private static final int RepetitionCount = 5;
+
+    /**
+     * Builds an expression of at least the given length with identifiers,
+     * numbers, operators and parentheses.
+     * @param length The minimum length
+     * @return The source code.
+     */
+    public static String createSource(int length) {
+        StringBuilder source = new StringBuilder();
+
+        while (source.length() < length)
+            source.append("sin(x_1) * 12.5e-3 + (y <= 3 ? 1 : 0) - ");
+
+        return source.append('1').toString();
+    }
+
+    public static void main(String[] args) {
+        int maximumLength = args.length > 0 ? Integer.parseInt(args[0]) : Integer.MAX_VALUE;
+
+        for (int length : Lengths) {
+            if (length > maximumLength)
+                break;
+
+            String source = createSource(length);
+
+            for (int i = 0; i < WarmupCount; i++)
+                new Lexer(source);
+
+            long startTime = System.nanoTime();
+
+            for (int i = 0; i < RepetitionCount; i++)
+                new Lexer(source);
+
+            double time = (System.nanoTime() - startTime) / 1e6 / RepetitionCount;
+
+            System.out.printf("%8d characters: %8.3f ms, %6.2f ns/character%n",
+                    source.length(), time, time * 1e6 / source.length());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import mes.lang.Token.TokenType;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link Lexer}. Tokens are spans into the source code, so the
+ * tests check positions and values against the scanned text.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see LexerBenchmark
+ */
+public class LexerTest {
+    @Test
+    public void tokensAreSpansOfTheSource() {
+        String source = "sin(x_1) * 12.5e-3 + (y <= 3 ? 1 : 0) // note ";
+        TokenStream tokenStream = new Lexer(source).getTokenStream();
+
+        TokenType[] types = {
+            TokenType.Identifier, TokenType.LParenthesis, TokenType.Identifier,
+            TokenType.RParenthesis, TokenType.Multiplication, TokenType.Number,
+            TokenType.Plus, TokenType.LParenthesis, TokenType.Identifier,
+            TokenType.LessEqual, TokenType.Number, TokenType.Condition,
+            TokenType.Number, TokenType.Otherwise, TokenType.Number,
+            TokenType.RParenthesis, TokenType.Comment, TokenType.EOL
+        };
+
+        assertEquals(types.length, tokenStream.size());
+
+        for (int i = 0; i < types.length; i++)
+            assertEquals(types[i], tokenStream.getTokenType(i));
+
+        assertEquals("sin", tokenStream.getValue(0));
+        assertEquals("x_1", tokenStream.getValue(2));
+        assertEquals("12.5e-3", tokenStream.getValue(5));
+        assertEquals(12.5e-3, tokenStream.getNumberValue(5), 0.0);
+        assertEquals(11, tokenStream.getStart(5));
+        assertEquals("note", tokenStream.getValue(16));
+        assertEquals(source.length(), tokenStream.getStart(17));
+    }
+
+    @Test
+    public void longInputIsScannedInOrder() {
+        String source = LexerBenchmark.createSource(1000000);
+        TokenStream tokenStream = new Lexer(source).getTokenStream();
+
+        int end = 0;
+
+        for (int i = 0; i < tokenStream.size(); i++) {
+            int start = tokenStream.getStart(i);
+
+            assertTrue(start >= end);
+            end = tokenStream.getEnd(i);
+            assertTrue(end <= source.length());
+        }
+
+        assertEquals(TokenType.EOL, tokenStream.getTokenType(tokenStream.size() - 1));
+    }
+
+    @Test(expected = ExceptionContent.class)
+    public void unknownTokenIsRejected() {
+        new Lexer("1 + $");
+    }
+}
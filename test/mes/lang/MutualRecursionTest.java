@@ -0,0 +1,142 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import mes.lang.FunctionLiteralSymbol.ExecutionTier;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a function can call a function defined after it, such as
+ * mutually recursive functions, in either definition order and on every
+ * execution tier. The call fails until the callee is defined. Compiled
+ * classes link their callees, so mutually recursive functions stay on
+ * bytecode while a caller defined before its callee is compiled.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see FunctionLiteralSymbol#getUnresolvedFunctions()
+ */
+public class MutualRecursionTest {
+    private static final String Even = "ev(n) = n == 0 ? 1 : od(n - 1)";
+    private static final String Odd = "od(n) = n == 0 ? 0 : ev(n - 1)";
+
+    private static final int RunCount = 100;
+
+    @Test
+    public void treeEvaluation() {
+        check(create(false, Integer.MAX_VALUE, Integer.MAX_VALUE), Even, Odd);
+        check(create(false, Integer.MAX_VALUE, Integer.MAX_VALUE), Odd, Even);
+    }
+
+    @Test
+    public void bytecodeEvaluation() {
+        check(create(true, 1, Integer.MAX_VALUE), Even, Odd);
+        check(create(true, 1, Integer.MAX_VALUE), Odd, Even);
+    }
+
+    @Test
+    public void compiledEvaluation() {
+        Interpreter interpreter = create(true, 1, 2);
+
+        check(interpreter, Even, Odd);
+        assertTier(interpreter, "ev", ExecutionTier.Bytecode);
+        assertTier(interpreter, "od", ExecutionTier.Bytecode);
+
+        interpreter = create(true, 1, 2);
+
+        check(interpreter, Odd, Even);
+        assertTier(interpreter, "ev", ExecutionTier.Bytecode);
+        assertTier(interpreter, "od", ExecutionTier.Bytecode);
+    }
+
+    @Test
+    public void callerIsCompiledOnceCalleeIsDefined() {
+        Interpreter interpreter = create(true, 1, 2);
+
+        assertFalse(interpreter.run("f(x) = g(x) + 1").hasException());
+
+        for (int i = 0; i < RunCount; i++)
+            assertTrue(interpreter.run("f(2)").hasException());
+
+        assertFalse(interpreter.run("g(x) = x < 1 ? 0 : g(x - 1) + 2").hasException());
+
+        for (int i = 0; i < RunCount; i++)
+            assertEquals(5, interpreter.evaluate("f(2)"), 0.0);
+
+        assertTier(interpreter, "f", ExecutionTier.Compiled);
+        assertTier(interpreter, "g", ExecutionTier.Compiled);
+    }
+
+    @Test
+    public void cachedEvaluation() {
+        Interpreter interpreter = new Interpreter();
+
+        check(interpreter, Even, Odd);
+        assertTrue(interpreter.getFunctionCache("ev", 1) != null);
+    }
+
+    private static Interpreter create(boolean bytecodeEnabled, int bytecodeThreshold,
+            int compilationThreshold) {
+        Interpreter interpreter = new Interpreter();
+        TieredExecution tieredExecution = interpreter.getTieredExecution();
+
+        interpreter.setBytecodeEnabled(bytecodeEnabled);
+        tieredExecution.setBytecodeThreshold(bytecodeThreshold);
+        tieredExecution.setCompilationThreshold(compilationThreshold);
+        tieredExecution.setCacheCapacity(0);
+
+        return interpreter;
+    }
+
+    private static void check(Interpreter interpreter, String first, String second) {
+        assertFalse(first, interpreter.run(first).hasException());
+        assertTrue(interpreter.run("ev(3) + od(3)").hasException());
+        assertFalse(second, interpreter.run(second).hasException());
+
+        check(interpreter);
+    }
+
+    private static void check(Interpreter interpreter) {
+        for (int i = 0; i < RunCount; i++) {
+            int n = i % 20;
+
+            assertEquals("ev(" + n + ")", n % 2 == 0 ? 1 : 0,
+                    interpreter.evaluate("ev(" + n + ")"), 0.0);
+            assertEquals("od(" + n + ")", n % 2,
+                    interpreter.evaluate("od(" + n + ")"), 0.0);
+        }
+    }
+
+    private static void assertTier(Interpreter interpreter, String name,
+            ExecutionTier executionTier) {
+        assertEquals(name, executionTier, interpreter.getExecutionTier(name, 1));
+    }
+}
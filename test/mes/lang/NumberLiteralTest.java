@@ -0,0 +1,127 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that number values built by {@link Lexer} agree bit for bit with
+ * {@link Double#parseDouble(String)}, both on the exact fast path and on the
+ * fallback for long mantissas and large exponents.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ */
+public class NumberLiteralTest {
+    private static final int LiteralCount = 500000;
+
+    private static final String[] EdgeLiterals = {
+        "0", "0.0", "1", "10", "0.1", "0.2", "0.3", "123456789012345678",
+        "1234567890123456789", "9007199254740992", "9007199254740993",
+        "9007199254740994", "1e22", "1e23", "1e-22", "1e-23", "8.98846567431158e307",
+        "1.7976931348623157e308", "1.7976931348623159e308", "1e309", "1e400",
+        "2.2250738585072014e-308", "2.2250738585072011e-308", "4.9e-324",
+        "2.4703282292062327e-324", "2.4703282292062328e-324", "1e-400",
+        "0.000000000000000000000000000001", "3.141592653589793238462643383279",
+        "179769313486231580793728971405303415079934132710037826936173778980444"
+    };
+
+    @Test
+    public void edgeLiteralsAreCorrectlyRounded() {
+        for (String literal : EdgeLiterals)
+            check(literal);
+    }
+
+    @Test
+    public void randomLiteralsAreCorrectlyRounded() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < LiteralCount; i++)
+            check(createLiteral(random));
+    }
+
+    private static String createLiteral(Random random) {
+        StringBuilder literal = new StringBuilder();
+        int mode = random.nextInt(6);
+
+        if (mode == 0)
+            return Integer.toString(random.nextInt(1000));
+
+        if (mode == 1)
+            return Long.toString(random.nextLong() & Long.MAX_VALUE);
+
+        if (mode == 2) {
+            double value = Math.abs(Double.longBitsToDouble(random.nextLong()));
+
+            if (Double.isNaN(value) || Double.isInfinite(value))
+                value = random.nextDouble();
+
+            return Double.toString(value).replace('E', 'e');
+        }
+
+        int maximumDigitCount = mode == 5 ? 25 : 10;
+        int digitCount = 1 + random.nextInt(maximumDigitCount);
+
+        for (int i = 0; i < digitCount; i++)
+            literal.append((char)('0' + random.nextInt(10)));
+
+        if (random.nextBoolean()) {
+            literal.append('.');
+            digitCount = 1 + random.nextInt(mode == 5 ? 25 : 12);
+
+            for (int i = 0; i < digitCount; i++)
+                literal.append((char)('0' + random.nextInt(10)));
+        }
+
+        if (random.nextInt(3) == 0) {
+            literal.append('e');
+
+            int sign = random.nextInt(3);
+
+            if (sign == 1)
+                literal.append('-');
+            else if (sign == 2)
+                literal.append('+');
+
+            literal.append(random.nextInt(mode == 4 ? 400 : 40));
+        }
+
+        return literal.toString();
+    }
+
+    private static void check(String literal) {
+        TokenStream tokenStream = new Lexer(literal).getTokenStream();
+
+        assertEquals(literal, 2, tokenStream.size());
+        assertEquals(literal, literal.length(), tokenStream.getEnd(0));
+        assertEquals(literal, Double.doubleToRawLongBits(Double.parseDouble(literal)),
+                Double.doubleToRawLongBits(tokenStream.getNumberValue(0)));
+    }
+}
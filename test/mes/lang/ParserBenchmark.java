@@ -0,0 +1,85 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+/**
+ * Throughput benchmark of shallow statements. Each statement is first only
+ * parsed and then run, which lexes, parses and evaluates it, since distinct
+ * constants bypass the parse cache. It only uses the {@link Parser}
+ * constructor and {@link Interpreter#run(String)}, so it can be run against
+ * older builds to compare with the recursive parser and evaluators:
+ * <code>java mes.lang.ParserBenchmark</code>.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see DeepExpressionTest
+ */
+public class ParserBenchmark {
+    private static final String[] Sources = {
+        "1 + 2 * 3 - 4 / 5", "2 ^ 3 ^ 0.5 + 7 % 3", "1 < 2 && 3 > 2 ? 4 : -4",
+        "-(1 + (2 - (3 * (4 / 5))))", "y * y + 2 * y + 1", "f(y) + sin(y) * cos(2)"
+    };
+
+    private static final int StatementCount = 200000;
+    private static final int RepetitionCount = 5;
+
+    public static void main(String[] args) {
+        Interpreter interpreter = new Interpreter();
+
+        interpreter.run("f(x) = x * 2 + 1");
+        interpreter.run("y = 3");
+
+        for (int repetition = 0; repetition < RepetitionCount; repetition++) {
+            long startTime = System.nanoTime();
+
+            for (int i = 0; i < StatementCount; i++)
+                new Parser(new Lexer(createSource(i)));
+
+            print("parse", startTime);
+
+            double sum = 0;
+            startTime = System.nanoTime();
+
+            for (int i = 0; i < StatementCount; i++)
+                sum += interpreter.run(createSource(i)).getResult().getDoubleValue();
+
+            print("run", startTime);
+        }
+    }
+
+    private static String createSource(int index) {
+        return Sources[index % Sources.length] + " + " + index;
+    }
+
+    private static void print(String phase, long startTime) {
+        double time = (System.nanoTime() - startTime) / 1e6;
+
+        System.out.printf("%-5s %d statements: %8.1f ms, %6.0f ns/statement%n", phase,
+                StatementCount, time, time * 1e6 / StatementCount);
+    }
+}
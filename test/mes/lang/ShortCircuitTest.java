@@ -0,0 +1,119 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the <i>and</i>, <i>or</i> and conditional operators only
+ * evaluate the operands that decide the result, on every execution tier. The
+ * operands call a native function that counts its calls.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see TierDifferentialTest
+ */
+public class ShortCircuitTest {
+    /**
+     * Native functions imported by the test.
+     * @author Danilo Ferreira
+     * @version 1.0.0
+     */
+    public static class Counter {
+        private static int count;
+
+        @ExportSymbol("tick")
+        public static double tick(double x) {
+            count++;
+            return x;
+        }
+    }
+
+    private static final int RunCount = 5;
+
+    @Test
+    public void treeOperandsAreSkipped() {
+        check(false, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void bytecodeOperandsAreSkipped() {
+        check(true, 1, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void compiledOperandsAreSkipped() {
+        check(true, 1, 1);
+    }
+
+    private static void check(boolean bytecodeEnabled, int bytecodeThreshold,
+            int compilationThreshold) {
+        Interpreter interpreter = new Interpreter();
+        TieredExecution tieredExecution = interpreter.getTieredExecution();
+
+        interpreter.setBytecodeEnabled(bytecodeEnabled);
+        tieredExecution.setBytecodeThreshold(bytecodeThreshold);
+        tieredExecution.setCompilationThreshold(compilationThreshold);
+        tieredExecution.setCacheCapacity(0);
+
+        interpreter.getSymbolTable().addAll(
+                SymbolImporter.importFrom(Counter.class).getFunctions());
+
+        check(interpreter, "0 && tick(1)", 0, 0);
+        check(interpreter, "1 || tick(1)", 1, 0);
+        check(interpreter, "1 ? 5 : tick(1)", 5, 0);
+        check(interpreter, "0 ? tick(1) : 6", 6, 0);
+        check(interpreter, "1 && tick(1)", 1, 1);
+        check(interpreter, "0 || tick(0)", 0, 1);
+
+        interpreter.run("h(x) = x > 0 ? x : tick(x)");
+        interpreter.run("k(x) = x && tick(x)");
+        interpreter.run("q(x) = x || tick(x)");
+        interpreter.run("n(x) = (x ? 1 : tick(x)) + (x || tick(x + 1)) + (!x && tick(x + 2))");
+
+        check(interpreter, "h(3)", 3, 0);
+        check(interpreter, "h(-2)", -2, 1);
+        check(interpreter, "k(0)", 0, 0);
+        check(interpreter, "k(2)", 1, 1);
+        check(interpreter, "q(2)", 1, 0);
+        check(interpreter, "q(0)", 0, 1);
+        check(interpreter, "n(1)", 2, 0);
+        check(interpreter, "n(0)", 2, 3);
+    }
+
+    private static void check(Interpreter interpreter, String source, double value,
+            int tickCount) {
+        Counter.count = 0;
+
+        for (int i = 0; i < RunCount; i++)
+            assertEquals(source, value, interpreter.evaluate(source), 0.0);
+
+        assertEquals(source, RunCount * tickCount, Counter.count);
+    }
+}
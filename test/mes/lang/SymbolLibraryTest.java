@@ -0,0 +1,131 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import mes.lang.Closure.ClosureType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests that libraries built without the symbol export processor, and so
+ * without a symbol index, are indexed by scanning their classes, and that
+ * the indexed symbols are listed before their classes are imported.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see SymbolLibrary
+ */
+public class SymbolLibraryTest {
+    private static final String ClassName = "mes/lang/ShortCircuitTest$Counter.class";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void directoryWithoutIndexIsScanned() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        Path path = directory.resolve(ClassName);
+
+        Files.createDirectories(path.getParent());
+
+        try (InputStream input = openClass()) {
+            Files.copy(input, path);
+        }
+
+        check(directory);
+    }
+
+    @Test
+    public void jarWithoutIndexIsScanned() throws IOException {
+        Path path = temporaryFolder.newFile("counter" + SymbolLibrary.LibraryExtension)
+                .toPath();
+
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(path));
+                InputStream input = openClass()) {
+            output.putNextEntry(new JarEntry(ClassName));
+
+            byte[] buffer = new byte[4096];
+            int length;
+
+            while ((length = input.read(buffer)) != -1)
+                output.write(buffer, 0, length);
+
+            output.closeEntry();
+        }
+
+        check(path);
+    }
+
+    private static IdentifierLiteralSymbol findTick(Interpreter interpreter) {
+        for (IdentifierLiteralSymbol identifierSymbol
+                : interpreter.getSymbolTable().getVisibleSymbols())
+            if (identifierSymbol.getName().equals("tick"))
+                return identifierSymbol;
+
+        return null;
+    }
+
+    private static InputStream openClass() {
+        return SymbolLibraryTest.class.getClassLoader().getResourceAsStream(ClassName);
+    }
+
+    private static void check(Path path) throws IOException {
+        try (SymbolLibrary library = SymbolLibrary.open(path)) {
+            assertFalse(library.isIndexed());
+            assertEquals(1, library.getSymbolCount());
+
+            Interpreter interpreter = new Interpreter();
+
+            interpreter.loadLibrary(library);
+
+            IdentifierLiteralSymbol tick = findTick(interpreter);
+
+            assertEquals("tick(arg0): number", tick.getPrototype());
+            assertEquals(ClosureType.Empty, tick.getClosure().getType());
+            assertEquals(2, interpreter.evaluate("tick(2)"), 0.0);
+
+            tick = findTick(interpreter);
+
+            assertEquals(ClosureType.Method, tick.getClosure().getType());
+
+            interpreter.unloadLibrary(library);
+
+            assertNull(findTick(interpreter));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+// Copyright (c) 2017, Danilo Ferreira, João de Oliveira and Lucas Alves.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// * Redistributions of source code must retain the above copyright notice, this
+//   list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright notice,
+//   this list of conditions and the following disclaimer in the documentation
+//   and/or other materials provided with the distribution.
+//
+// * Neither the name of the copyright holder nor the names of its
+//   contributors may be used to endorse or promote products derived from
+//   this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+// DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+// FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+// DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+// CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+// OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package mes.lang;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Differential test of the execution tiers. Each corpus file is a session of
+ * statements that runs on every tier configuration, and the results, bit
+ * patterns and error messages must match the tree-walking configuration
+ * statement by statement. Statements run several times, so functions are
+ * promoted while the session runs, and no compiled class may be rejected by
+ * the verifier.
+ * @author Danilo Ferreira
+ * @version 1.0.0
+ * @see TieredExecution
+ */
+public class TierDifferentialTest {
+    private enum Configuration {
+        Tree, Default, Interpreted, Bytecode, Compiled
+    }
+
+    private static final String[] CorpusNames = {
+        "statements", "subexpressions", "redefinitions", "shortcircuit", "calls"
+    };
+
+    private static final int RunCount = 3;
+
+    private static class RecordHandler extends Handler {
+        private final ArrayList<String> messages = new ArrayList<>();
+
+        @Override
+        public synchronized void publish(LogRecord record) {
+            messages.add(record.getMessage() + ": " + record.getThrown());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void tiersAgree() throws IOException {
+        for (String corpusName : CorpusNames) {
+            ArrayList<String> sources = readCorpus(corpusName);
+            ArrayList<String> expectedResults = run(sources, Configuration.Tree);
+
+            for (Configuration configuration : Configuration.values()) {
+                ArrayList<String> results = run(sources, configuration);
+
+                for (int i = 0; i < results.size(); i++)
+                    assertEquals(corpusName + " on " + configuration + " tier",
+                            expectedResults.get(i), results.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void compiledClassesVerify() throws IOException {
+        Logger logger = Logger.getLogger(JustInTimeCompiler.class.getName());
+        RecordHandler handler = new RecordHandler();
+
+        logger.addHandler(handler);
+
+        try {
+            for (String corpusName : CorpusNames)
+                run(readCorpus(corpusName), Configuration.Compiled);
+        } finally {
+            logger.removeHandler(handler);
+        }
+
+        assertTrue(handler.messages.toString(), handler.messages.isEmpty());
+    }
+
+    private static ArrayList<String> run(ArrayList<String> sources,
+            Configuration configuration) {
+        Interpreter interpreter = new Interpreter();
+        TieredExecution tieredExecution = interpreter.getTieredExecution();
+
+        if (configuration != Configuration.Default)
+            tieredExecution.setCacheCapacity(0);
+
+        switch (configuration) {
+            case Tree:
+                interpreter.setBytecodeEnabled(false);
+                // Falls through to keep functions on the tree walker.
+            case Interpreted:
+                tieredExecution.setBytecodeThreshold(Integer.MAX_VALUE);
+                tieredExecution.setCompilationThreshold(Integer.MAX_VALUE);
+                tieredExecution.setRecursionThreshold(Integer.MAX_VALUE);
+                break;
+            case Bytecode:
+                tieredExecution.setBytecodeThreshold(1);
+                tieredExecution.setCompilationThreshold(Integer.MAX_VALUE);
+                tieredExecution.setRecursionThreshold(Integer.MAX_VALUE);
+                break;
+            case Compiled:
+                tieredExecution.setBytecodeThreshold(1);
+                tieredExecution.setCompilationThreshold(1);
+                break;
+            default:
+                break;
+        }
+
+        ArrayList<String> results = new ArrayList<>();
+
+        for (String source : sources)
+            for (int i = 0; i < RunCount; i++)
+                results.add(source + " => " + format(interpreter.run(source, i == 1)));
+
+        return results;
+    }
+
+    private static String format(Statement statement) {
+        if (statement.hasException()) {
+            ExceptionContent exception = statement.getException();
+            return exception.getMessage() + " at " + exception.getPosition();
+        }
+
+        IdentifierLiteralSymbol result = statement.getResult();
+
+        return result.getPrototype() + " "
+                + Long.toHexString(Double.doubleToRawLongBits(result.getDoubleValue()));
+    }
+
+    private static ArrayList<String> readCorpus(String corpusName) throws IOException {
+        InputStream input = TierDifferentialTest.class.getResourceAsStream(
+                "corpus/" + corpusName + ".txt");
+
+        assertNotNull(corpusName, input);
+
+        ArrayList<String> sources = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String source;
+
+            while ((source = reader.readLine()) != null)
+                sources.add(source);
+        }
+
+        return sources;
+    }
+}